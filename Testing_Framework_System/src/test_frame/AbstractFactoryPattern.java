@@ -39,41 +39,79 @@ class MacOSTestFactory implements TestCaseFactory {
 }
 
 // Factory Interface: for creating test suites
+// Suites are frozen templates built once per platform and type; use mutableCopy() to change one.
 interface TestSuiteFactory {
     TestSuite createGUITestSuite();
     TestSuite createNetworkTestSuite();
+    TestSuite createAllTestSuite(); // GUI and Network cases combined
 }
 
 // Concrete Factory, creates test suites for AIX
 class AIXTestSuiteFactory implements TestSuiteFactory {
+    private static final TestSuite GUI = buildGUITestSuite().freeze();
+    private static final TestSuite NETWORK = buildNetworkTestSuite().freeze();
+    private static final TestSuite ALL = TestSuite.combine("AIX All Tests", GUI, NETWORK);
+
     public TestSuite createGUITestSuite() {
+        return GUI;
+    }
+
+    public TestSuite createNetworkTestSuite() {
+        return NETWORK;
+    }
+
+    public TestSuite createAllTestSuite() {
+        return ALL;
+    }
+
+    private static TestSuite buildGUITestSuite() {
         TestSuite suite = new TestSuite("AIX GUI Test Suite");
-        suite.add(new TestCase("AIX GUI Login Test"));
-        suite.add(new TestCase("AIX GUI Navigation Test"));
+        suite.tag("aix", "gui");
+        suite.add(new TestCase("AIX GUI Login Test", "aix/gui/login/**", "common/**"));
+        suite.add(new TestCase("AIX GUI Navigation Test", "aix/gui/navigation/**", "common/**"));
         return suite;
     }
 
-    public TestSuite createNetworkTestSuite() {
+    private static TestSuite buildNetworkTestSuite() {
         TestSuite suite = new TestSuite("AIX Network Test Suite");
-        suite.add(new TestCase("AIX Network Connectivity Test"));
-        suite.add(new TestCase("AIX Network Latency Test"));
+        suite.tag("aix", "network");
+        suite.add(new TestCase("AIX Network Connectivity Test", "aix/network/**", "common/**"));
+        suite.add(new TestCase("AIX Network Latency Test", "aix/network/**", "common/**"));
         return suite;
     }
 }
 
 // Concrete Factory, creates test suites for macOS
 class MacOSTestSuiteFactory implements TestSuiteFactory {
+    private static final TestSuite GUI = buildGUITestSuite().freeze();
+    private static final TestSuite NETWORK = buildNetworkTestSuite().freeze();
+    private static final TestSuite ALL = TestSuite.combine("MacOS All Tests", GUI, NETWORK);
+
     public TestSuite createGUITestSuite() {
+        return GUI;
+    }
+
+    public TestSuite createNetworkTestSuite() {
+        return NETWORK;
+    }
+
+    public TestSuite createAllTestSuite() {
+        return ALL;
+    }
+
+    private static TestSuite buildGUITestSuite() {
         TestSuite suite = new TestSuite("macOS GUI Test Suite");
-        suite.add(new TestCase("macOS GUI Login Test"));
-        suite.add(new TestCase("macOS GUI Navigation Test"));
+        suite.tag("macos", "gui");
+        suite.add(new TestCase("macOS GUI Login Test", "macos/gui/login/**", "common/**"));
+        suite.add(new TestCase("macOS GUI Navigation Test", "macos/gui/navigation/**", "common/**"));
         return suite;
     }
 
-    public TestSuite createNetworkTestSuite() {
+    private static TestSuite buildNetworkTestSuite() {
         TestSuite suite = new TestSuite("macOS Network Test Suite");
-        suite.add(new TestCase("macOS Network Speed Test"));
-        suite.add(new TestCase("macOS Network Security Test"));
+        suite.tag("macos", "network");
+        suite.add(new TestCase("macOS Network Speed Test", "macos/network/**", "common/**"));
+        suite.add(new TestCase("macOS Network Security Test", "macos/network/**", "common/**"));
         return suite;
     }
 }
@@ -89,26 +127,26 @@ interface NetworkTest { // Represent NetworkTest
 // GUITest interface implementation for AIX platform
 class AIXGUITest implements GUITest {
     public void run() {
-        System.out.println("[GUITest] Running AIX GUI Test");
+        AsyncOutputWriter.getInstance().emit("GUITest", "Running AIX GUI Test");
     }
 }
 // NetworkTest interface implementation for AIX platform
 class AIXNetworkTest implements NetworkTest {
     public void run() {
-        System.out.println("[NetworkTest] Running AIX Network Test");
+        AsyncOutputWriter.getInstance().emit("NetworkTest", "Running AIX Network Test");
     }
 }
 
 // GUITest interface implementation for macOS platform
 class MacOSGUITest implements GUITest {
     public void run() {
-        System.out.println("[GUITest] Running macOS GUI Test");
+        AsyncOutputWriter.getInstance().emit("GUITest", "Running macOS GUI Test");
     }
 }
 // NetworkTest interface implementation for macOS platform
 class MacOSNetworkTest implements NetworkTest {
     public void run() {
-        System.out.println("[NetworkTest] Running macOS Network Test");
+        AsyncOutputWriter.getInstance().emit("NetworkTest", "Running macOS Network Test");
     }
 }
 
@@ -0,0 +1,191 @@
+/**
+ *Project: Testing Framework System
+ *
+ *@author Taha Yasir Colak
+ *@author Aykan Berk Ayvazoglu
+ *@author Cankat Caglar Acarer
+ *@author Bartu Nurgun
+ *
+ */
+package test_frame;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Headless entry point for automation. Runs a list of operations in one process and exits with a status
+ * code, without the interactive menu. The TestManager is created headless, so no cron ticker, metrics
+ * snapshot thread or observers are started for a run that only executes its operations and exits.
+ *
+ *   java test_frame.Main "plan aix all --tags network" checkin run "query --platform AIX"
+ *   java test_frame.Main --script nightly.tfs
+ *
+ * Operations, one per argument or per line of the script (blank lines and # comments are skipped):
+ *   plan PLATFORM TYPE [--tags EXPR] [--parallelism N] [--workers N] [--cron EXPR] [--priority P] [--timeout SECONDS]
+ *   checkin                 starts a check-in; the operations after it do not wait for it, except run
+ *   run                     runs every planned execution and waits for it; held until a pending check-in completes
+ *   query [LOG FILTERS]     prints the result log, with the filters of the menu's View Test Logs, or --trends
+ *   metrics                 prints the duration percentiles and counters
+ *
+ * Exit status: 0 if every operation succeeded, 1 if an execution failed or timed out or a check-in failed,
+ * 2 for an invalid operation.
+ */
+class BatchRunner {
+    static final int EXIT_OK = 0;
+    static final int EXIT_FAILED = 1;
+    static final int EXIT_INVALID = 2;
+
+    private static final Pattern TOKEN = Pattern.compile("\"([^\"]*)\"|(\\S+)");
+
+    private final long mainStartMillis; // When main() was entered
+    private CompletableFuture<CheckInSnapshot> checkIn; // Latest check-in started by the script, or null
+    private boolean failed;
+
+    /**
+     * @param mainStartMillis Epoch milliseconds at which main() was entered, for the startup report.
+     */
+    BatchRunner(long mainStartMillis) {
+        this.mainStartMillis = mainStartMillis;
+    }
+
+    /**
+     * Runs the operations given on the command line, or the ones of the script after --script.
+     * @param args The command-line arguments.
+     * @return The exit status.
+     */
+    public int run(String[] args) {
+        List<String> operations;
+        if (args[0].equals("--script")) {
+            if (args.length != 2) return invalid("Usage: --script FILE");
+            try {
+                operations = Files.readAllLines(Paths.get(args[1]));
+            } catch (IOException e) {
+                return invalid("Cannot read script " + args[1] + ": " + e.getMessage());
+            }
+        } else {
+            operations = Arrays.asList(args);
+        }
+
+        TestManager.configureHeadless();
+        int lineNumber = 0;
+        for (String operation : operations) {
+            lineNumber++;
+            String line = operation.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            try {
+                execute(line);
+            } catch (IllegalArgumentException e) {
+                return invalid("Operation " + lineNumber + " (" + line + "): " + e.getMessage());
+            }
+        }
+        awaitCheckIn(); // Report a check-in nothing waited for
+        reportStartup();
+        AsyncOutputWriter.getInstance().flush();
+        return failed ? EXIT_FAILED : EXIT_OK;
+    }
+
+    private void execute(String line) {
+        String[] tokens = tokens(line);
+        switch (tokens[0].toLowerCase()) {
+            case "plan" -> plan(tokens);
+            case "checkin" -> checkIn = new SourceCodeCheckInCommand().executeAsync();
+            case "run" -> runPlanned();
+            case "query" -> query(line.substring(tokens[0].length()).trim());
+            case "metrics" -> {
+                AsyncOutputWriter.getInstance().flush();
+                MetricsRegistry.getInstance().printSummary();
+            }
+            default -> throw new IllegalArgumentException("Unknown operation " + tokens[0]);
+        }
+    }
+
+    // plan PLATFORM TYPE [--tags EXPR] [--parallelism N] [--workers N] [--cron EXPR] [--priority P] [--timeout SECONDS]
+    private void plan(String[] tokens) {
+        if (tokens.length < 3) throw new IllegalArgumentException("Usage: plan PLATFORM TYPE [OPTIONS]");
+        TestExecution execution = ExecutionPlanner.create(tokens[1], tokens[2]);
+        for (int i = 3; i < tokens.length; i++) {
+            String option = tokens[i];
+            if (i + 1 >= tokens.length) throw new IllegalArgumentException("Missing value for " + option);
+            String value = tokens[++i];
+            switch (option) {
+                case "--tags" -> execution.setTagFilter(value);
+                case "--parallelism" -> execution.setParallelism(Integer.parseInt(value));
+                case "--workers" -> execution.setWorkerJvms(Integer.parseInt(value));
+                case "--cron" -> execution.setCron(CronExpression.parse(value));
+                case "--priority" -> execution.setPriority(Priority.valueOf(value.toUpperCase()));
+                case "--timeout" -> execution.setTimeoutMillis(Math.max(0, Long.parseLong(value)) * 1000);
+                default -> throw new IllegalArgumentException("Unknown option " + option);
+            }
+        }
+        TestScheduler.getInstance().scheduleExecution(execution);
+        AsyncOutputWriter.getInstance().emit("Batch", "Planned {}", execution.getDescription());
+    }
+
+    // Runs every planned execution and waits for them, including the time they are held for a pending check-in.
+    private void runPlanned() {
+        TestScheduler scheduler = TestScheduler.getInstance();
+        if (scheduler.size() > 0 && !TestManager.isCheckedIn() && checkIn == null) {
+            // Nothing would ever release the executions; checked before draining, so they stay planned.
+            throw new IllegalArgumentException("Source code not checked in, add a checkin operation before run");
+        }
+        List<TestExecution> drained = scheduler.drainCoalesced();
+        if (drained.isEmpty()) {
+            AsyncOutputWriter.getInstance().emit("Batch", "No tests currently scheduled.");
+            return;
+        }
+        CyclePlan plan = CyclePlan.of(drained);
+        plan.report(AsyncOutputWriter.getInstance());
+        if (!plan.track(TestInvoker.forCycle(plan, null).executeAllAsync(), System.nanoTime()).join()) failed = true;
+    }
+
+    // query [--platform P] [--desc TEXT] [--since DATE] [--until DATE] [--last N] [--from N] [--limit N] | --trends
+    private void query(String options) {
+        AsyncOutputWriter.getInstance().flush(); // Keep the log lines after the output of earlier operations
+        if (options.equals("--trends")) {
+            LogViewer.printTrends();
+            return;
+        }
+        LogQuery query = LogQuery.parse(options);
+        if (query.follow) throw new IllegalArgumentException("--follow is not available in batch mode");
+        LogViewer.printLogs(query, () -> true);
+    }
+
+    private void awaitCheckIn() {
+        if (checkIn == null) return;
+        try {
+            checkIn.join();
+        } catch (CompletionException e) {
+            failed = true; // Already reported by the check-in command
+        }
+    }
+
+    // Time from JVM start, and from main(), to the first test case.
+    private void reportStartup() {
+        long firstCase = MetricsRegistry.getInstance().getFirstCaseMillis();
+        if (firstCase == 0) return;
+        long jvmStart = ManagementFactory.getRuntimeMXBean().getStartTime();
+        AsyncOutputWriter.getInstance().emit("Batch", "Startup to first test", (firstCase - jvmStart)
+                + " ms after JVM start, " + (firstCase - mainStartMillis) + " ms after main()");
+    }
+
+    private static int invalid(String message) {
+        AsyncOutputWriter.getInstance().flush();
+        System.err.println("[Batch] " + message);
+        return EXIT_INVALID;
+    }
+
+    // Splits an operation into words; values containing spaces may be double-quoted.
+    private static String[] tokens(String line) {
+        List<String> tokens = new ArrayList<>();
+        Matcher matcher = TOKEN.matcher(line);
+        while (matcher.find()) tokens.add(matcher.group(1) != null ? matcher.group(1) : matcher.group(2));
+        return tokens.toArray(new String[0]);
+    }
+}
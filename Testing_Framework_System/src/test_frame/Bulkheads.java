@@ -0,0 +1,194 @@
+/**
+ *Project: Testing Framework System
+ *
+ *@author Taha Yasir Colak
+ *@author Aykan Berk Ayvazoglu
+ *@author Cankat Caglar Acarer
+ *@author Bartu Nurgun
+ *
+ */
+package test_frame;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limits how many executions run against one platform at the same time.
+ * The limit adapts like TCP congestion control (AIMD): every execution that passes within the tolerated
+ * duration adds 1/limit, so the limit grows by about one per round of executions, and a failure, timeout
+ * or a run much slower than usual halves it, at most once per round. Executions waiting for a permit
+ * queue in FIFO order per platform and wait without holding a thread, so a saturated platform neither
+ * starves nor blocks the executions of another one.
+ */
+class PlatformBulkhead {
+    private static final double BACKOFF = 0.5; // Multiplicative decrease
+
+    private final String platform;
+    private final int maxLimit;
+    private final double tolerance; // A run slower than this multiple of its usual duration counts as congestion
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ArrayDeque<CompletableFuture<Permit>> waiting = new ArrayDeque<>(); // Guarded by lock
+    private double limit;
+    private int inFlight;
+    private long lastDecrease = Long.MIN_VALUE; // nanoTime of the last decrease, whose origin may be negative; permits older than it do not decrease again
+
+    /**
+     * A right to run one execution on the platform; released exactly once, with the outcome of the run.
+     */
+    final class Permit {
+        private final long acquiredAt = System.nanoTime();
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        /**
+         * @param durationNanos How long the execution ran.
+         * @param usualNanos Its usual duration, or 0 if unknown.
+         * @param passed Whether it passed; failures and timeouts always count as congestion.
+         */
+        void release(long durationNanos, long usualNanos, boolean passed) {
+            if (released.compareAndSet(false, true)) PlatformBulkhead.this.release(this, durationNanos, usualNanos, passed);
+        }
+    }
+
+    PlatformBulkhead(String platform, int initialLimit, int maxLimit, double tolerance) {
+        this.platform = platform;
+        this.maxLimit = Math.max(1, maxLimit);
+        this.limit = Math.min(this.maxLimit, Math.max(1, initialLimit));
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * Requests a permit.
+     * @return Future completed with the permit; already completed if one was free and nobody was waiting.
+     */
+    public CompletableFuture<Permit> acquire() {
+        lock.lock();
+        try {
+            if (waiting.isEmpty() && inFlight < (int) limit) {
+                inFlight++;
+                return CompletableFuture.completedFuture(new Permit());
+            }
+            CompletableFuture<Permit> permit = new CompletableFuture<>();
+            waiting.add(permit);
+            return permit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(Permit permit, long durationNanos, long usualNanos, boolean passed) {
+        List<CompletableFuture<Permit>> granted = new ArrayList<>();
+        double before, after;
+        lock.lock();
+        try {
+            inFlight--;
+            before = limit;
+            boolean congested = !passed || (usualNanos > 0 && durationNanos > usualNanos * tolerance);
+            if (!congested) {
+                limit = Math.min(maxLimit, limit + 1.0 / limit);
+            } else if (permit.acquiredAt > lastDecrease) {
+                limit = Math.max(1, limit * BACKOFF);
+                lastDecrease = System.nanoTime();
+            }
+            after = limit;
+            while (!waiting.isEmpty() && inFlight < (int) limit) {
+                inFlight++;
+                granted.add(waiting.poll());
+            }
+        } finally {
+            lock.unlock();
+        }
+        if ((int) after < (int) before) {
+            AsyncOutputWriter.getInstance().emit("Bulkhead", "Concurrency limit of {} lowered to {}", platform, (int) after);
+        }
+        for (CompletableFuture<Permit> waiter : granted) waiter.complete(new Permit()); // Outside the lock: runs the waiter's continuation
+    }
+
+    public String getPlatform() {
+        return platform;
+    }
+
+    public double getLimit() {
+        lock.lock();
+        try {
+            return limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getQueued() {
+        lock.lock();
+        try {
+            return waiting.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
+
+/**
+ * The bulkhead of every platform, keyed on TestExecution.platform.
+ * Limits start at -Dtfs.bulkhead.initialLimit (2) and never exceed -Dtfs.bulkhead.maxLimit (32), or
+ * -Dtfs.bulkhead.PLATFORM.maxLimit for one platform, e.g. -Dtfs.bulkhead.aix.maxLimit=4. A run slower
+ * than -Dtfs.bulkhead.tolerance (2.0) times its usual duration lowers the limit.
+ */
+class Bulkheads {
+    private static final Bulkheads instance = new Bulkheads();
+
+    private final int initialLimit = Integer.getInteger("tfs.bulkhead.initialLimit", 2);
+    private final int maxLimit = Integer.getInteger("tfs.bulkhead.maxLimit", 32);
+    private final double tolerance = Double.parseDouble(System.getProperty("tfs.bulkhead.tolerance", "2.0"));
+    private final Map<String, PlatformBulkhead> bulkheads = new ConcurrentHashMap<>();
+
+    private Bulkheads() {}
+
+    public static Bulkheads getInstance() {
+        return instance;
+    }
+
+    public PlatformBulkhead forPlatform(String platform) {
+        return bulkheads.computeIfAbsent(platform, p -> new PlatformBulkhead(p, initialLimit,
+                Integer.getInteger("tfs.bulkhead." + p.toLowerCase() + ".maxLimit", maxLimit), tolerance));
+    }
+
+    // Limit, running and queued executions of each platform as Prometheus gauges.
+    void writePrometheus(Writer out) throws IOException {
+        out.write("# HELP tfs_bulkhead_limit Adaptive concurrency limit of each platform.\n");
+        out.write("# TYPE tfs_bulkhead_limit gauge\n");
+        for (PlatformBulkhead bulkhead : sorted()) out.write("tfs_bulkhead_limit{platform=\"" + MetricsRegistry.escapeLabel(bulkhead.getPlatform()) + "\"} " + bulkhead.getLimit() + "\n");
+        out.write("# HELP tfs_bulkhead_in_flight Executions running on each platform.\n");
+        out.write("# TYPE tfs_bulkhead_in_flight gauge\n");
+        for (PlatformBulkhead bulkhead : sorted()) out.write("tfs_bulkhead_in_flight{platform=\"" + MetricsRegistry.escapeLabel(bulkhead.getPlatform()) + "\"} " + bulkhead.getInFlight() + "\n");
+        out.write("# HELP tfs_bulkhead_queued Executions waiting for a permit of each platform.\n");
+        out.write("# TYPE tfs_bulkhead_queued gauge\n");
+        for (PlatformBulkhead bulkhead : sorted()) out.write("tfs_bulkhead_queued{platform=\"" + MetricsRegistry.escapeLabel(bulkhead.getPlatform()) + "\"} " + bulkhead.getQueued() + "\n");
+    }
+
+    void printSummary() {
+        if (bulkheads.isEmpty()) return;
+        System.out.println("\nPlatform concurrency (limit / running / queued):");
+        for (PlatformBulkhead bulkhead : sorted()) {
+            System.out.printf("  %-40s %6.2f  %6d  %6d%n", bulkhead.getPlatform(), bulkhead.getLimit(), bulkhead.getInFlight(), bulkhead.getQueued());
+        }
+    }
+
+    private List<PlatformBulkhead> sorted() {
+        List<PlatformBulkhead> list = new ArrayList<>(bulkheads.values());
+        list.sort(Comparator.comparing(PlatformBulkhead::getPlatform));
+        return list;
+    }
+}
@@ -10,6 +10,8 @@
 package test_frame;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * CLIProcess interface provides a Command-Line Interface for planning, executing
@@ -25,9 +27,11 @@ interface CLIProcess {
         System.out.println("\t\t  TESTING FRAMEWORK SYSTEM "); // Scheduler will run every Monday at 09:00
         System.out.println("\t\t*");
         boolean running = true;
+        TestManager.getInstance(); // Recovers the planned executions of the previous session
 
         // User Input Operations over MAIN MENU
         while (running) {
+            AsyncOutputWriter.getInstance().flush(); // Let queued test output finish before the menu is drawn
             System.out.println("\n*----------------- MAIN MENU -----------------*");
             System.out.print("|");System.out.print("  1. Plan a Test Execution");System.out.println("                   |");
             System.out.print("|");System.out.print("  2. List Planned Executions");System.out.println("                 |");
@@ -42,12 +46,13 @@ interface CLIProcess {
             System.out.print("|");System.out.print("  11. View Test Cases in macOS GUI Test Suite");System.out.println("|");
             System.out.print("|");System.out.print("  12. View Test Cases in AIX GUI Test Suite");System.out.println("  |");
             System.out.print("|");System.out.print("  13. View Test Logs");System.out.println("                         |");
-            System.out.print("|");System.out.print("  14. Exit");System.out.println("                                   |");
+            System.out.print("|");System.out.print("  14. View Metrics");System.out.println("                           |");
+            System.out.print("|");System.out.print("  15. Exit");System.out.println("                                   |");
             System.out.println("------------------------------------------------------");
 
 
 
-            System.out.print("Choose an option [1-14]: ");
+            System.out.print("Choose an option [1-15]: ");
 
             int choice;
             try {
@@ -63,17 +68,19 @@ interface CLIProcess {
                 case 1 -> planTest();
                 case 2 -> listPlannedTests();
                 case 3 -> runTestsNow();
-                case 4 -> new SourceCodeCheckInCommand().execute();
+                case 4 -> checkIn();
                 case 5 -> System.out.println("Reporting is now done automatically.");
                 case 6-> clearTests();
-                case 7 -> new AIXTestFactory().createNetworkTest().run();
-                case 8 -> new AIXTestFactory().createGUITest().run();
-                case 9 -> new MacOSTestFactory().createNetworkTest().run();
-                case 10-> new MacOSTestFactory().createGUITest().run();
+                case 7 -> runUnitTest("AIX Network Unit Test", new AIXTestFactory().createNetworkTest()::run);
+                case 8 -> runUnitTest("AIX GUI Unit Test", new AIXTestFactory().createGUITest()::run);
+                case 9 -> runUnitTest("macOS Network Unit Test", new MacOSTestFactory().createNetworkTest()::run);
+                case 10-> runUnitTest("macOS GUI Unit Test", new MacOSTestFactory().createGUITest()::run);
                 case 11 -> viewSuite(new MacOSTestSuiteFactory().createGUITestSuite());
                 case 12 -> viewSuite(new AIXTestSuiteFactory().createGUITestSuite());
-                case 13 -> LogViewer.printLogs();
-                case 14 -> {
+                case 13 -> viewLogs();
+                case 14 -> viewMetrics();
+                case 15 -> {
+                    AsyncOutputWriter.getInstance().flush();
                     System.out.println("Exiting the Testing Framework System. Goodbye!");
                     running = false;
                     System.exit(0);
@@ -86,43 +93,78 @@ interface CLIProcess {
     // User plan a new test execution by selecting OS and test type then suites will be added in queue
     private void planTest() {
         System.out.println("\n--- Plan a Test Execution ---");
-        System.out.print("Select Platform (AIX/macOS): ");
-        String platformInput = scanner.nextLine().trim().toLowerCase();
-
-        if (!platformInput.equals("aix") && !platformInput.equals("macos")) {
-            System.out.println("Invalid platform. Use 'AIX' or 'macOS'.");
+        TestExecution execution;
+        try {
+            System.out.print("Select Platform (AIX/macOS): ");
+            String platformInput = ExecutionPlanner.platform(scanner.nextLine());
+            System.out.print("Select Test Type (GUI/Network/All): ");
+            execution = ExecutionPlanner.create(platformInput, scanner.nextLine());
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
             return;
         }
 
-        System.out.print("Select Test Type (GUI/Network/All): ");
-        String typeInput = scanner.nextLine().trim().toLowerCase();
+        System.out.print("Tag filter, e.g. login | !slow (blank = all cases): ");
+        String tagInput = scanner.nextLine().trim();
+        try {
+            execution.setTagFilter(tagInput);
+        } catch (IllegalArgumentException e) {
+            System.out.println("Invalid tag filter (" + e.getMessage() + "). Running all cases.");
+        }
 
-        if (!typeInput.equals("gui") && !typeInput.equals("network") && !typeInput.equals("all")) {
-            System.out.println("Invalid test type. Use 'GUI', 'Network', or 'All'.");
-            return;
+        System.out.print("Parallelism level (blank = sequential): ");
+        String parallelismInput = scanner.nextLine().trim();
+        if (!parallelismInput.isEmpty()) {
+            try {
+                execution.setParallelism(Integer.parseInt(parallelismInput));
+            } catch (NumberFormatException e) {
+                System.out.println("Invalid parallelism level. Running sequentially.");
+            }
         }
-        // AIX or macOS selection
-        TestSuiteFactory factory = platformInput.equals("aix") ? new AIXTestSuiteFactory() : new MacOSTestSuiteFactory();
-        TestSuite suite;
-        // Convert platformInput back to uppercase for display
-        platformInput = platformInput.equals("aix") ? "AIX" : "MacOS";
-        String description = platformInput + " - " + typeInput + " Test Execution";
-
-        if (typeInput.equals("gui")) {
-            suite = factory.createGUITestSuite();
-        } else if (typeInput.equals("network")) {
-            suite = factory.createNetworkTestSuite();
-        } else {
-            // GUI and Network Test Suites' Combination
-            suite = new TestSuite(platformInput + " All Tests");
-            for (TestComponent tc : factory.createGUITestSuite()) suite.add(tc);
-            for (TestComponent tc : factory.createNetworkTestSuite()) suite.add(tc);
+
+        System.out.print("Worker JVMs to shard across (blank = this JVM): ");
+        String workersInput = scanner.nextLine().trim();
+        if (!workersInput.isEmpty()) {
+            try {
+                execution.setWorkerJvms(Integer.parseInt(workersInput));
+            } catch (NumberFormatException e) {
+                System.out.println("Invalid number of worker JVMs. Running in this JVM.");
+            }
+        }
+
+        System.out.print("Cron schedule (blank = every Monday 09:00): ");
+        String cronInput = scanner.nextLine().trim();
+        if (!cronInput.isEmpty()) {
+            try {
+                execution.setCron(CronExpression.parse(cronInput));
+            } catch (IllegalArgumentException e) {
+                System.out.println("Invalid cron expression. Use 'minute hour day month weekday', e.g. '0 9 * * 1'.");
+                return;
+            }
+        }
+
+        System.out.print("Priority (Urgent/High/Normal/Low, blank = Normal): ");
+        String priorityInput = scanner.nextLine().trim();
+        if (!priorityInput.isEmpty()) {
+            try {
+                execution.setPriority(Priority.valueOf(priorityInput.toUpperCase()));
+            } catch (IllegalArgumentException e) {
+                System.out.println("Invalid priority. Use 'Urgent', 'High', 'Normal' or 'Low'.");
+                return;
+            }
         }
 
-        TestExecution execution = new TestExecution(description, platformInput, suite);
-        if (typeInput.equals("gui")) execution.setExecuteGUITestsOnly(true);
-        if (typeInput.equals("network")) execution.setExecuteNetworkTestsOnly(true);
+        System.out.print("Execution timeout in seconds (blank = default, 0 = none): ");
+        String timeoutInput = scanner.nextLine().trim();
+        if (!timeoutInput.isEmpty()) {
+            try {
+                execution.setTimeoutMillis(Math.max(0, Long.parseLong(timeoutInput)) * 1000);
+            } catch (NumberFormatException e) {
+                System.out.println("Invalid timeout. Using the default.");
+            }
+        }
 
+        TestManager.getInstance(); // Make sure the scheduling engine is running
         scheduler.scheduleExecution(execution);
         System.out.println("✔ Test execution successfully planned.");
     }
@@ -134,25 +176,103 @@ interface CLIProcess {
             System.out.println("No tests currently scheduled.");
         } else {
             for (int i = 0; i < executions.size(); i++) {
-                System.out.println((i + 1) + ". " + executions.get(i).getDescription());
+                TestExecution execution = executions.get(i);
+                System.out.println((i + 1) + ". " + execution.getDescription() + " [" + execution.getCron() + ", " + execution.getPriority() + "]");
             }
         }
     }
 
     /**
      * Immediately executes all scheduled tests (simulating a Monday schedule).
-     * Each test execution is wrapped in Command objects.
+     * Each test execution is wrapped in Command objects that run concurrently.
      */
     private void runTestsNow() {
         System.out.println("\n--- Running All Scheduled Tests (Simulated Monday) ---");
-        List<TestExecution> copy = new ArrayList<>(scheduler.getPendingExecutions());
-        for (TestExecution exec : copy) {
-            TestInvoker invoker = new TestInvoker();
-            invoker.addCommand(new TestExecutionCommand(exec));
-            invoker.addCommand(new ReportingCommand(exec));
-            invoker.executeAll();
+        // Draining claims the executions, so the scheduling engine cannot run them a second time.
+        // Overlapping executions are merged, so the cases they share run once.
+        List<TestExecution> drained = scheduler.drainCoalesced();
+        // Longest executions first on the platform lanes, so short ones fill the gaps instead of waiting behind them.
+        CyclePlan plan = CyclePlan.of(drained);
+        plan.report(AsyncOutputWriter.getInstance());
+        // One command graph for the whole cycle, so lanes overlap and each report waits only for its own run.
+        CompletableFuture<Boolean> cycle = plan.track(TestInvoker.forCycle(plan, null).executeAllAsync(), System.nanoTime());
+        if (!TestManager.isCheckedIn() && !drained.isEmpty()) {
+            // Held executions start on their own once the check-in completes; the menu stays usable meanwhile.
+            System.out.println(drained.size() + " execution(s) held until the next source code check-in.");
+            return;
         }
-        scheduler.clearExecutions();
+        cycle.join();
+    }
+
+    // Runs a single GUI or network test under the test case deadline.
+    private void runUnitTest(String name, Runnable test) {
+        long timeout = Watchdog.getInstance().getCaseTimeoutMillis();
+        if (!Watchdog.getInstance().run(name, timeout, test)) {
+            AsyncOutputWriter.getInstance().emit("Watchdog", "Timed out after {} ms", timeout, name);
+        }
+    }
+
+    // Starts a check-in in the background; executions held for it start as soon as it completes.
+    private void checkIn() {
+        new SourceCodeCheckInCommand().executeAsync();
+        System.out.println("Check-in running in the background.");
+    }
+
+    /**
+     * Prints the newest test log entries with optional filters, or a page of them, e.g. "--platform AIX --desc gui --from 0 --limit 20".
+     * With --follow, new results are printed as they are logged until Enter is pressed.
+     */
+    private void viewLogs() {
+        System.out.print("Log filters [--platform P] [--desc TEXT] [--since DATE] [--until DATE] [--last N] [--from N] [--limit N] [--follow] [--export] [--archive DAYS] [--trends]: ");
+        String options = scanner.nextLine().trim();
+        if (options.equals("--export")) {
+            LogViewer.exportLogs();
+            return;
+        }
+        if (options.equals("--trends")) {
+            LogViewer.printTrends();
+            return;
+        }
+        if (options.startsWith("--archive")) {
+            String days = options.substring("--archive".length()).trim();
+            try {
+                int age = days.isEmpty() ? 30 : Integer.parseInt(days);
+                if (age < 1) throw new NumberFormatException();
+                LogViewer.archiveLogs(age);
+            } catch (NumberFormatException e) {
+                System.out.println("Invalid number of days, use a whole number of at least 1: " + days);
+            }
+            return;
+        }
+        LogQuery query;
+        try {
+            query = LogQuery.parse(options);
+        } catch (IllegalArgumentException e) {
+            System.out.println("Invalid log filter: " + e.getMessage());
+            return;
+        }
+        if (!query.follow) {
+            LogViewer.printLogs(query, () -> true);
+            return;
+        }
+        // Follow on a background thread while this thread waits for Enter.
+        AtomicBoolean stopped = new AtomicBoolean(false);
+        Thread follower = new Thread(() -> LogViewer.printLogs(query, stopped::get), "log-follower");
+        follower.start();
+        System.out.println("(Following the log, press Enter to stop)");
+        scanner.nextLine();
+        stopped.set(true);
+        try {
+            follower.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Prints duration percentiles and counters; the full Prometheus text is written to the metrics snapshot file.
+    private void viewMetrics() {
+        System.out.println("\n--- Metrics ---");
+        MetricsRegistry.getInstance().printSummary();
     }
 
     private void clearTests() { // Clear scheduled tests from scheduler
@@ -168,17 +288,67 @@ interface CLIProcess {
             System.out.println("No test cases found.");
         } else {
             int i = 1;
+            // Only lists the cases; running them here would count as test runs in the metrics.
             for (TestComponent tc : testCases) {
-                System.out.println(i++ + ". Test case:");
-                tc.execute(); // Display each test's execution
+                String name = tc instanceof TestCase testCase ? testCase.getName()
+                        : tc instanceof TestSuite child ? child.getDescription() : tc.toString();
+                System.out.println(i++ + ". Test case: " + name);
             }
         }
     }
 }
 
-// Start here.
+/**
+ * Builds test executions from a platform and a test type; shared by the interactive menu and the batch mode.
+ */
+class ExecutionPlanner {
+    private ExecutionPlanner() {}
+
+    /**
+     * Normalizes a platform name.
+     * @param input "aix" or "macos", in any case.
+     * @return "AIX" or "MacOS", as displayed and logged.
+     * @throws IllegalArgumentException If the platform is unknown.
+     */
+    static String platform(String input) {
+        return switch (input.trim().toLowerCase()) {
+            case "aix" -> "AIX";
+            case "macos" -> "MacOS";
+            default -> throw new IllegalArgumentException("Invalid platform. Use 'AIX' or 'macOS'.");
+        };
+    }
+
+    /**
+     * Creates an execution of a platform's shared suite template; planning does not copy the suite tree.
+     * @param platformInput The platform, see platform(String).
+     * @param typeInput "gui", "network" or "all", in any case.
+     * @return The execution, with the default schedule and priority.
+     * @throws IllegalArgumentException If the platform or the test type is unknown.
+     */
+    static TestExecution create(String platformInput, String typeInput) {
+        String platform = platform(platformInput);
+        String type = typeInput.trim().toLowerCase();
+        TestSuiteFactory factory = platform.equals("AIX") ? new AIXTestSuiteFactory() : new MacOSTestSuiteFactory();
+        TestSuite suite = switch (type) {
+            case "gui" -> factory.createGUITestSuite();
+            case "network" -> factory.createNetworkTestSuite();
+            case "all" -> factory.createAllTestSuite(); // GUI and Network Test Suites' Combination
+            default -> throw new IllegalArgumentException("Invalid test type. Use 'GUI', 'Network', or 'All'.");
+        };
+        TestExecution execution = new TestExecution(platform + " - " + type + " Test Execution", platform, suite);
+        execution.setPlannedType(type);
+        if (type.equals("gui")) execution.setExecuteGUITestsOnly(true);
+        if (type.equals("network")) execution.setExecuteNetworkTestsOnly(true);
+        return execution;
+    }
+}
+
+// Start here. Without arguments the interactive menu starts; with arguments the operations run headless, see BatchRunner.
 class Main implements CLIProcess {
     public static void main(String[] args) {
+        if (args.length > 0) {
+            System.exit(new BatchRunner(System.currentTimeMillis()).run(args));
+        }
         CLIProcess tfs = new Main(); // Create instance of the CLI processor
         tfs.start(); // Start main menu
     }
@@ -0,0 +1,203 @@
+/**
+ *Project: Testing Framework System
+ *
+ *@author Taha Yasir Colak
+ *@author Aykan Berk Ayvazoglu
+ *@author Cankat Caglar Acarer
+ *@author Bartu Nurgun
+ *
+ */
+package test_frame;
+
+import java.util.*;
+
+/**
+ * One run standing in for several pending executions whose test cases overlap, e.g. a macOS GUI run
+ * and a macOS All run. It runs the union of their cases once; its outcome is logged, published and
+ * reported for every member, so a duplicate request costs nothing extra. The results of a case go to
+ * the members that selected it, each member getting results of its own, and a case or suite that fails
+ * or times out is attributed to those members only.
+ */
+class CoalescedExecution extends TestExecution {
+    private final List<TestExecution> members;
+    private final Map<TestExecution, Set<String>> caseNames; // Cases each member selected
+    private final Set<String> allCaseNames = new HashSet<>();
+
+    /**
+     * @param members The executions, in queue order; they share platform and run settings.
+     * @param union Suite holding every case any member selected, each once.
+     * @param caseNames Names of the cases each member selected.
+     */
+    CoalescedExecution(List<TestExecution> members, TestSuite union, Map<TestExecution, Set<String>> caseNames) {
+        super(describe(members), members.get(0).platform, union);
+        this.members = List.copyOf(members);
+        this.caseNames = caseNames;
+        for (Set<String> names : caseNames.values()) allCaseNames.addAll(names);
+        TestExecution first = members.get(0);
+        setParallelism(first.getParallelism());
+        setWorkerJvms(first.getWorkerJvms());
+        setTimeoutMillis(first.getTimeoutMillis());
+        setPriority(members.stream().map(TestExecution::getPriority).min(Comparator.naturalOrder()).orElseThrow());
+    }
+
+    private static String describe(List<TestExecution> members) {
+        StringJoiner description = new StringJoiner(" + ");
+        for (TestExecution member : members) description.add(member.getDescription());
+        return description.toString();
+    }
+
+    // Each member gets the results of its own cases, streamed to its listeners while the run goes on.
+    ExecutionResults startResults() {
+        ExecutionResults run = super.startResults();
+        for (TestExecution member : members) run.addView(member.startResults(), caseNames.get(member));
+        return run;
+    }
+
+    // Every member reports the results of its own cases.
+    public void reportResults() {
+        for (TestExecution member : members) member.reportResults();
+    }
+
+    List<TestExecution> members() {
+        return members;
+    }
+
+    // Cases go to the members that selected them; suites and the run itself go to every member.
+    List<String> timedOutOf(TestExecution member, List<String> timedOut) {
+        List<String> own = new ArrayList<>();
+        for (String name : timedOut) {
+            if (name.equals(getDescription())) own.add(member.getDescription());
+            else if (!allCaseNames.contains(name) || caseNames.get(member).contains(name)) own.add(name);
+        }
+        return own;
+    }
+
+    // A member failed if one of its cases did, or if the run failed without any case failing; else it timed out if any of its cases or suites did.
+    String statusOf(TestExecution member, String status, List<String> timedOut) {
+        if (status.equals("PASSED")) return status;
+        ExecutionResults run = getResults(), own = member.getResults();
+        if (run == null || own == null) return status;
+        if (status.equals("FAILED") && (own.root().count(TestStatus.FAILED) > 0 || run.root().count(TestStatus.FAILED) == 0)) return status;
+        return !timedOut.isEmpty() || own.root().count(TestStatus.TIMED_OUT) > 0 ? "TIMED_OUT" : "PASSED";
+    }
+}
+
+/**
+ * Merges pending executions that would run the same test cases. Two executions overlap when they target
+ * the same platform with the same parallelism, worker JVMs and deadline, and their tag selections share
+ * at least one case, identified by name; overlap is transitive. Executions that overlap nothing, and
+ * executions selecting no case at all, are returned unchanged.
+ */
+class ExecutionCoalescer {
+    private ExecutionCoalescer() {}
+
+    // Executions with the same key may share a run.
+    private record Key(String platform, int parallelism, int workerJvms, long timeoutMillis) {
+        static Key of(TestExecution execution) {
+            return new Key(execution.platform, execution.getParallelism(), execution.getWorkerJvms(), execution.getTimeoutMillis());
+        }
+    }
+
+    // Executions found to overlap and the cases they select together.
+    private static final class Group {
+        final List<TestExecution> members = new ArrayList<>();
+        final Set<String> names = new HashSet<>();
+    }
+
+    /**
+     * Coalesces overlapping executions.
+     * @param executions The executions, most urgent first.
+     * @return The executions to run: each group of overlapping ones replaced by a CoalescedExecution at the
+     *         position of its first member, the others unchanged.
+     */
+    public static List<TestExecution> coalesce(List<TestExecution> executions) {
+        Map<TestExecution, Set<String>> selected = new HashMap<>();
+        Map<Key, List<Group>> groupsByKey = new HashMap<>();
+        List<Object> order = new ArrayList<>(); // Executions and groups, by first appearance
+        for (TestExecution execution : executions) {
+            Set<String> names = caseNames(execution);
+            if (names.isEmpty()) {
+                order.add(execution);
+                continue;
+            }
+            selected.put(execution, names);
+            List<Group> groups = groupsByKey.computeIfAbsent(Key.of(execution), k -> new ArrayList<>());
+            Group merged = null;
+            for (Iterator<Group> it = groups.iterator(); it.hasNext(); ) {
+                Group group = it.next();
+                if (Collections.disjoint(group.names, names)) continue;
+                if (merged == null) {
+                    merged = group;
+                } else { // Overlaps two groups: they become one
+                    merged.members.addAll(group.members);
+                    merged.names.addAll(group.names);
+                    order.remove(group);
+                    it.remove();
+                }
+            }
+            if (merged == null) {
+                merged = new Group();
+                groups.add(merged);
+                order.add(merged);
+            }
+            merged.members.add(execution);
+            merged.names.addAll(names);
+        }
+
+        List<TestExecution> result = new ArrayList<>();
+        for (Object entry : order) {
+            if (entry instanceof TestExecution execution) {
+                result.add(execution);
+                continue;
+            }
+            Group group = (Group) entry;
+            if (group.members.size() == 1) {
+                result.add(group.members.get(0));
+                continue;
+            }
+            group.members.sort(Comparator.comparingInt(executions::indexOf)); // Merging may have mixed the order
+            Map<TestExecution, Set<String>> memberNames = new HashMap<>();
+            for (TestExecution member : group.members) memberNames.put(member, selected.get(member));
+            CoalescedExecution coalesced = new CoalescedExecution(group.members, union(group.members), memberNames);
+            AsyncOutputWriter.getInstance().emit("Scheduler", "Coalesced {} executions into one run of {} test case(s)",
+                    group.members.size(), group.names.size(), coalesced.getDescription());
+            result.add(coalesced);
+        }
+        return result;
+    }
+
+    // Names of the cases the execution's tag filter selects.
+    private static Set<String> caseNames(TestExecution execution) {
+        TagIndex index = execution.getSuite().getTagIndex();
+        BitSet selection = selection(execution, index);
+        Set<String> names = new HashSet<>();
+        for (int leaf = selection.nextSetBit(0); leaf >= 0; leaf = selection.nextSetBit(leaf + 1)) names.add(index.leaf(leaf).getName());
+        return names;
+    }
+
+    private static BitSet selection(TestExecution execution, TagIndex index) {
+        String filter = execution.effectiveTagFilter();
+        if (filter != null) return index.select(filter);
+        BitSet all = new BitSet();
+        all.set(0, index.size());
+        return all;
+    }
+
+    // Suite of every selected case, each once: the largest selection whole, then what the others add to it.
+    private static TestSuite union(List<TestExecution> members) {
+        List<TestExecution> bySize = new ArrayList<>(members);
+        bySize.sort(Comparator.comparingInt((TestExecution e) -> selection(e, e.getSuite().getTagIndex()).cardinality()).reversed());
+        Set<String> covered = new HashSet<>();
+        List<TestSuite> parts = new ArrayList<>();
+        for (TestExecution member : bySize) {
+            TagIndex index = member.getSuite().getTagIndex();
+            BitSet selection = selection(member, index);
+            for (int leaf = selection.nextSetBit(0); leaf >= 0; leaf = selection.nextSetBit(leaf + 1)) {
+                if (!covered.add(index.leaf(leaf).getName())) selection.clear(leaf);
+            }
+            if (!selection.isEmpty()) parts.add(index.materialize(selection));
+        }
+        if (parts.size() == 1) return parts.get(0);
+        return TestSuite.combine(members.get(0).platform + " Coalesced Test Suite", parts.toArray(new TestSuite[0]));
+    }
+}
@@ -8,10 +8,16 @@
  *
  */
 package test_frame;
-import java.util.List;
-import java.util.ArrayList;
-
-import static java.lang.Thread.sleep; // instead of Thread.sleep(), this static method is used due to readability and short-style
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 
 /**
  * Command interface for executing encapsulated actions.
@@ -19,46 +25,146 @@ import static java.lang.Thread.sleep; // instead of Thread.sleep(), this static
  */
 interface Command {
     void execute();// Executes the Command
+
+    // Commands that must complete successfully before this one may start.
+    default List<Command> dependsOn() {
+        return List.of();
+    }
+
+    // Commands this one starts after whether they succeeded or not; they only order the graph.
+    default List<Command> runsAfter() {
+        return List.of();
+    }
 }
 
-// Once executed, it simulates committing code and notifies the TestManager.
+/**
+ * Simulates committing code and notifies the TestManager once the check-in is complete.
+ * The check-in runs in the background: executeAsync() returns at once, so the caller is not frozen
+ * for the duration of the commit. Check-ins pipeline: a new one starts committing right away, even
+ * while an earlier check-in or the tests it released are still running, and check-ins complete in the
+ * order they were started, so the fingerprints follow the commit order.
+ */
 class SourceCodeCheckInCommand implements Command {
+    static final long COMMIT_MILLIS = 2000; // Simulated time taken -> check in source code
+
+    private static CompletableFuture<CheckInSnapshot> lastCheckIn = CompletableFuture.completedFuture(null);
+
+    // Runs the check-in and waits for it, so commands depending on it start only afterwards.
     public void execute() {
-        try {
-            System.out.println("[Command] Committing source code to the repository...");
-            sleep (2000); // Simulate time taken -> check in source code
-            System.out.println("[Command] Source code check-in completed. Testing team may proceed.");
-            TestManager.setIsCheckedIn(true); // Flag check-in completion
+        executeAsync().join();
+    }
+
+    /**
+     * Starts the check-in without blocking.
+     * @return Future completed with the fingerprint of the checked-in code, once the TestManager was notified.
+     */
+    public CompletableFuture<CheckInSnapshot> executeAsync() {
+        AsyncOutputWriter.getInstance().emit("Command", "Committing source code to the repository...");
+        CompletableFuture<Void> commit = CompletableFuture.runAsync(() -> {},
+                CompletableFuture.delayedExecutor(COMMIT_MILLIS, TimeUnit.MILLISECONDS));
+        CompletableFuture<CheckInSnapshot> checkIn;
+        synchronized (SourceCodeCheckInCommand.class) {
+            // Completes after the previous check-in, whether that one succeeded or not.
+            checkIn = lastCheckIn.handle((previous, failure) -> null)
+                    .thenCombine(commit, (previous, committed) -> complete());
+            lastCheckIn = checkIn;
         }
-        catch (Exception e) {
-            System.out.println("[Command] Error during source code check-in: " + e.getMessage());
+        checkIn.whenComplete((snapshot, failure) -> {
+            if (failure != null) {
+                Throwable cause = failure instanceof CompletionException ? failure.getCause() : failure;
+                AsyncOutputWriter.getInstance().emit("Command", "Error during source code check-in", cause.getMessage());
+            }
+        });
+        return checkIn;
+    }
+
+    private static CheckInSnapshot complete() {
+        try {
+            CheckInSnapshot snapshot = ChangeTracker.getInstance().recordCheckIn();
+            AsyncOutputWriter.getInstance().emit("Command", "Source code check-in completed. Testing team may proceed.");
+            AsyncOutputWriter.getInstance().emit("Command", "Check-in fingerprint", snapshot.fingerprint());
+            TestManager.setIsCheckedIn(true); // Flag check-in completion; releases the executions waiting for it
+            return snapshot;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
     }
 }
 
 class TestExecutionCommand implements Command {
     private final TestExecution execution;
+    private final List<Command> dependencies;
+    private final List<Command> predecessors;
 
     public TestExecutionCommand(TestExecution execution) {
+        this(execution, null);
+    }
+
+    /**
+     * Constructs a command that may only run once the source code has been checked in.
+     * @param execution The test execution to run.
+     * @param checkIn The check-in command to wait for, or null if there is none.
+     */
+    public TestExecutionCommand(TestExecution execution, Command checkIn) {
+        this(execution, checkIn, null);
+    }
+
+    /**
+     * Constructs a command that runs in a lane of a planned cycle.
+     * @param execution The test execution to run.
+     * @param checkIn The check-in command to wait for, or null if there is none.
+     * @param previous The command running before it in its lane, or null if it is the first.
+     */
+    public TestExecutionCommand(TestExecution execution, Command checkIn, Command previous) {
         this.execution = execution;
+        this.dependencies = checkIn == null ? List.of() : List.of(checkIn);
+        this.predecessors = previous == null ? List.of() : List.of(previous);
+    }
+
+    public List<Command> dependsOn() {
+        return dependencies;
+    }
+
+    public List<Command> runsAfter() {
+        return predecessors;
     }
 
-    // Executes the test by triggering the TestManager.
+    // Executes the test by triggering the TestManager; waits while the execution is held for a check-in.
     public void execute() {
-        TestManager.getInstance().startTestingCycle(execution);
+        TestManager.getInstance().submitTestingCycle(execution).join();
     }
 }
 
 // Represents a command to generate a test execution report.
 class ReportingCommand implements Command {
+    // Shared by every ReportingCommand, so an execution reported each cycle streams its partial reports once.
+    private static final Consumer<ExecutionResults> PARTIAL_REPORT = results -> results.reportPartial(AsyncOutputWriter.getInstance());
+
     private final TestExecution execution;
+    private final List<Command> dependencies;
 
     /**
      * Constructs a ReportingCommand for a specific test execution.
      * @param execution The test execution whose results will be reported.
      */
     public ReportingCommand(TestExecution execution) {
+        this(execution, null);
+    }
+
+    /**
+     * Constructs a ReportingCommand that waits for the command running its execution, streaming partial
+     * reports of the counts so far while the execution runs.
+     * @param execution The test execution whose results will be reported.
+     * @param executionCommand The command that runs the execution, or null if there is none.
+     */
+    public ReportingCommand(TestExecution execution, Command executionCommand) {
         this.execution = execution;
+        this.dependencies = executionCommand == null ? List.of() : List.of(executionCommand);
+        execution.addReportListener(PARTIAL_REPORT);
+    }
+
+    public List<Command> dependsOn() {
+        return dependencies;
     }
 
     // Executes the reporting process.
@@ -67,21 +173,117 @@ class ReportingCommand implements Command {
     }
 }
 
-// The invoker class responsible for storing and executing a list of commands.
+/**
+ * The invoker class responsible for storing and executing a graph of commands.
+ * Commands declare what they depend on; executeAll() starts every command as soon as its
+ * dependencies have completed, so independent commands run at the same time. If a command
+ * fails, every command that depends on it is skipped and reported with the original cause;
+ * commands that merely run after it still start.
+ */
 class TestInvoker {
-    private final List<Command> commands = new ArrayList<>();
+    private static final ExecutorService executor = newCommandExecutor();
+
+    private final Set<Command> commands = new LinkedHashSet<>();
+
+    // Runs commands on virtual threads when the runtime offers them, otherwise on a cached daemon pool.
+    private static ExecutorService newCommandExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return Executors.newCachedThreadPool(CronSchedulingEngine.daemonThreads("command"));
+        }
+    }
 
     /**
-     * Adds a command to the command queue.
+     * Adds a command, together with any of its dependencies that were not added yet.
      * @param c The command to be added.
-     */    public void addCommand(Command c) {
-        commands.add(c);
+     * @throws IllegalArgumentException If the dependencies form a cycle.
+     */
+    public void addCommand(Command c) {
+        addCommand(c, new HashSet<>());
+    }
+
+    private void addCommand(Command c, Set<Command> visiting) {
+        if (commands.contains(c)) return;
+        if (!visiting.add(c)) throw new IllegalArgumentException("Command dependencies form a cycle at " + name(c));
+        for (Command dependency : c.dependsOn()) addCommand(dependency, visiting);
+        for (Command predecessor : c.runsAfter()) addCommand(predecessor, visiting);
+        commands.add(c); // Dependencies are always added first
+    }
+
+    /**
+     * Builds the command graph for a testing cycle: an optional check-in that every execution waits for,
+     * and for each execution a test command followed by its own reporting command. The lanes of the plan
+     * run at the same time; the executions of one lane run one after the other, in the planned order.
+     * @param plan The executions to run, packed onto lanes.
+     * @param checkIn A check-in command to run first, or null if the code is already checked in.
+     * @return An invoker ready to execute the cycle.
+     */
+    public static TestInvoker forCycle(CyclePlan plan, Command checkIn) {
+        TestInvoker invoker = new TestInvoker();
+        if (checkIn != null) invoker.addCommand(checkIn);
+        for (List<TestExecution> lane : plan.lanes()) {
+            Command previous = null;
+            for (TestExecution execution : lane) {
+                Command run = new TestExecutionCommand(execution, checkIn, previous);
+                invoker.addCommand(run);
+                invoker.addCommand(new ReportingCommand(execution, run));
+                previous = run;
+            }
+        }
+        return invoker;
+    }
+
+    /**
+     * Executes the command graph with as much concurrency as the dependencies allow and waits for it to finish.
+     * @return true if every command completed successfully.
+     */
+    public boolean executeAll() {
+        return executeAllAsync().join();
     }
 
-    public void executeAll() {
-        for (Command c : commands) c.execute();
-    } //Executes each command in the queue
+    /**
+     * Starts the command graph without waiting for it.
+     * @return Future completed with true if every command completed successfully, once all have finished.
+     */
+    public CompletableFuture<Boolean> executeAllAsync() {
+        Map<Command, CompletableFuture<Void>> futures = new LinkedHashMap<>();
+        Map<Command, Throwable> failures = new ConcurrentHashMap<>();
+        for (Command c : commands) {
+            List<CompletableFuture<?>> before = new ArrayList<>();
+            for (Command dependency : c.dependsOn()) before.add(futures.get(dependency));
+            for (Command predecessor : c.runsAfter()) before.add(futures.get(predecessor).handle((ignored, failure) -> null));
+            futures.put(c, CompletableFuture.allOf(before.toArray(CompletableFuture[]::new)).thenRunAsync(() -> {
+                try {
+                    c.execute();
+                } catch (RuntimeException e) {
+                    failures.put(c, e);
+                    throw e;
+                }
+            }, executor));
+        }
+        return CompletableFuture.allOf(futures.values().toArray(CompletableFuture[]::new))
+                .handle((ignored, failure) -> report(futures, failures));
+    }
 
+    // Reports every failed or skipped command once the whole graph has finished.
+    private static boolean report(Map<Command, CompletableFuture<Void>> futures, Map<Command, Throwable> failures) {
+        boolean succeeded = true;
+        for (Map.Entry<Command, CompletableFuture<Void>> entry : futures.entrySet()) {
+            try {
+                entry.getValue().join();
+            } catch (CompletionException e) {
+                succeeded = false;
+                Throwable failure = failures.get(entry.getKey());
+                AsyncOutputWriter console = AsyncOutputWriter.getInstance();
+                if (failure != null) console.emit("Invoker", "{} failed", name(entry.getKey()), failure);
+                else console.emit("Invoker", "{} skipped, a dependency failed", name(entry.getKey()), e.getCause());
+            }
+        }
+        return succeeded;
+    }
 
+    private static String name(Command c) {
+        return c.getClass().getSimpleName();
+    }
 }
-
@@ -0,0 +1,301 @@
+/**
+ *Project: Testing Framework System
+ *
+ *@author Taha Yasir Colak
+ *@author Aykan Berk Ayvazoglu
+ *@author Cankat Caglar Acarer
+ *@author Bartu Nurgun
+ *
+ */
+package test_frame;
+
+import java.util.*;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Append-only table of strings packed into one char array, addressed by int ids.
+ * Each string costs its characters plus one int, instead of a String object with its own array.
+ * Strings are never removed, so the table is meant for names that live as long as their suite.
+ */
+class PackedStringTable {
+    static final PackedStringTable SHARED = new PackedStringTable(); // Names of every compact suite
+
+    private char[] chars = new char[1024];
+    private int[] ends = new int[64]; // End offset in chars of each string; it starts where the previous one ends
+    private int count;
+
+    /**
+     * @param value The string to store.
+     * @return Its id.
+     */
+    public synchronized int add(String value) {
+        int start = count == 0 ? 0 : ends[count - 1];
+        int end = start + value.length();
+        if (end > chars.length) chars = Arrays.copyOf(chars, Math.max(end, chars.length * 2));
+        if (count == ends.length) ends = Arrays.copyOf(ends, count * 2);
+        value.getChars(0, value.length(), chars, start);
+        ends[count] = end;
+        return count++;
+    }
+
+    // A new String for the id; the caller may drop it once used.
+    public synchronized String get(int id) {
+        int start = id == 0 ? 0 : ends[id - 1];
+        return new String(chars, start, ends[id] - start);
+    }
+
+    public synchronized int size() {
+        return count;
+    }
+}
+
+// The work of a generated test case, given its number within its range or list.
+interface CaseBody {
+    void run(int index, OutputSink out);
+}
+
+// A test case materialized from a CompactTestSuite for one visit; dropped once it has run.
+class GeneratedTestCase extends TestCase {
+    private final int index;
+    private final CaseBody body;
+    private final String histogramName;
+
+    GeneratedTestCase(String name, List<String> inputs, int index, CaseBody body, String histogramName) {
+        super(name, inputs);
+        this.index = index;
+        this.body = body;
+        this.histogramName = histogramName;
+    }
+
+    void run(OutputSink out) {
+        if (body != null) body.run(index, out);
+    }
+
+    boolean hasBody() {
+        return body != null;
+    }
+
+    // Every case of a range shares one histogram, so a million cases do not make a million histograms.
+    String histogramName() {
+        return histogramName;
+    }
+
+    TestCase withTags(String... labels) {
+        TestCase copy = new GeneratedTestCase(getName(), getInputs(), index, body, histogramName);
+        copy.timeout(getTimeoutMillis());
+        copy.tag(getTags().toArray(new String[0]));
+        copy.tag(labels);
+        return copy;
+    }
+}
+
+/**
+ * Suite of generated test cases for very large, parameterized suites. Instead of a list of TestCase
+ * objects it holds a few blocks: ranges whose case names follow a pattern, e.g. "Login user {}" for
+ * users 1 to 1000000, and lists of names kept in the shared PackedStringTable. A TestCase is only
+ * materialized when it is visited and is dropped afterwards, so memory does not grow with the number
+ * of cases. Selections (tags, incremental runs) are views sharing the blocks, with a bitmap of the
+ * positions they keep. Nested suites go in an ordinary TestSuite around compact ones.
+ */
+class CompactTestSuite extends TestSuite {
+    // Consecutive positions of the suite, creating the case at an offset within the block.
+    private interface Block {
+        int size();
+
+        TestCase create(int offset);
+    }
+
+    private record Range(String pattern, int first, int size, CaseBody body, List<String> inputs) implements Block {
+        public TestCase create(int offset) {
+            int number = first + offset;
+            return new GeneratedTestCase(pattern.replace("{}", Integer.toString(number)), inputs, number, body, pattern);
+        }
+    }
+
+    private record Names(int[] ids, CaseBody body, List<String> inputs, String histogramName) implements Block {
+        public int size() {
+            return ids.length;
+        }
+
+        public TestCase create(int offset) {
+            return new GeneratedTestCase(PackedStringTable.SHARED.get(ids[offset]), inputs, offset, body, histogramName);
+        }
+    }
+
+    private record Fixed(TestCase testCase) implements Block {
+        public int size() {
+            return 1;
+        }
+
+        public TestCase create(int offset) {
+            return testCase;
+        }
+    }
+
+    private List<Block> blocks = new ArrayList<>(); // Shared with copies until the next add
+    private int[] starts = new int[0]; // First position of each block
+    private int span;                  // Positions over every block
+    private BitSet mask;               // Positions kept by a selection view; null keeps all
+    private int size = -1;             // Number of kept positions, computed on demand
+
+    public CompactTestSuite(String description) {
+        super(description);
+    }
+
+    /**
+     * Adds cases named after a pattern, numbered first, first + 1, ...
+     * @param pattern Case name, in which "{}" is replaced by the number, e.g. "Login user {}".
+     * @param first Number of the first case.
+     * @param count Number of cases.
+     * @param body Work of each case, given its number; null for none.
+     * @param inputs Input globs shared by the cases, see TestCase.
+     * @return This suite.
+     */
+    public CompactTestSuite addRange(String pattern, int first, int count, CaseBody body, String... inputs) {
+        if (count < 0) throw new IllegalArgumentException("Negative case count " + count);
+        return append(new Range(pattern.intern(), first, count, body, List.of(inputs)));
+    }
+
+    /**
+     * Adds cases with the given names, stored in the shared string table.
+     * @param names Case names, in order.
+     * @param body Work of each case, given its index in the list; null for none.
+     * @param inputs Input globs shared by the cases, see TestCase.
+     * @return This suite.
+     */
+    public CompactTestSuite addCases(Collection<String> names, CaseBody body, String... inputs) {
+        int[] ids = new int[names.size()];
+        int i = 0;
+        for (String name : names) ids[i++] = PackedStringTable.SHARED.add(name);
+        return append(new Names(ids, body, List.of(inputs), getDescription()));
+    }
+
+    // Adds a single case as it is; nested suites do not belong in a compact suite.
+    public void add(TestComponent test) {
+        if (!(test instanceof TestCase testCase)) throw new UnsupportedOperationException("A compact suite holds test cases only, nest it in a TestSuite instead");
+        append(new Fixed(testCase));
+    }
+
+    private CompactTestSuite append(Block block) {
+        if (isFrozen()) throw new UnsupportedOperationException("Suite template '" + getDescription() + "' is shared, add to a mutableCopy()");
+        if (mask != null) throw new UnsupportedOperationException("Cannot add to a selection of '" + getDescription() + "'");
+        blocks = new ArrayList<>(blocks); // Copies may share the old list
+        blocks.add(block);
+        starts = Arrays.copyOf(starts, starts.length + 1);
+        starts[starts.length - 1] = span;
+        span = Math.addExact(span, block.size());
+        size = -1;
+        childrenChanged();
+        return this;
+    }
+
+    public int size() {
+        if (size < 0) size = mask == null ? span : mask.cardinality();
+        return size;
+    }
+
+    // Number of positions, including the ones a selection view leaves out.
+    int span() {
+        return span;
+    }
+
+    TestComponent child(int position) {
+        if (position < 0 || position >= span) throw new IndexOutOfBoundsException(position);
+        int block = Arrays.binarySearch(starts, position);
+        if (block < 0) block = -block - 2; // Last block starting before the position
+        while (block + 1 < starts.length && starts[block + 1] == position) block++; // Skip empty blocks
+        return blocks.get(block).create(position - starts[block]);
+    }
+
+    void forEachChild(ObjIntConsumer<TestComponent> visitor) {
+        for (int p = nextKept(0, span); p < span; p = nextKept(p + 1, span)) visitor.accept(child(p), p);
+    }
+
+    public Iterator<TestComponent> iterator() {
+        return iterator(0, span);
+    }
+
+    /**
+     * Materializes the kept cases between two positions, one per call to next().
+     * @param from First position.
+     * @param to Position after the last.
+     */
+    Iterator<TestComponent> iterator(int from, int to) {
+        return new Iterator<>() {
+            private int position = nextKept(from, to);
+
+            public boolean hasNext() {
+                return position < to;
+            }
+
+            public TestComponent next() {
+                if (position >= to) throw new NoSuchElementException();
+                TestComponent child = child(position);
+                position = nextKept(position + 1, to);
+                return child;
+            }
+        };
+    }
+
+    // First kept position at or after the given one, or the limit if there is none before it.
+    private int nextKept(int position, int limit) {
+        if (mask == null) return Math.min(position, limit);
+        int next = mask.nextSetBit(position);
+        return next < 0 || next >= limit ? limit : next;
+    }
+
+    // Empty view over the same blocks.
+    TestSuite selectionCopy() {
+        CompactTestSuite copy = view(new BitSet());
+        copy.timeout(getTimeoutMillis());
+        return copy;
+    }
+
+    void keep(TestSuite source, int position) {
+        mask.set(position);
+        size = -1;
+    }
+
+    private CompactTestSuite view(BitSet positions) {
+        CompactTestSuite copy = new CompactTestSuite(getDescription());
+        copy.blocks = blocks;
+        copy.starts = starts;
+        copy.span = span;
+        copy.mask = positions;
+        return copy;
+    }
+
+    public CompactTestSuite freeze() {
+        super.freeze();
+        return this;
+    }
+
+    // Shares the blocks, which are never changed in place; adding copies the list of blocks only.
+    public CompactTestSuite mutableCopy() {
+        CompactTestSuite copy = view(mask == null ? null : (BitSet) mask.clone());
+        copy.tag(getTags().toArray(new String[0]));
+        copy.timeout(getTimeoutMillis());
+        return copy;
+    }
+
+    // Read-only view; each access materializes the case again.
+    public List<TestComponent> getTests() {
+        return new AbstractList<>() {
+            public TestComponent get(int index) {
+                if (index < 0 || index >= size()) throw new IndexOutOfBoundsException(index);
+                if (mask == null) return child(index);
+                int position = mask.nextSetBit(0);
+                for (int i = 0; i < index; i++) position = mask.nextSetBit(position + 1);
+                return child(position);
+            }
+
+            public Iterator<TestComponent> iterator() {
+                return CompactTestSuite.this.iterator();
+            }
+
+            public int size() {
+                return CompactTestSuite.this.size();
+            }
+        };
+    }
+}
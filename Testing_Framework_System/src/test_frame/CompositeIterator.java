@@ -10,39 +10,263 @@
 package test_frame;
 
 import java.util.*;
+import java.util.function.ObjIntConsumer;
 
 abstract class TestComponent {
+    private Set<String> tags = Set.of(); // Platform, GUI/Network and custom labels; suites pass theirs on to their cases
+    private long timeoutMillis = -1; // Own deadline; -1 uses the Watchdog's default for the kind of component
+
     public void add(TestComponent test) {}
-    public abstract void execute();
+
+    /**
+     * Adds tags to the component, used by tag expressions such as "gui & !slow".
+     * @param labels Tags, matched case-insensitively.
+     * @return This component.
+     */
+    public TestComponent tag(String... labels) {
+        Set<String> merged = new HashSet<>(tags);
+        for (String label : labels) merged.add(normalizeTag(label));
+        tags = Set.copyOf(merged);
+        return this;
+    }
+
+    public Set<String> getTags() {
+        return tags;
+    }
+
+    /**
+     * Sets the component's own deadline, enforced by the Watchdog.
+     * @param millis Deadline in milliseconds, 0 for none, or -1 for the configured default.
+     * @return This component.
+     */
+    public TestComponent timeout(long millis) {
+        timeoutMillis = millis;
+        return this;
+    }
+
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    static String normalizeTag(String tag) {
+        return tag.trim().toLowerCase().intern();
+    }
+
+    // Executes the component under its deadline; its lines reach the console together once it has finished.
+    public TestResult execute() {
+        AsyncOutputWriter console = AsyncOutputWriter.getInstance();
+        OutputBatch batch = console.batch();
+        try {
+            return Watchdog.getInstance().execute(this, batch);
+        } finally {
+            console.append(batch);
+        }
+    }
+
+    // Executes the component, emitting its progress lines to the given sink.
+    public abstract void execute(OutputSink out);
 }
 
 class TestCase extends TestComponent {
     private final String name;
+    private final List<String> inputs;
+    private LatencyHistogram latency; // Resolved on first run, so later runs record without a map lookup
+
+    /**
+     * @param name Name of the test case.
+     * @param inputs Globs, relative to the source root, of the files the case depends on; none, or none matching a file, means every file.
+     */
+    public TestCase(String name, String... inputs) {
+        this(name.intern(), List.of(inputs)); // Templates and copies share one instance of each name
+    }
 
-    public TestCase(String name) {
+    // For generated cases, which are dropped once visited: the name is not interned.
+    TestCase(String name, List<String> inputs) {
         this.name = name;
+        this.inputs = inputs;
     }
 
-    public void execute() {
-        System.out.println("[TestCase] Executing: " + name);
+    public void execute(OutputSink out) {
+        long start = System.nanoTime();
+        MetricsRegistry.getInstance().caseStarted();
+        out.emit("TestCase", "Executing", name);
+        run(out);
+        latency().record(System.nanoTime() - start);
+    }
+
+    // The work of the case; the simulated cases have none.
+    void run(OutputSink out) {}
+
+    // Whether run() does any work; a case that does cannot be rebuilt from its name and inputs, e.g. in a worker JVM.
+    boolean hasBody() {
+        return false;
+    }
+
+    private LatencyHistogram latency() {
+        if (latency == null) latency = MetricsRegistry.getInstance().caseHistogram(histogramName());
+        return latency;
+    }
+
+    // Name its durations are recorded under; generated cases share the one of their range.
+    String histogramName() {
+        return name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<String> getInputs() {
+        return inputs;
+    }
+
+    // Copy of this case with extra tags, for combining templates without changing them.
+    TestCase withTags(String... labels) {
+        TestCase copy = new TestCase(name, inputs.toArray(new String[0]));
+        copy.timeout(getTimeoutMillis());
+        copy.tag(getTags().toArray(new String[0]));
+        copy.tag(labels);
+        return copy;
     }
 }
 
+/**
+ * Composite of test cases and nested suites.
+ * A suite can be frozen into an immutable template that is shared by every execution planned with it;
+ * an execution that needs changes takes a mutableCopy(), which borrows the template's children and
+ * only copies the list on its first add.
+ */
 class TestSuite extends TestComponent implements Iterable<TestComponent> {
     private final String description;
-    private final List<TestComponent> tests = new ArrayList<>();
+    private List<TestComponent> tests;
+    private boolean frozen;      // Shared template, never changes again
+    private boolean borrowed;    // Children list belongs to a template until the first add
+    private LatencyHistogram latency;
+    private TagIndex tagIndex;   // Built on first use; dropped when the suite changes
 
     public TestSuite(String description) {
+        this.description = description.intern();
+        this.tests = new ArrayList<>();
+    }
+
+    private TestSuite(String description, List<TestComponent> borrowedTests) {
         this.description = description;
+        this.tests = borrowedTests;
+        this.borrowed = true;
     }
 
     public void add(TestComponent test) {
+        if (frozen) throw new UnsupportedOperationException("Suite template '" + description + "' is shared, add to a mutableCopy()");
+        if (borrowed) {
+            tests = new ArrayList<>(tests);
+            borrowed = false;
+        }
         tests.add(test);
+        childrenChanged();
+    }
+
+    // Drops the tag index, which no longer matches the children.
+    void childrenChanged() {
+        tagIndex = null;
+    }
+
+    // Number of children.
+    public int size() {
+        return tests.size();
+    }
+
+    // The child at a position, as passed to forEachChild.
+    TestComponent child(int position) {
+        return tests.get(position);
+    }
+
+    // Visits the children in order with their positions.
+    void forEachChild(ObjIntConsumer<TestComponent> visitor) {
+        for (int i = 0; i < tests.size(); i++) visitor.accept(tests.get(i), i);
+    }
+
+    // Empty suite of the same kind, description and deadline, to keep() a selection of the children in.
+    TestSuite selectionCopy() {
+        TestSuite copy = new TestSuite(description);
+        copy.timeout(getTimeoutMillis());
+        return copy;
+    }
+
+    // Adds the child at a position of the suite this one is a selectionCopy() of; children must be kept in order.
+    void keep(TestSuite source, int position) {
+        add(source.child(position));
+    }
+
+    public TestComponent tag(String... labels) {
+        if (frozen) throw new UnsupportedOperationException("Suite template '" + description + "' is shared, tag a mutableCopy()");
+        tagIndex = null;
+        return super.tag(labels);
     }
 
-    public void execute() {
-        System.out.println("[TestSuite] Executing: " + description);
-        for (TestComponent test : tests) test.execute();
+    public TestComponent timeout(long millis) {
+        if (frozen) throw new UnsupportedOperationException("Suite template '" + description + "' is shared, set the timeout of a mutableCopy()");
+        return super.timeout(millis);
+    }
+
+    // Bitmap index of the cases of this tree by tag; built once, so a frozen template is indexed only once.
+    public synchronized TagIndex getTagIndex() {
+        if (tagIndex == null) tagIndex = new TagIndex(this);
+        return tagIndex;
+    }
+
+    /**
+     * Makes this suite and every nested suite immutable, so it can be shared as a template.
+     * @return This suite.
+     */
+    public TestSuite freeze() {
+        if (frozen) return this;
+        for (TestComponent test : tests) if (test instanceof TestSuite suite) suite.freeze();
+        tests = List.copyOf(tests);
+        frozen = true;
+        borrowed = false;
+        return this;
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    // Copy-on-write view: shares the children of a frozen suite until something is added to it.
+    public TestSuite mutableCopy() {
+        TestSuite copy = new TestSuite(description, frozen ? tests : List.copyOf(tests));
+        copy.tag(getTags().toArray(new String[0]));
+        copy.timeout(getTimeoutMillis());
+        return copy;
+    }
+
+    /**
+     * Builds a frozen suite holding the children of every given suite, in order.
+     * @param description Description of the combined suite.
+     * @param parts Suites whose children are combined; nested suites are shared, not copied.
+     * @return The combined template.
+     */
+    public static TestSuite combine(String description, TestSuite... parts) {
+        TestSuite combined = new TestSuite(description);
+        for (TestSuite part : parts) {
+            // The children leave their suite, so they carry its tags with them.
+            for (TestComponent test : part) combined.add(part.getTags().isEmpty() ? test : tagged(test, part.getTags()));
+        }
+        return combined.freeze();
+    }
+
+    // Runs the children in order, each under its own deadline; stops early if this suite is cancelled.
+    public void execute(OutputSink out) {
+        long start = System.nanoTime();
+        out.emit("TestSuite", "Executing", description);
+        Watchdog watchdog = Watchdog.getInstance();
+        for (TestComponent test : this) watchdog.execute(test, out);
+        latency().record(System.nanoTime() - start);
+    }
+
+    // Histogram of this suite's run time, also used by the parallel runner.
+    LatencyHistogram latency() {
+        if (latency == null) latency = MetricsRegistry.getInstance().suiteHistogram(description);
+        return latency;
     }
 
     public Iterator<TestComponent> iterator() {
@@ -53,6 +277,15 @@ class TestSuite extends TestComponent implements Iterable<TestComponent> {
         return description;
     }
 
+    // The component with extra tags; templates are wrapped in a copy instead of being changed.
+    private static TestComponent tagged(TestComponent test, Set<String> extra) {
+        String[] labels = extra.toArray(new String[0]);
+        if (test instanceof TestSuite suite) return suite.isFrozen() ? suite.mutableCopy().tag(labels) : suite.tag(labels);
+        if (test instanceof TestCase testCase) return testCase.withTags(labels);
+        return test;
+    }
+
+    // Unmodifiable for frozen and borrowing suites.
     public List<TestComponent> getTests() {
         return tests;
     }
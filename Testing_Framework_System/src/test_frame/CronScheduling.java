@@ -0,0 +1,231 @@
+/**
+ *Project: Testing Framework System
+ *
+ *@author Taha Yasir Colak
+ *@author Aykan Berk Ayvazoglu
+ *@author Cankat Caglar Acarer
+ *@author Bartu Nurgun
+ *
+ */
+package test_frame;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Standard five-field cron expression: "minute hour day-of-month month day-of-week".
+ * Each field accepts *, single values, lists (1,3,5), ranges (1-5) and steps (0-30/10, or * followed by /15).
+ * Day-of-week runs from 0 to 7, where both 0 and 7 mean Sunday.
+ */
+class CronExpression {
+    static final String EVERY_MONDAY_9AM = "0 9 * * 1"; // The original weekly test run
+    static final CronExpression WEEKLY = parse(EVERY_MONDAY_9AM); // Immutable, shared by every default execution
+
+    private final String expression;
+    private final BitSet minutes;
+    private final BitSet hours;
+    private final BitSet daysOfMonth;
+    private final BitSet months;
+    private final BitSet daysOfWeek;
+    private final boolean dayOfMonthRestricted;
+    private final boolean dayOfWeekRestricted;
+
+    private CronExpression(String expression, String[] fields) {
+        this.expression = expression;
+        this.minutes = parseField(fields[0], 0, 59);
+        this.hours = parseField(fields[1], 0, 23);
+        this.daysOfMonth = parseField(fields[2], 1, 31);
+        this.months = parseField(fields[3], 1, 12);
+        this.daysOfWeek = parseField(fields[4], 0, 7);
+        if (daysOfWeek.get(7)) daysOfWeek.set(0);
+        this.dayOfMonthRestricted = !fields[2].equals("*");
+        this.dayOfWeekRestricted = !fields[4].equals("*");
+    }
+
+    /**
+     * Parses a cron expression.
+     * @param expression Five whitespace separated fields.
+     * @return The parsed expression.
+     * @throws IllegalArgumentException If the expression is malformed.
+     */
+    public static CronExpression parse(String expression) {
+        String[] fields = expression.trim().split("\\s+");
+        if (fields.length != 5) throw new IllegalArgumentException("Cron expression needs 5 fields: " + expression);
+        return new CronExpression(expression.trim(), fields);
+    }
+
+    private static BitSet parseField(String field, int min, int max) {
+        BitSet values = new BitSet(max + 1);
+        for (String part : field.split(",")) {
+            String range = part;
+            int step = 1;
+            int slash = part.indexOf('/');
+            if (slash >= 0) {
+                range = part.substring(0, slash);
+                step = Integer.parseInt(part.substring(slash + 1));
+                if (step < 1) throw new IllegalArgumentException("Invalid step in " + field);
+            }
+            int from, to;
+            if (range.equals("*")) {
+                from = min;
+                to = max;
+            } else if (range.contains("-")) {
+                String[] bounds = range.split("-", -1);
+                if (bounds.length != 2 || bounds[0].isEmpty() || bounds[1].isEmpty()) {
+                    throw new IllegalArgumentException("Invalid range in " + field);
+                }
+                from = Integer.parseInt(bounds[0]);
+                to = Integer.parseInt(bounds[1]);
+            } else {
+                from = Integer.parseInt(range);
+                to = slash >= 0 ? max : from;
+            }
+            if (from < min || to > max || from > to) throw new IllegalArgumentException("Value out of range in " + field);
+            for (int v = from; v <= to; v += step) values.set(v);
+        }
+        return values;
+    }
+
+    private boolean dayMatches(ZonedDateTime time) {
+        boolean dom = daysOfMonth.get(time.getDayOfMonth());
+        boolean dow = daysOfWeek.get(time.getDayOfWeek().getValue() % 7);
+        // As in cron, a restricted day-of-month and day-of-week match if either one does.
+        if (dayOfMonthRestricted && dayOfWeekRestricted) return dom || dow;
+        return dom && dow;
+    }
+
+    /**
+     * Finds the first matching minute strictly after the given time.
+     * @param after The reference time.
+     * @return The next fire time, or null if none exists within the next five years (e.g. 30 February).
+     */
+    public ZonedDateTime next(ZonedDateTime after) {
+        ZonedDateTime time = after.truncatedTo(ChronoUnit.MINUTES).plusMinutes(1);
+        ZonedDateTime limit = after.plusYears(5);
+        while (time.isBefore(limit)) {
+            if (!months.get(time.getMonthValue())) {
+                time = time.withDayOfMonth(1).truncatedTo(ChronoUnit.DAYS).plusMonths(1);
+            } else if (!dayMatches(time)) {
+                time = time.truncatedTo(ChronoUnit.DAYS).plusDays(1);
+            } else if (!hours.get(time.getHour())) {
+                time = time.truncatedTo(ChronoUnit.HOURS).plusHours(1);
+            } else if (!minutes.get(time.getMinute())) {
+                time = time.plusMinutes(1);
+            } else {
+                return time;
+            }
+        }
+        return null;
+    }
+
+    public String toString() {
+        return expression;
+    }
+}
+
+// What to do with an execution whose fire time passed while the scheduler was not running or was held up.
+enum CatchUpPolicy {
+    RUN_ONCE, // run it as soon as possible, once, however many fires were missed
+    SKIP      // wait for its next fire time
+}
+
+/**
+ * Cron-style scheduling engine that replaces the weekly java.util.Timer.
+ * A single ticker thread checks the pending executions of the TestScheduler, each against its own cron
+ * expression, and hands due executions to a bounded worker pool, so a slow suite does not hold up others.
+ * Every run is isolated: an exception in one execution is reported and the engine keeps going.
+ */
+class CronSchedulingEngine {
+    private static final long TICK_SECONDS = 10;
+    private static final long MISSED_AFTER_MILLIS = 60_000; // Fires older than this count as missed
+
+    private final TestManager manager;
+    private final CatchUpPolicy catchUpPolicy;
+    private final ZoneId zone = ZoneId.systemDefault();
+    private final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(daemonThreads("cron-ticker"));
+    private final ExecutorService workers;
+    private final Map<TestExecution, ZonedDateTime> nextFire = new ConcurrentHashMap<>();
+
+    /**
+     * @param manager Runs the testing cycle of each due execution.
+     * @param workerCount Maximum number of executions running at the same time.
+     * @param catchUpPolicy Handling of fire times that were missed.
+     */
+    public CronSchedulingEngine(TestManager manager, int workerCount, CatchUpPolicy catchUpPolicy) {
+        this.manager = manager;
+        this.catchUpPolicy = catchUpPolicy;
+        this.workers = Executors.newFixedThreadPool(Math.max(1, workerCount), daemonThreads("test-worker"));
+    }
+
+    static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    public void start() {
+        ticker.scheduleWithFixedDelay(this::tick, 0, TICK_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public void shutdown() {
+        ticker.shutdownNow();
+        workers.shutdown();
+    }
+
+    // Dispatches every pending execution whose fire time has come.
+    void tick() {
+        try {
+            ZonedDateTime now = ZonedDateTime.now(zone);
+            List<TestExecution> pending = TestScheduler.getInstance().getPendingExecutions();
+            nextFire.keySet().retainAll(new HashSet<>(pending)); // Forget executions that were cleared or run manually
+            List<TestExecution> due = new ArrayList<>();
+            for (TestExecution execution : pending) {
+                ZonedDateTime fire = nextFire.computeIfAbsent(execution, e ->
+                        e.getCron().next(ZonedDateTime.ofInstant(Instant.ofEpochMilli(e.getPlannedAt()), zone)));
+                if (fire == null || fire.isAfter(now)) continue;
+
+                boolean missed = ChronoUnit.MILLIS.between(fire, now) > MISSED_AFTER_MILLIS;
+                if (missed && catchUpPolicy == CatchUpPolicy.SKIP) {
+                    AsyncOutputWriter.getInstance().emit("Scheduler", "Missed fire at {} skipped for", fire, execution.getDescription());
+                    nextFire.put(execution, execution.getCron().next(now));
+                    continue;
+                }
+                // Only the caller that removes the execution runs it, so it cannot run twice.
+                if (!TestScheduler.getInstance().removeExecution(execution)) continue;
+                nextFire.remove(execution);
+                due.add(execution);
+            }
+            // Executions due together share their overlapping cases and are handed to the workers longest first.
+            CyclePlan plan = CyclePlan.of(ExecutionCoalescer.coalesce(due));
+            List<CompletableFuture<Void>> runs = new ArrayList<>();
+            for (TestExecution execution : plan.order()) runs.add(CompletableFuture.runAsync(() -> run(execution), workers));
+            plan.track(CompletableFuture.allOf(runs.toArray(new CompletableFuture[0])), System.nanoTime());
+        } catch (RuntimeException e) {
+            System.err.println("[Scheduler] Error while checking scheduled executions: " + e.getMessage());
+        }
+    }
+
+    // Holds the worker until the cycle is over, also while it waits for a check-in or a platform permit, so the pool bounds the executions running at once.
+    private void run(TestExecution execution) {
+        try {
+            AsyncOutputWriter.getInstance().emit("Scheduler", "Scheduled test run triggered for", execution.getDescription());
+            manager.submitTestingCycle(execution).join();
+        } catch (CompletionException e) {
+            System.err.println("[Scheduler] Execution failed: " + execution.getDescription() + " (" + e.getCause() + ")");
+        } catch (RuntimeException e) {
+            System.err.println("[Scheduler] Execution failed: " + execution.getDescription() + " (" + e + ")");
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/**
+ *Project: Testing Framework System
+ *
+ *@author Taha Yasir Colak
+ *@author Aykan Berk Ayvazoglu
+ *@author Cankat Caglar Acarer
+ *@author Bartu Nurgun
+ *
+ */
+package test_frame;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Kind of state change published by TestExecutionState.
+enum TestEventType {
+    CYCLE_COMPLETED, // the execution ran, passed and its result was logged
+    CYCLE_FAILED,    // the execution ran, a case or the run itself failed, and its result was logged
+    CYCLE_TIMED_OUT, // the execution ran, a case, suite or the run hit its deadline, and its result was logged
+    CYCLE_HELD;      // the execution waits for the source code to be checked in
+
+    // Type of the event for a cycle logged with the given status.
+    static TestEventType ofStatus(String status) {
+        return switch (status) {
+            case "FAILED" -> CYCLE_FAILED;
+            case "TIMED_OUT" -> CYCLE_TIMED_OUT;
+            default -> CYCLE_COMPLETED;
+        };
+    }
+}
+
+/**
+ * Typed payload delivered to observers instead of a bare state string.
+ * @param type What happened.
+ * @param executionId Id of the TestExecution the event is about.
+ * @param description Description of the execution.
+ * @param suite Description of the executed suite.
+ * @param outcome Short outcome of the cycle.
+ * @param timestamp Time the event was published, in epoch milliseconds.
+ */
+record TestEvent(TestEventType type, long executionId, String description, String suite, String outcome, long timestamp) {
+    public String toString() {
+        return type + " #" + executionId + " " + description + " [" + suite + "] " + outcome;
+    }
+}
+
+// What publishing does when an observer's buffer is full.
+enum OverflowPolicy {
+    BLOCK,       // wait until the observer has caught up
+    DROP_OLDEST, // discard the oldest undelivered event
+    COALESCE     // replace an undelivered event of the same execution, otherwise drop the oldest
+}
+
+/**
+ * Bounded ring buffer of events for one observer, drained by the observer's own delivery thread.
+ * Publishing only copies the event into the buffer, so a slow observer never stalls the thread
+ * that ran the test cycle; what happens once the buffer is full is decided by the overflow policy.
+ */
+class ObserverSubscription {
+    private final Observer observer;
+    private final OverflowPolicy policy;
+    private final TestEvent[] ring;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final Thread delivery;
+    private int head; // Index of the oldest undelivered event
+    private int count;
+    private long dropped;
+
+    /**
+     * Creates the subscription and starts its delivery thread.
+     * @param observer The observer to deliver to.
+     * @param capacity Number of undelivered events kept before the overflow policy applies.
+     * @param policy What to do when the buffer is full.
+     */
+    public ObserverSubscription(Observer observer, int capacity, OverflowPolicy policy) {
+        this.observer = observer;
+        this.policy = policy;
+        this.ring = new TestEvent[Math.max(1, capacity)];
+        this.delivery = new Thread(this::deliverLoop, "observer-" + observer);
+        delivery.setDaemon(true);
+        delivery.start();
+    }
+
+    public Observer getObserver() {
+        return observer;
+    }
+
+    public void publish(TestEvent event) throws InterruptedException {
+        lock.lock();
+        try {
+            if (policy == OverflowPolicy.COALESCE && replacePending(event)) return;
+            if (count == ring.length) {
+                if (policy == OverflowPolicy.BLOCK) {
+                    while (count == ring.length) notFull.await();
+                } else {
+                    head = (head + 1) % ring.length; // Drop the oldest event
+                    count--;
+                    dropped++;
+                }
+            }
+            ring[(head + count) % ring.length] = event;
+            count++;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Overwrites the newest undelivered event of the same execution, keeping its place in the queue.
+    private boolean replacePending(TestEvent event) {
+        for (int i = count - 1; i >= 0; i--) {
+            int slot = (head + i) % ring.length;
+            if (ring[slot].executionId() == event.executionId()) {
+                ring[slot] = event;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void deliverLoop() {
+        while (true) {
+            TestEvent event;
+            lock.lock();
+            try {
+                while (count == 0) notEmpty.await();
+                event = ring[head];
+                ring[head] = null;
+                head = (head + 1) % ring.length;
+                count--;
+                notFull.signal();
+            } catch (InterruptedException e) {
+                return; // Unsubscribed
+            } finally {
+                lock.unlock();
+            }
+            try {
+                observer.update(event);
+            } catch (RuntimeException e) { // One failing observer must not stop its delivery thread
+                System.err.println("[Observer] Error delivering to " + observer + ": " + e.getMessage());
+            }
+        }
+    }
+
+    public long getDropped() {
+        lock.lock();
+        try {
+            return dropped;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void close() {
+        delivery.interrupt();
+    }
+}
@@ -11,15 +11,40 @@ package test_frame;
 
 import java.io.IOException;
 import java.nio.file.*;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+// Queue priority of a planned execution; urgent runs jump ahead of everything planned before them.
+enum Priority {
+    URGENT, HIGH, NORMAL, LOW
+}
 
 // Represents a test execution context for a specific platform and test suite.
 class TestExecution {
+    private static final AtomicLong nextId = new AtomicLong(1);
+
+    private final long id = nextId.getAndIncrement(); // Identifies the execution in observer events
     private final String description;
     String platform; // Target platform for test execution
     private final TestSuite suite; // Associated test suite to execute
     public boolean executeGUITestsOnly = false; // Flag to indicate GUI-only testing
     public boolean executeNetworkTestsOnly = false;  // Flag to indicate network-only testing
+    private int parallelism = 1; // Number of fork-join workers; 1 keeps the sequential behaviour
+    private int workerJvms = 1; // Number of worker JVMs the cases are sharded across; 1 runs in this JVM
+    private String tagFilter; // Tag expression selecting the cases to run; null runs every case
+    private CronExpression cron = CronExpression.WEEKLY; // When the scheduler runs it
+    private long plannedAt = System.currentTimeMillis(); // First fire is the first cron match after this
+    private String plannedType; // Test type of the suite factory it was planned from; null for hand-built suites
+    private Priority priority = Priority.NORMAL; // Position in the TestScheduler queue
+    private long timeoutMillis = -1; // Deadline of the whole run; -1 uses the Watchdog's default
+    private volatile ExecutionResults results; // Of the latest run; null before the first one
+    private volatile long releasedAtNanos = Long.MIN_VALUE; // nanoTime its latest cycle was released to run, see TestManager
+    private final CopyOnWriteArrayList<Consumer<ExecutionResults>> reportListeners = new CopyOnWriteArrayList<>();
 
     /**
      * Constructs a TestExecution with the given description, platform, and test suite.
@@ -34,12 +59,110 @@ class TestExecution {
     }
 
     public void executeTests() {
-        System.out.println("[Execution] Executing tests for " + platform + "...");
-        suite.execute();
+        AsyncOutputWriter console = AsyncOutputWriter.getInstance();
+        ExecutionResults run = startResults();
+        try {
+            console.emit("Execution", "Executing tests for {}...", platform);
+            TestSuite tagged = selectByTags();
+            if (tagged == null) {
+                console.emit("Execution", "No test case matches the tag filter", effectiveTagFilter());
+                return;
+            }
+            // Only the cases whose inputs changed since their last pass run; the others are reported as skipped.
+            TestSelection selection = IncrementalSelector.getInstance().select(tagged);
+            selection.report(console);
+            for (Map.Entry<String, String> skipped : selection.skipped().entrySet()) {
+                run.root().record(new TestResult(skipped.getKey(), TestStatus.SKIPPED, 0, skipped.getValue()));
+            }
+            if (selection.suite() == null) {
+                console.emit("Execution", "Nothing to run, every test case is unchanged since its last pass.");
+                return;
+            }
+            // Runs under the execution deadline; cases and suites that time out are recorded and the run goes on.
+            List<String> timedOut = Watchdog.getInstance().runExecution(this, () -> {
+                ResultNode previous = ResultNode.bind(run.root());
+                try {
+                    if (workerJvms > 1) ShardCoordinator.run(selection.suite(), workerJvms, console);
+                    else if (parallelism > 1) ParallelTestRunner.run(selection.suite(), parallelism);
+                    else selection.suite().execute();
+                } finally {
+                    ResultNode.bind(previous);
+                }
+            });
+            long failed = run.root().count(TestStatus.FAILED);
+            if (failed > 0) throw new IllegalStateException(failed + " test case(s) of " + description + " failed");
+            if (!timedOut.isEmpty()) throw new TestTimeoutException(timedOut.size() + " test case(s) or suite(s) of " + description + " timed out", timedOut);
+            IncrementalSelector.getInstance().recordPassed(selection);
+        } finally {
+            run.finish();
+        }
+    }
+
+    // The cases matching the tag filter, resolved through the suite's bitmap index; the suite itself if there is no filter.
+    TestSuite selectByTags() {
+        String filter = effectiveTagFilter();
+        if (filter == null) return suite;
+        TagIndex index = suite.getTagIndex();
+        return index.materialize(index.select(filter));
+    }
+
+    // The tag filter combined with the GUI-only and Network-only flags.
+    String effectiveTagFilter() {
+        List<String> parts = new ArrayList<>();
+        if (tagFilter != null) parts.add("(" + tagFilter + ")");
+        if (executeGUITestsOnly) parts.add("gui");
+        if (executeNetworkTestsOnly) parts.add("network");
+        return parts.isEmpty() ? null : String.join(" & ", parts);
     }
 
     public void reportResults() {
-        System.out.println("[Execution] Reporting results for: " + description);
+        AsyncOutputWriter console = AsyncOutputWriter.getInstance();
+        console.emit("Execution", "Reporting results for", description);
+        ExecutionResults run = results;
+        if (run != null) run.report(console);
+    }
+
+    // Marks the cycle released to run: not held for a check-in any more, waiting for its platform at most.
+    void released() {
+        releasedAtNanos = System.nanoTime();
+    }
+
+    // When the latest cycle was released to run, as System.nanoTime(); Long.MIN_VALUE if none was.
+    long getReleasedAtNanos() {
+        return releasedAtNanos;
+    }
+
+    // Results of a new run, from now on the latest; the listeners get them while the run goes on.
+    ExecutionResults startResults() {
+        ExecutionResults run = new ExecutionResults(description);
+        results = run;
+        run.stream(reportListeners);
+        return run;
+    }
+
+    // Results of the latest run, filled in while it runs; null before the first one.
+    public ExecutionResults getResults() {
+        return results;
+    }
+
+    // The listener gets the results of each run periodically while it runs, see ExecutionResults; adding it again has no effect.
+    public void addReportListener(Consumer<ExecutionResults> listener) {
+        reportListeners.addIfAbsent(listener);
+    }
+
+    // Executions whose results this run produces; just this one unless it was coalesced.
+    List<TestExecution> members() {
+        return List.of(this);
+    }
+
+    // The names among the cases and suites that timed out in this run that belong to the member.
+    List<String> timedOutOf(TestExecution member, List<String> timedOut) {
+        return timedOut;
+    }
+
+    // Outcome of the member in this run ("PASSED", "FAILED" or "TIMED_OUT"), given the run's outcome and the member's timeouts.
+    String statusOf(TestExecution member, String status, List<String> timedOut) {
+        return status;
     }
 
     public void setExecuteGUITestsOnly(boolean value) {
@@ -51,32 +174,177 @@ class TestExecution {
     }
     // value true to execute only Network tests, false to disable the filter.
 
+    /**
+     * Opts this execution into parallel mode, running sibling suites and cases as fork-join tasks.
+     * @param parallelism Number of worker threads; values below 2 run the suite sequentially.
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Opts this execution into sharded mode, spreading its test cases over separate worker JVMs.
+     * @param workerJvms Number of worker JVMs; values below 2 run the suite in this JVM.
+     */
+    public void setWorkerJvms(int workerJvms) {
+        this.workerJvms = Math.max(1, workerJvms);
+    }
+
+    public int getWorkerJvms() {
+        return workerJvms;
+    }
+
+    /**
+     * Restricts the execution to the cases matching a tag expression, e.g. "gui & !slow".
+     * @param tagFilter The expression, or null or blank to run every case.
+     * @throws IllegalArgumentException If the expression is malformed.
+     */
+    public void setTagFilter(String tagFilter) {
+        if (tagFilter != null && !tagFilter.isBlank()) TagExpression.parse(tagFilter); // Fail when planning, not when running
+        this.tagFilter = tagFilter == null || tagFilter.isBlank() ? null : tagFilter.trim();
+    }
+
+    public String getTagFilter() {
+        return tagFilter;
+    }
+
+    public void setCron(CronExpression cron) {
+        this.cron = cron;
+    } // Cron expression the scheduling engine fires this execution on.
+
+    public CronExpression getCron() {
+        return cron;
+    }
+
+    public long getPlannedAt() {
+        return plannedAt;
+    }
+
+    // Restored executions keep their original planning time, so fires missed while down are caught up.
+    void setPlannedAt(long plannedAt) {
+        this.plannedAt = plannedAt;
+    }
+
+    // "gui", "network" or "all" for executions of the platform suite factories; null otherwise, see ExecutionSpec.
+    String getPlannedType() {
+        return plannedType;
+    }
+
+    void setPlannedType(String plannedType) {
+        this.plannedType = plannedType;
+    }
+
+    // Must be set before the execution is scheduled; the queue orders it at that moment.
+    public void setPriority(Priority priority) {
+        this.priority = priority;
+    }
+
+    public Priority getPriority() {
+        return priority;
+    }
+
+    /**
+     * Sets the deadline of the whole run, after which its remaining cases are cancelled.
+     * @param timeoutMillis Deadline in milliseconds, 0 for none, or -1 for the configured default.
+     */
+    public void setTimeoutMillis(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
     public String getDescription() {
         return description;
     } //return Test exec. description
+
+    public long getId() {
+        return id;
+    }
+
+    public TestSuite getSuite() {
+        return suite;
+    }
 }
 
 class LogViewer {
     /**
-     * Reads the test_log.json file and prints its contents line-by-line to the console.
+     * Streams the result log to the console, printing only the records that match the query.
+     * Indexed filters (platform, time range, description) seek straight to matching records through
+     * ResultLogIndex; other queries stream the log through memory-mapped windows.
      * Handles the case where the file does not exist or an I/O error occurs.
+     * @param query Filters, paging and follow options.
+     * @param stop Checked while following the log; returning true stops it.
      */
-    public static void printLogs() {
-        String filename = "test_log.json";
+    public static void printLogs(LogQuery query, BooleanSupplier stop) {
+        Path path = Paths.get(ResultLogWriter.LOG_FILE);
         try {
-            if (!Files.exists(Paths.get(filename))) {
+            if (!Files.exists(path) && !Files.exists(Paths.get(ResultLogWriter.LEGACY_FILE))) {
                 System.out.println("No logs found."); // File not found
                 return;
             }
+            ResultLogWriter.getInstance(); // Imports the old JSON-array log and brings the index up to date
 
-            List<String> lines = Files.readAllLines(Paths.get(filename));
             System.out.println("\n--- Test Execution Log ---");
-            for (String line : lines) {
-                System.out.println(line); // Prints each line of the log file
-            }
+            long printed = new ResultLogReader(path).print(query, ResultLogIndex.getInstance(), stop);
+            if (printed == 0) System.out.println("No matching log entries.");
             System.out.println("---------------------------");
         } catch (IOException e) { // Catching error and report
             System.err.println("!!! Error reading log file: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Exports the append-only log to the JSON-array form in test_log.json.
+    public static void exportLogs() {
+        try {
+            ResultLogWriter.getInstance().exportJsonArray(Paths.get(ResultLogWriter.LEGACY_FILE));
+            System.out.println("✔ Logs exported to " + ResultLogWriter.LEGACY_FILE);
+        } catch (IOException e) {
+            System.err.println("!!! Error exporting log file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Moves log records older than the given number of days into the columnar archive.
+     * @param days Age in days from which records are archived.
+     */
+    public static void archiveLogs(int days) {
+        try {
+            int archived = LogCompactor.compact(days);
+            System.out.println("✔ " + archived + " log entries older than " + days + " days moved to " + ResultArchive.ARCHIVE_FILE);
+        } catch (IOException e) {
+            System.err.println("!!! Error archiving log file: " + e.getMessage());
+        }
+    }
+
+    // Prints weekly pass rates per platform and duration percentiles from the archive.
+    public static void printTrends() {
+        ArchiveStats stats = new ArchiveStats(new ResultArchive(Paths.get(ResultArchive.ARCHIVE_FILE)));
+        try {
+            List<ArchiveStats.WeeklyPassRate> rates = stats.weeklyPassRates();
+            if (rates.isEmpty()) {
+                System.out.println("The archive is empty. Archive old log entries with --archive first.");
+                return;
+            }
+            System.out.println("\n--- Archived Weekly Pass Rates ---");
+            for (ArchiveStats.WeeklyPassRate rate : rates) {
+                System.out.printf("%-10s week of %s: %5d runs, %5.1f%% passed%n",
+                        rate.platform(), rate.weekStart(), rate.runs(), rate.passRate() * 100);
+            }
+            long[] percentiles = stats.durationPercentiles(null, 50, 90, 99);
+            if (percentiles.length > 0) {
+                System.out.println("Durations: p50 " + percentiles[0] + " ms, p90 " + percentiles[1] + " ms, p99 " + percentiles[2] + " ms");
+            }
+            System.out.println("---------------------------");
+        } catch (IOException e) {
+            System.err.println("!!! Error reading archive: " + e.getMessage());
         }
     }
 }
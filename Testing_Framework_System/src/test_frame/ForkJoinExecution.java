@@ -0,0 +1,123 @@
+/**
+ *Project: Testing Framework System
+ *
+ *@author Taha Yasir Colak
+ *@author Aykan Berk Ayvazoglu
+ *@author Cankat Caglar Acarer
+ *@author Bartu Nurgun
+ *
+ */
+package test_frame;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Fork-join task over the TestComponent composite tree.
+ * Every child of a suite is forked as its own task so sibling suites and cases run at the same time.
+ * Each task returns its output lines as a batch instead of printing them, and a suite joins its children's
+ * batches in declaration order, so the final output is grouped by suite exactly as in a sequential run.
+ * A task runs under the cancellation token of the suite that forked it, whichever worker thread picks it up,
+ * and adds its case results to that suite's ResultNode.
+ * The cases of a CompactTestSuite are forked in chunks of positions instead, each materializing its cases
+ * as it runs them, so a suite of millions of cases does not make millions of tasks.
+ */
+class ParallelTestTask extends RecursiveTask<OutputBatch> {
+    private static final long serialVersionUID = 1L;
+    private static final int MAX_CHUNK = 1024; // Cases of a compact suite per task
+    private static final int CHUNKS_PER_WORKER = 4; // Smaller chunks, for balance, while the suite is small
+
+    private final TestComponent component;
+    private final int from, to; // Positions of a chunk of a compact suite
+    private final boolean outputEnabled;
+    private final CancellationToken token = CancellationToken.current(); // Of the enclosing suite or execution
+    private final ResultNode results = ResultNode.current(); // Of the enclosing suite
+
+    public ParallelTestTask(TestComponent component, boolean outputEnabled) {
+        this(component, 0, -1, outputEnabled);
+    }
+
+    private ParallelTestTask(TestComponent component, int from, int to, boolean outputEnabled) {
+        this.component = component;
+        this.from = from;
+        this.to = to;
+        this.outputEnabled = outputEnabled;
+    }
+
+    protected OutputBatch compute() {
+        CancellationToken previous = CancellationToken.bind(token);
+        ResultNode previousResults = ResultNode.bind(results);
+        try {
+            OutputBatch output = new OutputBatch(outputEnabled);
+            if (to >= 0) executeChunk((CompactTestSuite) component, output);
+            else if (component instanceof TestSuite suite) executeSuite(suite, output);
+            else Watchdog.getInstance().execute(component, output);
+            return output;
+        } finally {
+            ResultNode.bind(previousResults);
+            CancellationToken.bind(previous);
+        }
+    }
+
+    private void executeSuite(TestSuite suite, OutputBatch output) {
+        long start = System.nanoTime();
+        Watchdog watchdog = Watchdog.getInstance();
+        long timeout = watchdog.timeoutFor(suite);
+        List<ParallelTestTask> subtasks = new ArrayList<>();
+        ResultNode previous = ResultNode.bind(ResultNode.enter(suite.getDescription())); // Captured by the subtasks
+        boolean inTime;
+        try {
+            inTime = watchdog.run(suite.getDescription(), timeout, () -> {
+                if (suite instanceof CompactTestSuite compact) {
+                    int span = compact.span();
+                    int chunk = Math.max(1, Math.min(MAX_CHUNK, span / (CHUNKS_PER_WORKER * getPool().getParallelism())));
+                    for (int first = 0; first < span; first += chunk) subtasks.add(new ParallelTestTask(compact, first, Math.min(span, first + chunk), outputEnabled));
+                } else {
+                    for (TestComponent child : suite) subtasks.add(new ParallelTestTask(child, outputEnabled));
+                }
+                invokeAll(subtasks);
+            });
+        } finally {
+            ResultNode.bind(previous);
+        }
+
+        output.emit("TestSuite", "Executing", suite.getDescription());
+        // Children cancelled by this suite's deadline have no output to join.
+        for (ParallelTestTask task : subtasks) if (task.isCompletedNormally()) output.append(task.join());
+        if (!inTime) output.emit("Watchdog", "Timed out after {} ms", timeout, suite.getDescription());
+        suite.latency().record(System.nanoTime() - start);
+    }
+
+    // Runs the cases of a chunk one after the other, each under its own deadline.
+    private void executeChunk(CompactTestSuite suite, OutputBatch output) {
+        Watchdog watchdog = Watchdog.getInstance();
+        for (Iterator<TestComponent> cases = suite.iterator(from, to); cases.hasNext(); ) watchdog.execute(cases.next(), output);
+    }
+}
+
+// Entry point for running a suite on a dedicated fork-join pool with the requested parallelism.
+class ParallelTestRunner {
+    private ParallelTestRunner() {}
+
+    public static void run(TestSuite suite, int parallelism) {
+        run(suite, parallelism, AsyncOutputWriter.getInstance());
+    }
+
+    /**
+     * Executes the suite tree in parallel and emits the grouped output once it completes.
+     * @param suite The root suite to execute.
+     * @param parallelism Number of worker threads in the pool (at least 1).
+     * @param out Sink the grouped output is appended to.
+     */
+    public static void run(TestSuite suite, int parallelism, OutputSink out) {
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, parallelism));
+        try {
+            out.append(pool.invoke(new ParallelTestTask(suite, out.enabled())));
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,303 @@
+/**
+ *Project: Testing Framework System
+ *
+ *@author Taha Yasir Colak
+ *@author Aykan Berk Ayvazoglu
+ *@author Cankat Caglar Acarer
+ *@author Bartu Nurgun
+ *
+ */
+package test_frame;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Content fingerprint of the source tree taken at a check-in.
+ * @param fingerprint Hash over every file path and content hash.
+ * @param files Content hash of each file, keyed by its path relative to the source root.
+ * @param timestamp Time of the check-in, in epoch milliseconds.
+ */
+record CheckInSnapshot(String fingerprint, SortedMap<String, String> files, long timestamp) {}
+
+/**
+ * Records a content fingerprint of the source tree (-Dtfs.source.root, "src" by default) at each check-in.
+ * File hashes are remembered by size and modification time, so a check-in only reads the files that changed.
+ */
+class ChangeTracker {
+    private static final ChangeTracker instance = new ChangeTracker();
+
+    private record CachedHash(long size, long modified, String hash) {}
+
+    private final Path root = Paths.get(System.getProperty("tfs.source.root", "src"));
+    private final Map<String, CachedHash> hashes = new ConcurrentHashMap<>();
+    private volatile CheckInSnapshot latest;
+
+    private ChangeTracker() {}
+
+    public static ChangeTracker getInstance() {
+        return instance;
+    }
+
+    /**
+     * Fingerprints the source tree and makes it the latest check-in.
+     * @return The new snapshot.
+     */
+    public CheckInSnapshot recordCheckIn() throws IOException {
+        SortedMap<String, String> files = new TreeMap<>();
+        if (Files.isDirectory(root)) {
+            Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    return dir.equals(root) || !dir.getFileName().toString().startsWith(".")
+                            ? FileVisitResult.CONTINUE : FileVisitResult.SKIP_SUBTREE;
+                }
+
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    String relative = root.relativize(file).toString().replace('\\', '/');
+                    files.put(relative, hash(relative, file, attrs));
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+        hashes.keySet().retainAll(files.keySet()); // Forget deleted files
+        if (files.isEmpty()) {
+            System.err.println("[Selection] Source root " + root.toAbsolutePath() + (Files.isDirectory(root) ? " is empty" : " does not exist")
+                    + ", every test case runs; set -Dtfs.source.root to the checked-in tree");
+        }
+
+        StringBuilder all = new StringBuilder();
+        files.forEach((path, hash) -> all.append(path).append('=').append(hash).append('\n'));
+        latest = new CheckInSnapshot(Fingerprints.of(all.toString()), Collections.unmodifiableSortedMap(files),
+                System.currentTimeMillis());
+        return latest;
+    }
+
+    private String hash(String relative, Path file, BasicFileAttributes attrs) throws IOException {
+        long modified = attrs.lastModifiedTime().toMillis();
+        CachedHash cached = hashes.get(relative);
+        if (cached != null && cached.size() == attrs.size() && cached.modified() == modified) return cached.hash();
+        String hash = Fingerprints.of(file);
+        hashes.put(relative, new CachedHash(attrs.size(), modified, hash));
+        return hash;
+    }
+
+    // The latest check-in, or null if none was recorded in this process.
+    public CheckInSnapshot getLatest() {
+        return latest;
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+}
+
+// Short SHA-256 based fingerprints of strings and file contents.
+class Fingerprints {
+    private Fingerprints() {}
+
+    static String of(String text) {
+        MessageDigest digest = sha256();
+        digest.update(text.getBytes(StandardCharsets.UTF_8));
+        return hex(digest.digest());
+    }
+
+    static String of(Path file) throws IOException {
+        MessageDigest digest = sha256();
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file)) {
+            int n;
+            while ((n = in.read(buffer)) > 0) digest.update(buffer, 0, n);
+        }
+        return hex(digest.digest());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // Every Java platform has SHA-256
+        }
+    }
+
+    // First 8 bytes of the digest in hex, plenty to tell versions of a source tree apart.
+    private static String hex(byte[] digest) {
+        StringBuilder hex = new StringBuilder(16);
+        for (int i = 0; i < 8; i++) hex.append(String.format("%02x", digest[i]));
+        return hex.toString();
+    }
+}
+
+/**
+ * Last passing result of each test case, keyed by the fingerprint of the case's inputs at that time.
+ * Cases are keyed by suite path plus name ("Suite/Child suite/Case"), so same-named cases of different
+ * suites or platforms do not share a result. Stored as "fingerprint TAB key" lines in test_results.cache
+ * (-Dtfs.selection.cache).
+ */
+class ResultCache {
+    private final Path file;
+    private final Map<String, String> passedFingerprints = new ConcurrentHashMap<>();
+
+    ResultCache(Path file) {
+        this.file = file;
+        if (!Files.exists(file)) return;
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int tab = line.indexOf('\t');
+                if (tab > 0) passedFingerprints.put(line.substring(tab + 1), line.substring(0, tab));
+            }
+        } catch (IOException e) {
+            System.err.println("⚠ Error reading result cache, running every test case: " + e.getMessage());
+            passedFingerprints.clear();
+        }
+    }
+
+    // Fingerprint of the case's inputs when it last passed, or null.
+    public String lastPassing(String caseKey) {
+        return passedFingerprints.get(caseKey);
+    }
+
+    public synchronized void recordPassed(Map<String, String> fingerprints) throws IOException {
+        passedFingerprints.putAll(fingerprints);
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(tmp)) {
+            for (Map.Entry<String, String> entry : new TreeMap<>(passedFingerprints).entrySet()) {
+                writer.write(entry.getValue() + "\t" + entry.getKey());
+                writer.newLine();
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
+
+/**
+ * Outcome of selecting the cases of a suite.
+ * @param suite Copy of the suite tree holding only the cases that need to run, or null if none do.
+ * @param fingerprints Input fingerprint of each selected case by suite path and name, recorded once the run passes.
+ * @param run Selected case names with the reason they run.
+ * @param skipped Skipped case names with the reason they were skipped.
+ */
+record TestSelection(TestSuite suite, Map<String, String> fingerprints, Map<String, String> run, Map<String, String> skipped) {
+    public void report(OutputSink out) {
+        if (!out.enabled()) return;
+        for (Map.Entry<String, String> entry : skipped.entrySet()) {
+            out.emit("Selection", "Skipped {}: {}", entry.getKey(), entry.getValue());
+        }
+        if (!skipped.isEmpty()) out.emit("Selection", "{} of {} cases selected", run.size(), run.size() + skipped.size());
+    }
+}
+
+/**
+ * Change-aware test selection. After a check-in, a test case only runs if the inputs it depends on
+ * changed since its last passing result; every other case is skipped and reported with the reason.
+ * A case's inputs are globs relative to the source root (see TestCase#getInputs); a case without
+ * inputs, or whose inputs match no file, depends on the whole tree. Without a recorded check-in, with
+ * a check-in of an empty or missing source root, or with -Dtfs.selection=all, every case runs.
+ */
+class IncrementalSelector {
+    private static final IncrementalSelector instance = new IncrementalSelector();
+
+    private final boolean enabled = !System.getProperty("tfs.selection", "incremental").equalsIgnoreCase("all");
+    private final ResultCache cache = new ResultCache(Paths.get(System.getProperty("tfs.selection.cache", "test_results.cache")));
+
+    private IncrementalSelector() {}
+
+    public static IncrementalSelector getInstance() {
+        return instance;
+    }
+
+    /**
+     * Selects the cases of the suite that need to run after the latest check-in.
+     * @param suite The suite planned for execution.
+     * @return The selection, whose suite is the original one when selection does not apply.
+     */
+    public TestSelection select(TestSuite suite) {
+        Map<String, String> fingerprints = new LinkedHashMap<>();
+        Map<String, String> run = new LinkedHashMap<>();
+        Map<String, String> skipped = new LinkedHashMap<>();
+        CheckInSnapshot snapshot = ChangeTracker.getInstance().getLatest();
+        if (!enabled || snapshot == null || snapshot.files().isEmpty()) return new TestSelection(suite, fingerprints, run, skipped);
+
+        TestSuite selected = copySelected(suite, suite.getDescription(), new InputFingerprints(snapshot), fingerprints, run, skipped);
+        return new TestSelection(selected, fingerprints, run, skipped);
+    }
+
+    // Copies the suite tree, keeping only the cases that need to run; returns null if nothing is left.
+    private TestSuite copySelected(TestSuite suite, String path, InputFingerprints inputs, Map<String, String> fingerprints,
+                                   Map<String, String> run, Map<String, String> skipped) {
+        TestSuite copy = suite.selectionCopy();
+        suite.forEachChild((child, position) -> {
+            if (child instanceof TestSuite childSuite) {
+                TestSuite selected = copySelected(childSuite, path + "/" + childSuite.getDescription(), inputs, fingerprints, run, skipped);
+                if (selected != null) copy.add(selected);
+            } else if (child instanceof TestCase testCase) {
+                String key = path + "/" + testCase.getName();
+                String fingerprint = inputs.of(testCase.getInputs());
+                String passed = cache.lastPassing(key);
+                if (fingerprint.equals(passed)) {
+                    skipped.put(testCase.getName(), "inputs unchanged since its last pass");
+                    return;
+                }
+                run.put(testCase.getName(), passed == null ? "no passing result recorded" : "inputs changed");
+                fingerprints.put(key, fingerprint);
+                copy.keep(suite, position); // A generated case is not kept as an object
+            } else {
+                copy.add(child); // Unknown components always run
+            }
+        });
+        return copy.size() > 0 ? copy : null;
+    }
+
+    /**
+     * Fingerprints of input glob lists within one selection. Cases sharing a glob list share its matchers
+     * and its fingerprint, so the snapshot is scanned once per distinct list rather than once per case.
+     */
+    private static final class InputFingerprints {
+        private final CheckInSnapshot snapshot;
+        private final Map<List<String>, String> byGlobs = new HashMap<>();
+
+        InputFingerprints(CheckInSnapshot snapshot) {
+            this.snapshot = snapshot;
+        }
+
+        // Hash of the content hashes of every file the globs match; of the whole tree if there are none or they match none.
+        String of(List<String> globs) {
+            if (globs.isEmpty()) return snapshot.fingerprint();
+            return byGlobs.computeIfAbsent(globs, this::matching);
+        }
+
+        private String matching(List<String> globs) {
+            List<PathMatcher> matchers = new ArrayList<>();
+            for (String glob : globs) matchers.add(FileSystems.getDefault().getPathMatcher("glob:" + glob));
+            StringBuilder matched = new StringBuilder();
+            for (Map.Entry<String, String> file : snapshot.files().entrySet()) {
+                Path path = Paths.get(file.getKey());
+                for (PathMatcher matcher : matchers) {
+                    if (!matcher.matches(path)) continue;
+                    matched.append(file.getKey()).append('=').append(file.getValue()).append('\n');
+                    break;
+                }
+            }
+            return matched.length() > 0 ? Fingerprints.of(matched.toString()) : snapshot.fingerprint();
+        }
+    }
+
+    // Remembers the selected cases as passing for their current inputs, once their run completed.
+    public void recordPassed(TestSelection selection) {
+        if (selection.fingerprints().isEmpty()) return;
+        try {
+            cache.recordPassed(selection.fingerprints());
+        } catch (IOException e) {
+            System.err.println("⚠ Error writing result cache: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,303 @@
+/**
+ *Project: Testing Framework System
+ *
+ *@author Taha Yasir Colak
+ *@author Aykan Berk Ayvazoglu
+ *@author Cankat Caglar Acarer
+ *@author Bartu Nurgun
+ *
+ */
+package test_frame;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Learns how long executions and test cases take, to plan testing cycles.
+ * An execution's estimate is an exponentially weighted average of its passed runs, so it follows a suite
+ * that grows or gets faster; it is updated after every passed run. An execution that never passed is
+ * estimated from its test cases: the sum of their mean durations, spread over its fork-join workers or
+ * worker JVMs; a coalesced run is learned under its own description, and estimated from its longest
+ * member until it passed once. Both are kept across restarts as "E|C TAB nanoseconds TAB name" lines in
+ * durations.cache (-Dtfs.planner.durations), rewritten once per testing cycle (see CyclePlan#track), so
+ * the first plan of a process reads that small file only. Without the file the execution averages are
+ * seeded once from the result archive.
+ */
+class DurationModel {
+    private static final DurationModel instance = new DurationModel();
+    static final long DEFAULT_CASE_NANOS = 1_000_000; // For cases that never ran before
+    private static final double WEIGHT = 0.3; // Weight of the newest run in the average
+
+    private final Path file = Paths.get(System.getProperty("tfs.planner.durations", "durations.cache"));
+    private final Map<String, Long> executions = new ConcurrentHashMap<>(); // Description -> weighted average in nanoseconds
+    private final Map<String, Long> cases = new ConcurrentHashMap<>(); // Case histogram name -> mean in nanoseconds, of earlier processes
+    private volatile boolean loaded;
+    private volatile boolean dirty; // Learned something not written to the file yet
+
+    private DurationModel() {}
+
+    public static DurationModel getInstance() {
+        return instance;
+    }
+
+    /**
+     * Learns from a passed run. Failed and timed-out runs stop early or hit a deadline, so they say
+     * little about how long the next run takes and are left out.
+     * @param description The execution's description.
+     * @param nanos How long the run took.
+     */
+    public void record(String description, long nanos) {
+        load();
+        executions.merge(description, nanos, (average, latest) -> average + (long) (WEIGHT * (latest - average)));
+        dirty = true;
+    }
+
+    // Writes what was learned since the last save, if anything.
+    public void save() {
+        if (!dirty) return;
+        try {
+            write();
+        } catch (IOException e) {
+            System.err.println("[Planner] Cannot save durations: " + e.getMessage());
+        }
+    }
+
+    // Expected duration of an execution in nanoseconds; a coalesced run never learned takes at least as long as its longest member.
+    public long estimateNanos(TestExecution execution) {
+        load();
+        Long learned = executions.get(execution.getDescription());
+        if (learned != null) return learned;
+        List<TestExecution> members = execution.members();
+        if (members.size() > 1) {
+            long longest = 0;
+            for (TestExecution member : members) longest = Math.max(longest, estimateNanos(member));
+            return longest;
+        }
+        TestSuite suite = execution.selectByTags();
+        if (suite == null) return 0;
+        long cases = estimateNanos(suite);
+        return cases / Math.max(execution.getParallelism(), execution.getWorkerJvms());
+    }
+
+    // Expected duration of a suite run sequentially: the sum of its cases.
+    long estimateNanos(TestSuite suite) {
+        long total = 0;
+        for (TestComponent child : suite) {
+            if (child instanceof TestSuite childSuite) total += estimateNanos(childSuite);
+            else if (child instanceof TestCase testCase) total += estimateNanos(testCase);
+        }
+        return total;
+    }
+
+    // Mean duration of a test case in this process, else in the earlier ones, or the default if it never ran.
+    public long estimateNanos(TestCase testCase) {
+        LatencyHistogram history = MetricsRegistry.getInstance().caseHistogram(testCase.histogramName());
+        long count = history.totalCount();
+        if (count > 0) return history.sumNanos() / count;
+        load();
+        return cases.getOrDefault(testCase.histogramName(), DEFAULT_CASE_NANOS);
+    }
+
+    // Reads the durations of earlier processes; without them, seeds the averages from the archived passed runs, oldest first.
+    private void load() {
+        if (loaded) return;
+        synchronized (this) {
+            if (loaded) return;
+            Map<String, Long> history = new HashMap<>();
+            try {
+                if (Files.exists(file)) read(history);
+                else seedFromArchive(history);
+            } catch (IOException | RuntimeException e) {
+                System.err.println("[Planner] Cannot read past durations: " + e.getMessage());
+            }
+            history.forEach(executions::putIfAbsent); // Runs recorded meanwhile are newer
+            loaded = true;
+        }
+    }
+
+    private void read(Map<String, Long> history) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t", 3);
+                if (fields.length < 3) continue;
+                long nanos = Long.parseLong(fields[1]);
+                if (fields[0].equals("E")) history.put(fields[2], nanos);
+                else if (fields[0].equals("C")) cases.put(fields[2], nanos);
+            }
+        }
+    }
+
+    private static void seedFromArchive(Map<String, Long> history) throws IOException {
+        new ResultArchive(Paths.get(ResultArchive.ARCHIVE_FILE)).scan(EnumSet.of(ArchiveColumn.DESCRIPTION, ArchiveColumn.STATUS, ArchiveColumn.DURATION),
+                Long.MIN_VALUE, Long.MAX_VALUE, block -> {
+                    for (int i = 0; i < block.count; i++) {
+                        if (block.status[i] != ArchiveBlock.PASSED || block.durationMillis[i] < 0) continue;
+                        history.merge(block.descriptionDictionary[block.descriptionIds[i]], block.durationMillis[i] * 1_000_000,
+                                (average, latest) -> average + (long) (WEIGHT * (latest - average)));
+                    }
+                });
+    }
+
+    // Rewrites the file with the execution averages and the case means, those of this process taking precedence.
+    private synchronized void write() throws IOException {
+        dirty = false; // Whatever is learned from now on is saved the next time
+        MetricsRegistry.getInstance().getCaseHistograms().forEach((name, history) -> {
+            long count = history.totalCount();
+            if (count > 0) cases.put(name, history.sumNanos() / count);
+        });
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(tmp)) {
+            for (Map.Entry<String, Long> entry : new TreeMap<>(executions).entrySet()) {
+                writer.write("E\t" + entry.getValue() + "\t" + entry.getKey());
+                writer.newLine();
+            }
+            for (Map.Entry<String, Long> entry : new TreeMap<>(cases).entrySet()) {
+                writer.write("C\t" + entry.getValue() + "\t" + entry.getKey());
+                writer.newLine();
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
+
+/**
+ * The plan of a testing cycle: its executions packed onto lanes, each lane running its executions one
+ * after the other. A platform gets as many lanes as its bulkhead currently allows executions at once.
+ * Executions are placed longest-processing-time-first: most urgent priority first and, within a
+ * priority, the longest expected execution goes to the lane that frees up first. Short executions
+ * therefore fill the gaps at the end instead of waiting behind long ones, and the plan predicts when
+ * the cycle completes (its makespan), which is reported against the actual completion time.
+ */
+class CyclePlan {
+    // An execution in its lane, with when it is expected to start and how long it is expected to take.
+    record Slot(TestExecution execution, long estimateNanos, long predictedStartNanos) {}
+
+    private final List<List<Slot>> lanes;
+    private final long predictedNanos;
+
+    private CyclePlan(List<List<Slot>> lanes) {
+        this.lanes = lanes;
+        long makespan = 0;
+        for (List<Slot> lane : lanes) {
+            if (lane.isEmpty()) continue;
+            Slot last = lane.get(lane.size() - 1);
+            makespan = Math.max(makespan, last.predictedStartNanos() + last.estimateNanos());
+        }
+        this.predictedNanos = makespan;
+    }
+
+    /**
+     * Plans a cycle of the given executions.
+     * @param executions The executions, most urgent first as the TestScheduler returns them.
+     * @return The plan.
+     */
+    public static CyclePlan of(List<TestExecution> executions) {
+        DurationModel model = DurationModel.getInstance();
+        Map<String, List<TestExecution>> byPlatform = new LinkedHashMap<>();
+        for (TestExecution execution : executions) byPlatform.computeIfAbsent(execution.platform, p -> new ArrayList<>()).add(execution);
+
+        List<List<Slot>> lanes = new ArrayList<>();
+        for (Map.Entry<String, List<TestExecution>> platform : byPlatform.entrySet()) {
+            List<TestExecution> platformExecutions = platform.getValue();
+            Map<TestExecution, Long> estimates = new HashMap<>();
+            for (TestExecution execution : platformExecutions) estimates.put(execution, model.estimateNanos(execution));
+            List<TestExecution> byLength = new ArrayList<>(platformExecutions); // Stable: equal ones keep their queue order
+            byLength.sort(Comparator.comparing(TestExecution::getPriority)
+                    .thenComparing(Comparator.comparingLong((TestExecution e) -> estimates.get(e)).reversed()));
+
+            int laneCount = Math.min(platformExecutions.size(), Math.max(1, (int) Bulkheads.getInstance().forPlatform(platform.getKey()).getLimit()));
+            long[] load = new long[laneCount];
+            List<List<Slot>> platformLanes = new ArrayList<>();
+            for (int i = 0; i < laneCount; i++) platformLanes.add(new ArrayList<>());
+            for (TestExecution execution : byLength) {
+                int lightest = 0;
+                for (int i = 1; i < laneCount; i++) if (load[i] < load[lightest]) lightest = i;
+                platformLanes.get(lightest).add(new Slot(execution, estimates.get(execution), load[lightest]));
+                load[lightest] += estimates.get(execution);
+            }
+            lanes.addAll(platformLanes);
+        }
+        return new CyclePlan(lanes);
+    }
+
+    // Executions of each lane in the order they run.
+    public List<List<TestExecution>> lanes() {
+        List<List<TestExecution>> result = new ArrayList<>();
+        for (List<Slot> lane : lanes) result.add(lane.stream().map(Slot::execution).toList());
+        return result;
+    }
+
+    // Every execution in the order the plan expects them to start.
+    public List<TestExecution> order() {
+        List<Slot> slots = new ArrayList<>();
+        for (List<Slot> lane : lanes) slots.addAll(lane);
+        slots.sort(Comparator.comparingLong(Slot::predictedStartNanos)); // Stable: lane heads keep their priority order
+        return slots.stream().map(Slot::execution).toList();
+    }
+
+    public int size() {
+        int size = 0;
+        for (List<Slot> lane : lanes) size += lane.size();
+        return size;
+    }
+
+    public long getPredictedNanos() {
+        return predictedNanos;
+    }
+
+    // Prints the lanes with the expected start and duration of each execution, and the predicted makespan.
+    public void report(OutputSink out) {
+        if (size() == 0 || !out.enabled()) return;
+        out.emit("Planner", "Cycle of {} execution(s) on {} lane(s), predicted to complete in {} ms",
+                size(), lanes.size(), predictedNanos / 1_000_000);
+        for (int i = 0; i < lanes.size(); i++) {
+            for (Slot slot : lanes.get(i)) {
+                out.emit("Planner", "  lane {} +{} ms, ~{} ms", i + 1, slot.predictedStartNanos() / 1_000_000,
+                        slot.estimateNanos() / 1_000_000, slot.execution().getDescription());
+            }
+        }
+    }
+
+    /**
+     * Reports the predicted against the actual completion time once the cycle has finished, and saves the
+     * durations learned meanwhile. Time spent held for a check-in does not count: the cycle is timed from
+     * when the first of its executions was released to run, or from its start if none was.
+     * @param cycle Future of the cycle.
+     * @param startNanos When the cycle was started.
+     * @return Future completed like the cycle, after the report.
+     */
+    public <T> CompletableFuture<T> track(CompletableFuture<T> cycle, long startNanos) {
+        if (size() == 0) return cycle;
+        return cycle.whenComplete((result, failure) -> {
+            DurationModel.getInstance().save();
+            AsyncOutputWriter console = AsyncOutputWriter.getInstance();
+            if (!console.enabled()) return;
+            long end = System.nanoTime();
+            long released = end;
+            for (List<Slot> lane : lanes) {
+                for (Slot slot : lane) {
+                    long at = slot.execution().getReleasedAtNanos(); // Of an earlier cycle if before this one started
+                    if (at != Long.MIN_VALUE && at - startNanos >= 0 && at - released < 0) released = at;
+                }
+            }
+            long actual = end - (released == end ? startNanos : released);
+            if (predictedNanos == 0) {
+                console.emit("Planner", "Cycle of {} execution(s) completed in {} ms, predicted 0 ms", size(), actual / 1_000_000);
+            } else {
+                long deviation = Math.round(100.0 * (actual - predictedNanos) / predictedNanos);
+                console.emit("Planner", deviation < 0 ? "Cycle of {} execution(s) completed in {} ms, predicted {} ms ({}%)"
+                                : "Cycle of {} execution(s) completed in {} ms, predicted {} ms (+{}%)",
+                        size(), actual / 1_000_000, predictedNanos / 1_000_000, deviation);
+            }
+        });
+    }
+}
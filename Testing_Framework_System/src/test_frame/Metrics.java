@@ -0,0 +1,256 @@
+/**
+ *Project: Testing Framework System
+ *
+ *@author Taha Yasir Colak
+ *@author Aykan Berk Ayvazoglu
+ *@author Cankat Caglar Acarer
+ *@author Bartu Nurgun
+ *
+ */
+package test_frame;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.*;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Duration histogram with power-of-two buckets from about 1 microsecond up to about 137 seconds.
+ * Recording only increments atomic counters, so it does not allocate on the hot path.
+ */
+class LatencyHistogram {
+    private static final int MIN_SHIFT = 10; // First bucket holds everything up to 2^10 ns
+    static final int BUCKETS = 28;           // Last finite bucket is 2^37 ns; anything slower goes to +Inf
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS + 1);
+    private final LongAdder sumNanos = new LongAdder();
+
+    public void record(long nanos) {
+        int bucket = nanos <= (1L << MIN_SHIFT) ? 0 : 64 - Long.numberOfLeadingZeros(nanos - 1) - MIN_SHIFT;
+        counts.incrementAndGet(Math.min(bucket, BUCKETS));
+        sumNanos.add(nanos);
+    }
+
+    // Upper bound of a finite bucket in nanoseconds.
+    static long upperBoundNanos(int bucket) {
+        return 1L << (bucket + MIN_SHIFT);
+    }
+
+    public long count(int bucket) {
+        return counts.get(bucket);
+    }
+
+    public long totalCount() {
+        long total = 0;
+        for (int i = 0; i <= BUCKETS; i++) total += counts.get(i);
+        return total;
+    }
+
+    public long sumNanos() {
+        return sumNanos.sum();
+    }
+
+    /**
+     * Estimates a percentile as the upper bound of the bucket it falls in.
+     * @param percentile Between 0 and 100.
+     * @return Estimated duration in nanoseconds, or 0 if nothing was recorded.
+     */
+    public long percentileNanos(double percentile) {
+        long total = totalCount();
+        if (total == 0) return 0;
+        long rank = (long) Math.ceil(total * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) return upperBoundNanos(i);
+        }
+        return Long.MAX_VALUE;
+    }
+}
+
+/**
+ * Registry of the duration histograms and counters of the testing framework.
+ * Histograms are kept per test case, suite, platform and execution; counters track executions
+ * started, completed, failed and timed out, and the TestScheduler queue depth is sampled when exporting.
+ * Everything can be exported in the Prometheus text format, on demand or as a periodic snapshot file.
+ */
+class MetricsRegistry {
+    private static final MetricsRegistry instance = new MetricsRegistry();
+
+    private final Map<String, LatencyHistogram> cases = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> suites = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> platforms = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> executions = new ConcurrentHashMap<>();
+    private final LongAdder executionsStarted = new LongAdder();
+    private final LongAdder executionsCompleted = new LongAdder();
+    private final LongAdder executionsFailed = new LongAdder();
+    private final LongAdder executionsTimedOut = new LongAdder();
+    private volatile long firstCaseMillis; // When the first test case of this process started, 0 until then
+    private ScheduledExecutorService snapshots;
+
+    private MetricsRegistry() {}
+
+    public static MetricsRegistry getInstance() {
+        return instance;
+    }
+
+    // Lookups allocate only the first time a name is seen; callers on the hot path keep the returned histogram.
+    public LatencyHistogram caseHistogram(String name) {
+        return cases.computeIfAbsent(name, k -> new LatencyHistogram());
+    }
+
+    // Every case histogram by name, as a live view.
+    Map<String, LatencyHistogram> getCaseHistograms() {
+        return Collections.unmodifiableMap(cases);
+    }
+
+    public LatencyHistogram suiteHistogram(String description) {
+        return suites.computeIfAbsent(description, k -> new LatencyHistogram());
+    }
+
+    public LatencyHistogram platformHistogram(String platform) {
+        return platforms.computeIfAbsent(platform, k -> new LatencyHistogram());
+    }
+
+    public LatencyHistogram executionHistogram(String description) {
+        return executions.computeIfAbsent(description, k -> new LatencyHistogram());
+    }
+
+    // Marks the start of a test case. Racing first cases may both write, their times are as good as each other.
+    public void caseStarted() {
+        if (firstCaseMillis == 0) firstCaseMillis = System.currentTimeMillis();
+    }
+
+    // Epoch milliseconds at which the first test case of this process started, or 0 if none ran yet.
+    public long getFirstCaseMillis() {
+        return firstCaseMillis;
+    }
+
+    public void executionStarted() {
+        executionsStarted.increment();
+    }
+
+    public void executionCompleted() {
+        executionsCompleted.increment();
+    }
+
+    public void executionFailed() {
+        executionsFailed.increment();
+    }
+
+    public void executionTimedOut() {
+        executionsTimedOut.increment();
+    }
+
+    /**
+     * Writes every metric in the Prometheus text exposition format.
+     * @param out Destination of the text.
+     */
+    public void writePrometheus(Writer out) throws IOException {
+        writeHistograms(out, "tfs_test_case_duration_seconds", "Duration of single test cases.", "case", cases);
+        writeHistograms(out, "tfs_test_suite_duration_seconds", "Duration of test suites.", "suite", suites);
+        writeHistograms(out, "tfs_platform_duration_seconds", "Duration of test executions per platform.", "platform", platforms);
+        writeHistograms(out, "tfs_execution_duration_seconds", "Duration of test executions.", "execution", executions);
+        writeCounter(out, "tfs_executions_started_total", "Test executions started.", executionsStarted.sum());
+        writeCounter(out, "tfs_executions_completed_total", "Test executions completed.", executionsCompleted.sum());
+        writeCounter(out, "tfs_executions_failed_total", "Test executions that failed.", executionsFailed.sum());
+        writeCounter(out, "tfs_executions_timed_out_total", "Test executions with a case, suite or the whole run past its deadline.", executionsTimedOut.sum());
+        out.write("# HELP tfs_scheduler_queue_depth Executions waiting in the TestScheduler.\n");
+        out.write("# TYPE tfs_scheduler_queue_depth gauge\n");
+        out.write("tfs_scheduler_queue_depth " + TestScheduler.getInstance().size() + "\n");
+        Bulkheads.getInstance().writePrometheus(out);
+    }
+
+    private static void writeCounter(Writer out, String name, String help, long value) throws IOException {
+        out.write("# HELP " + name + " " + help + "\n");
+        out.write("# TYPE " + name + " counter\n");
+        out.write(name + " " + value + "\n");
+    }
+
+    private static void writeHistograms(Writer out, String name, String help, String label,
+                                        Map<String, LatencyHistogram> histograms) throws IOException {
+        out.write("# HELP " + name + " " + help + "\n");
+        out.write("# TYPE " + name + " histogram\n");
+        for (Map.Entry<String, LatencyHistogram> entry : new TreeMap<>(histograms).entrySet()) {
+            String labels = label + "=\"" + escapeLabel(entry.getKey()) + "\"";
+            LatencyHistogram histogram = entry.getValue();
+            long cumulative = 0;
+            for (int i = 0; i < LatencyHistogram.BUCKETS; i++) {
+                cumulative += histogram.count(i);
+                double le = LatencyHistogram.upperBoundNanos(i) / 1e9;
+                out.write(name + "_bucket{" + labels + ",le=\"" + le + "\"} " + cumulative + "\n");
+            }
+            cumulative += histogram.count(LatencyHistogram.BUCKETS);
+            out.write(name + "_bucket{" + labels + ",le=\"+Inf\"} " + cumulative + "\n");
+            out.write(name + "_sum{" + labels + "} " + histogram.sumNanos() / 1e9 + "\n");
+            out.write(name + "_count{" + labels + "} " + cumulative + "\n");
+        }
+    }
+
+    static String escapeLabel(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    /**
+     * Prints a short summary per execution, platform and suite for the CLI.
+     */
+    public void printSummary() {
+        System.out.println("Executions started: " + executionsStarted.sum() + ", completed: " + executionsCompleted.sum()
+                + ", failed: " + executionsFailed.sum() + ", timed out: " + executionsTimedOut.sum() + ", queued: " + TestScheduler.getInstance().size());
+        Bulkheads.getInstance().printSummary();
+        printTable("Execution", executions);
+        printTable("Platform", platforms);
+        printTable("Suite", suites);
+        printTable("Test case", cases);
+    }
+
+    private static void printTable(String title, Map<String, LatencyHistogram> histograms) {
+        if (histograms.isEmpty()) return;
+        System.out.println("\n" + title + " durations (count / p50 / p99 / total):");
+        for (Map.Entry<String, LatencyHistogram> entry : new TreeMap<>(histograms).entrySet()) {
+            LatencyHistogram h = entry.getValue();
+            System.out.printf("  %-40s %6d  %10s  %10s  %10s%n", entry.getKey(), h.totalCount(),
+                    formatNanos(h.percentileNanos(50)), formatNanos(h.percentileNanos(99)), formatNanos(h.sumNanos()));
+        }
+    }
+
+    static String formatNanos(long nanos) {
+        if (nanos == Long.MAX_VALUE) return "> 137 s";
+        if (nanos < 1_000_000) return String.format("%.1f us", nanos / 1e3);
+        if (nanos < 1_000_000_000) return String.format("%.1f ms", nanos / 1e6);
+        return String.format("%.2f s", nanos / 1e9);
+    }
+
+    /**
+     * Starts writing a Prometheus snapshot file periodically on a daemon thread.
+     * The file is replaced atomically, so a scraper never reads a half-written snapshot.
+     * @param file Destination of the snapshot.
+     * @param periodSeconds Time between snapshots.
+     */
+    public synchronized void startSnapshots(Path file, long periodSeconds) {
+        if (snapshots != null) return;
+        snapshots = Executors.newSingleThreadScheduledExecutor(CronSchedulingEngine.daemonThreads("metrics-snapshot"));
+        snapshots.scheduleAtFixedRate(() -> {
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (Writer out = Files.newBufferedWriter(tmp)) {
+                writePrometheus(out);
+            } catch (IOException e) {
+                System.err.println("⚠ Error writing metrics snapshot: " + e.getMessage());
+                return;
+            }
+            try {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                System.err.println("⚠ Error writing metrics snapshot: " + e.getMessage());
+            }
+        }, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,314 @@
+/**
+ *Project: Testing Framework System
+ *
+ *@author Taha Yasir Colak
+ *@author Aykan Berk Ayvazoglu
+ *@author Cankat Caglar Acarer
+ *@author Bartu Nurgun
+ *
+ */
+package test_frame;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// How the framework's progress lines are written, chosen with -Dtfs.output=text|structured|quiet.
+enum OutputMode {
+    TEXT,       // the familiar "[TestCase] Executing: name" lines
+    STRUCTURED, // one JSON object per line, for tools reading the output
+    QUIET       // nothing at all
+}
+
+/**
+ * Destination of progress lines. A line is passed as its parts (source, message template and subject)
+ * and is only turned into text by the writer, so nothing is concatenated when output is disabled.
+ * In the template, "{}" is replaced by the subject; without it the subject is appended after a colon.
+ */
+interface OutputSink {
+    void emit(String source, String message, Object subject);
+
+    default void emit(String source, String message) {
+        emit(source, message, null);
+    }
+
+    // A line with several variable parts, see LineArgs.
+    default void emit(String source, String message, Object first, Object... more) {
+        if (!enabled()) return;
+        Object[] values = new Object[more.length + 1];
+        values[0] = first;
+        System.arraycopy(more, 0, values, 1, more.length);
+        emit(source, message, new LineArgs(values));
+    }
+
+    // Whether emitted lines are written at all; callers check it before building expensive subjects.
+    default boolean enabled() {
+        return true;
+    }
+
+    // Adds every line of the batch, in order.
+    default void append(OutputBatch batch) {
+        batch.replay(this);
+    }
+}
+
+/**
+ * Subject of a line with several variable parts: each "{}" of the template takes the next value
+ * and a value left over is appended after a colon, like a single subject.
+ */
+record LineArgs(Object[] values) {}
+
+/**
+ * Lines of one unit of work, typically a suite, collected without any locking.
+ * The batch reaches the shared writer in one piece, so its lines are never interleaved with others.
+ */
+class OutputBatch implements OutputSink {
+    private final boolean enabled;
+    private String[] sources = new String[8];
+    private String[] messages = new String[8];
+    private Object[] subjects = new Object[8];
+    private String[] threads = new String[8];
+    private long[] times = new long[8];
+    private int size;
+
+    public OutputBatch(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean enabled() {
+        return enabled;
+    }
+
+    public void emit(String source, String message, Object subject) {
+        if (!enabled) return;
+        ensureCapacity(size + 1);
+        sources[size] = source;
+        messages[size] = message;
+        subjects[size] = subject;
+        threads[size] = Thread.currentThread().getName();
+        times[size] = System.currentTimeMillis();
+        size++;
+    }
+
+    public void append(OutputBatch batch) {
+        if (!enabled || batch.size == 0) return;
+        ensureCapacity(size + batch.size);
+        System.arraycopy(batch.sources, 0, sources, size, batch.size);
+        System.arraycopy(batch.messages, 0, messages, size, batch.size);
+        System.arraycopy(batch.subjects, 0, subjects, size, batch.size);
+        System.arraycopy(batch.threads, 0, threads, size, batch.size);
+        System.arraycopy(batch.times, 0, times, size, batch.size);
+        size += batch.size;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= sources.length) return;
+        int grown = Math.max(capacity, sources.length * 2);
+        sources = Arrays.copyOf(sources, grown);
+        messages = Arrays.copyOf(messages, grown);
+        subjects = Arrays.copyOf(subjects, grown);
+        threads = Arrays.copyOf(threads, grown);
+        times = Arrays.copyOf(times, grown);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    void replay(OutputSink sink) {
+        for (int i = 0; i < size; i++) sink.emit(sources[i], messages[i], subjects[i]);
+    }
+
+    // Formats every line into the builder according to the mode.
+    void format(OutputMode mode, StringBuilder out) {
+        for (int i = 0; i < size; i++) {
+            if (mode == OutputMode.STRUCTURED) {
+                out.append("{\"time\": ").append(times[i])
+                        .append(", \"thread\": \"").append(escapeJson(threads[i]))
+                        .append("\", \"source\": \"").append(escapeJson(sources[i]))
+                        .append("\", \"message\": \"").append(escapeJson(messages[i])).append('"');
+                if (subjects[i] instanceof LineArgs args) {
+                    out.append(", \"args\": [");
+                    for (int v = 0; v < args.values().length; v++) {
+                        out.append(v == 0 ? "\"" : ", \"").append(escapeJson(String.valueOf(args.values()[v]))).append('"');
+                    }
+                    out.append(']');
+                } else if (subjects[i] != null) {
+                    out.append(", \"subject\": \"").append(escapeJson(subjects[i].toString())).append('"');
+                }
+                out.append("}\n");
+            } else {
+                out.append('[').append(sources[i]).append("] ");
+                if (subjects[i] instanceof LineArgs args) appendMessage(out, messages[i], args.values());
+                else appendMessage(out, messages[i], subjects[i]);
+                out.append('\n');
+            }
+        }
+    }
+
+    private static void appendMessage(StringBuilder out, String message, Object subject) {
+        int placeholder = message.indexOf("{}");
+        if (placeholder >= 0) {
+            out.append(message, 0, placeholder).append(subject).append(message, placeholder + 2, message.length());
+        } else {
+            out.append(message);
+            if (subject != null) out.append(": ").append(subject);
+        }
+    }
+
+    // Fills the placeholders in order; a value left over is appended after a colon.
+    private static void appendMessage(StringBuilder out, String message, Object[] values) {
+        int from = 0, used = 0, placeholder;
+        while (used < values.length && (placeholder = message.indexOf("{}", from)) >= 0) {
+            out.append(message, from, placeholder).append(values[used++]);
+            from = placeholder + 2;
+        }
+        out.append(message, from, message.length());
+        if (used < values.length && values[used] != null) out.append(": ").append(values[used]);
+    }
+
+    private static String escapeJson(String input) {
+        return input.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n").replace("\r", "\\r");
+    }
+}
+
+/**
+ * Console writer that takes progress lines off the execution threads.
+ * Emitting threads only place a batch in a bounded ring buffer; a single writer thread drains every
+ * batch queued in the meantime, formats them and writes them with one call, so test threads no longer
+ * contend on System.out for each line. When the ring is full, emitters wait, so no line is lost.
+ */
+class AsyncOutputWriter implements OutputSink {
+    static final int DEFAULT_CAPACITY = 4096;
+
+    private static AsyncOutputWriter instance;
+
+    private final PrintStream target;
+    private final OutputMode mode;
+    private final OutputBatch[] ring;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final Condition written = lock.newCondition();
+    private int head; // Index of the oldest unwritten batch
+    private int count;
+    private long published; // Batches handed to the ring so far
+    private long completed; // Batches written to the target so far
+
+    /**
+     * Creates the writer and starts its writer thread.
+     * @param target Stream the formatted lines are written to.
+     * @param mode Format of the lines, or QUIET to drop them.
+     * @param capacity Number of batches buffered before emitters wait.
+     */
+    public AsyncOutputWriter(PrintStream target, OutputMode mode, int capacity) {
+        this.target = target;
+        this.mode = mode;
+        this.ring = new OutputBatch[Math.max(1, capacity)];
+        if (mode == OutputMode.QUIET) return;
+        Thread writer = new Thread(this::writeLoop, "console-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    // Returns the shared console writer; pending lines are flushed when the JVM exits.
+    public static synchronized AsyncOutputWriter getInstance() {
+        if (instance == null) {
+            OutputMode mode = OutputMode.valueOf(System.getProperty("tfs.output", "text").toUpperCase());
+            instance = new AsyncOutputWriter(System.out, mode, DEFAULT_CAPACITY);
+            Runtime.getRuntime().addShutdownHook(new Thread(instance::flush, "console-flush"));
+        }
+        return instance;
+    }
+
+    public boolean enabled() {
+        return mode != OutputMode.QUIET;
+    }
+
+    public OutputMode getMode() {
+        return mode;
+    }
+
+    // A new batch for a unit of work whose lines should stay together.
+    public OutputBatch batch() {
+        return new OutputBatch(enabled());
+    }
+
+    public void emit(String source, String message, Object subject) {
+        if (!enabled()) return;
+        OutputBatch batch = new OutputBatch(true);
+        batch.emit(source, message, subject);
+        append(batch);
+    }
+
+    public void append(OutputBatch batch) {
+        if (!enabled() || batch.size() == 0) return;
+        lock.lock();
+        try {
+            while (count == ring.length) notFull.awaitUninterruptibly();
+            ring[(head + count) % ring.length] = batch;
+            count++;
+            published++;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until every line emitted before the call has been written, e.g. before prompting the user.
+     */
+    public void flush() {
+        if (!enabled()) return;
+        lock.lock();
+        try {
+            long target = published;
+            while (completed < target) {
+                if (!written.await(5, TimeUnit.SECONDS)) return; // Writer stuck, give up
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void writeLoop() {
+        StringBuilder text = new StringBuilder(8192);
+        OutputBatch[] taken = new OutputBatch[ring.length];
+        while (true) {
+            int n;
+            lock.lock();
+            try {
+                while (count == 0) notEmpty.awaitUninterruptibly();
+                n = count;
+                for (int i = 0; i < n; i++) {
+                    taken[i] = ring[head];
+                    ring[head] = null;
+                    head = (head + 1) % ring.length;
+                }
+                count = 0;
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            for (int i = 0; i < n; i++) {
+                taken[i].format(mode, text);
+                taken[i] = null;
+            }
+            target.print(text);
+            target.flush();
+            text.setLength(0);
+            if (text.capacity() > 1 << 20) text = new StringBuilder(8192); // Do not keep a huge buffer after a burst
+            lock.lock();
+            try {
+                completed += n;
+                written.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,560 @@
+/**
+ *Project: Testing Framework System
+ *
+ *@author Taha Yasir Colak
+ *@author Aykan Berk Ayvazoglu
+ *@author Cankat Caglar Acarer
+ *@author Bartu Nurgun
+ *
+ */
+package test_frame;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.TemporalAdjusters;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// Columns of the archive; each is stored and compressed separately so queries read only what they need.
+enum ArchiveColumn {
+    TIME(1),        // epoch milliseconds, delta encoded
+    PLATFORM(2),    // dictionary encoded
+    DESCRIPTION(3), // dictionary encoded
+    STATUS(4),      // one byte per record, see ArchiveBlock.PASSED
+    DURATION(5);    // milliseconds + 1, 0 when unknown
+
+    final int id;
+
+    ArchiveColumn(int id) {
+        this.id = id;
+    }
+
+    static ArchiveColumn byId(int id) {
+        for (ArchiveColumn column : values()) if (column.id == id) return column;
+        return null; // Written by a newer version; skipped
+    }
+}
+
+/**
+ * One decoded block of the archive. Arrays of columns that were not requested are null.
+ */
+class ArchiveBlock {
+    // Values of the status column
+    static final byte PASSED = 0;
+    static final byte FAILED = 1;
+    static final byte TIMED_OUT = 2;
+
+    int count;
+    long minEpochMillis;
+    long maxEpochMillis;
+    long[] epochMillis;
+    String[] platformDictionary;
+    int[] platformIds;
+    String[] descriptionDictionary;
+    int[] descriptionIds;
+    byte[] status;
+    long[] durationMillis; // -1 when unknown
+}
+
+/**
+ * Columnar binary archive for long-term execution history.
+ * Records are stored in blocks of up to 4096; inside a block every column is encoded on its own
+ * (timestamps as zig-zag varint deltas, platform and description as a block dictionary plus ids)
+ * and Deflater compressed. Each block header carries its record count and time range, so a scan
+ * skips blocks outside the requested range and columns it does not need without decompressing them.
+ *
+ * Layout: "TFSA" version, long committedLength, long archivedUntil, then blocks of
+ *   int magic, int count, long minEpoch, long maxEpoch, byte columns, and per column:
+ *   byte id, int rawLength, int compressedLength, compressed bytes.
+ * Blocks past committedLength belong to an append that never committed; scans ignore them and the next
+ * append overwrites them. Every log record older than archivedUntil is in the archive, so a compaction
+ * that crashed before replacing the log skips those records instead of archiving them twice.
+ * Version 1 archives have neither field and are upgraded on their first append.
+ */
+class ResultArchive {
+    static final String ARCHIVE_FILE = System.getProperty("tfs.archive.file",
+            Paths.get(ResultLogWriter.LOG_FILE).resolveSibling("test_log.archive").toString());
+    private static final byte[] FILE_MAGIC = {'T', 'F', 'S', 'A', 2};
+    private static final int FILE_HEADER = FILE_MAGIC.length + 8 + 8;
+    private static final int BLOCK_MAGIC = 0x424C4B31; // "BLK1"
+    private static final int BLOCK_HEADER = 4 + 4 + 8 + 8 + 1;
+    private static final int COLUMN_HEADER = 1 + 4 + 4;
+    static final int BLOCK_SIZE = 4096;
+
+    private final Path path;
+    private static final ReentrantLock appendLock = new ReentrantLock(); // Held by the open Appender, of any instance
+
+    ResultArchive(Path path) {
+        this.path = path;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Appends records to the archive and forces them to disk.
+     * @param records Records in log order.
+     */
+    public void append(List<LogRecord> records) throws IOException {
+        try (Appender appender = appender()) {
+            for (LogRecord record : records) appender.add(record);
+            appender.commit(Long.MIN_VALUE);
+        }
+    }
+
+    /**
+     * Opens the archive for appending; only one appender is open at a time.
+     * Blocks left behind by an append that never committed are discarded.
+     */
+    public Appender appender() throws IOException {
+        appendLock.lock();
+        try {
+            return new Appender();
+        } catch (IOException | RuntimeException e) {
+            appendLock.unlock();
+            throw e;
+        }
+    }
+
+    /**
+     * Writes records block by block; none of them is visible before commit().
+     * Must be closed on the thread that opened it.
+     */
+    class Appender implements AutoCloseable {
+        private final FileChannel channel;
+        private final List<LogRecord> pending = new ArrayList<>(BLOCK_SIZE);
+        private long position;
+        private long archivedUntil;
+
+        private Appender() throws IOException {
+            upgradeVersion1();
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                if (channel.size() == 0) {
+                    position = FILE_HEADER;
+                    archivedUntil = Long.MIN_VALUE;
+                    writeHeader();
+                } else {
+                    ByteBuffer header = readHeader(channel);
+                    position = header.getLong();
+                    archivedUntil = header.getLong();
+                    if (channel.size() > position) channel.truncate(position); // An append that never committed
+                }
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        // Every log record older than this is already archived.
+        public long archivedUntil() {
+            return archivedUntil;
+        }
+
+        public void add(LogRecord record) throws IOException {
+            pending.add(record);
+            if (pending.size() == BLOCK_SIZE) flush();
+        }
+
+        /**
+         * Forces the added records to disk, then makes them part of the archive.
+         * @param coveredUntil Every log record older than this is now archived; Long.MIN_VALUE leaves it unchanged.
+         */
+        public void commit(long coveredUntil) throws IOException {
+            flush();
+            channel.force(false);
+            archivedUntil = Math.max(archivedUntil, coveredUntil);
+            writeHeader();
+        }
+
+        private void flush() throws IOException {
+            if (pending.isEmpty()) return;
+            position += write(channel, encodeBlock(pending), position);
+            pending.clear();
+        }
+
+        private void writeHeader() throws IOException {
+            write(channel, ByteBuffer.allocate(FILE_HEADER).put(FILE_MAGIC).putLong(position).putLong(archivedUntil).flip(), 0);
+            channel.force(false);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                channel.close();
+            } finally {
+                appendLock.unlock();
+            }
+        }
+    }
+
+    // Rewrites a version 1 archive with the version 2 header, replacing it atomically.
+    private void upgradeVersion1() throws IOException {
+        if (!Files.exists(path) || Files.size(path) < FILE_MAGIC.length) return;
+        long size;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            size = channel.size();
+            ByteBuffer magic = read(channel, 0, FILE_MAGIC.length);
+            if (version(magic.array()) != 1) return;
+        }
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel from = FileChannel.open(path, StandardOpenOption.READ);
+             FileChannel to = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long blocks = size - FILE_MAGIC.length; // Everything after the version 1 magic
+            write(to, ByteBuffer.allocate(FILE_HEADER).put(FILE_MAGIC).putLong(FILE_HEADER + blocks).putLong(Long.MIN_VALUE).flip(), 0);
+            long copied = 0;
+            while (copied < blocks) copied += from.transferTo(FILE_MAGIC.length + copied, blocks - copied, to.position(FILE_HEADER + copied));
+            to.force(true);
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Version of a file starting with the given magic, or -1 if it is not an archive.
+    private static int version(byte[] magic) {
+        if (magic.length < FILE_MAGIC.length || !Arrays.equals(magic, 0, 4, FILE_MAGIC, 0, 4)) return -1;
+        return magic[4];
+    }
+
+    // The committed length and archivedUntil of a version 2 archive.
+    private ByteBuffer readHeader(FileChannel channel) throws IOException {
+        ByteBuffer magic = read(channel, 0, FILE_MAGIC.length);
+        if (version(magic.array()) != 2) throw new IOException("Not a result archive: " + path);
+        return read(channel, FILE_MAGIC.length, 16);
+    }
+
+    private static int write(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int written = 0;
+        while (buffer.hasRemaining()) written += channel.write(buffer, position + written);
+        return written;
+    }
+
+    private static ByteBuffer encodeBlock(List<LogRecord> records) {
+        long min = Long.MAX_VALUE, max = Long.MIN_VALUE;
+        for (LogRecord r : records) {
+            min = Math.min(min, r.getEpochMillis());
+            max = Math.max(max, r.getEpochMillis());
+        }
+        List<byte[]> columns = new ArrayList<>();
+        columns.add(column(ArchiveColumn.TIME, encodeTimes(records)));
+        columns.add(column(ArchiveColumn.PLATFORM, encodeDictionary(records, LogRecord::getPlatform)));
+        columns.add(column(ArchiveColumn.DESCRIPTION, encodeDictionary(records, LogRecord::getDescription)));
+        byte[] statuses = new byte[records.size()];
+        for (int i = 0; i < statuses.length; i++) {
+            statuses[i] = switch (records.get(i).getStatus()) {
+                case "PASSED" -> ArchiveBlock.PASSED;
+                case "TIMED_OUT" -> ArchiveBlock.TIMED_OUT;
+                default -> ArchiveBlock.FAILED;
+            };
+        }
+        columns.add(column(ArchiveColumn.STATUS, statuses));
+        ByteArrayOutputStream durations = new ByteArrayOutputStream();
+        for (LogRecord r : records) writeVarLong(durations, Math.max(-1, r.getDurationMillis()) + 1);
+        columns.add(column(ArchiveColumn.DURATION, durations.toByteArray()));
+
+        int size = BLOCK_HEADER;
+        for (byte[] c : columns) size += c.length;
+        ByteBuffer block = ByteBuffer.allocate(size);
+        block.putInt(BLOCK_MAGIC).putInt(records.size()).putLong(min).putLong(max).put((byte) columns.size());
+        for (byte[] c : columns) block.put(c);
+        return block.flip();
+    }
+
+    // Column header and compressed payload.
+    private static byte[] column(ArchiveColumn column, byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        deflater.setInput(raw);
+        deflater.finish();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(raw.length / 2 + 64);
+        byte[] buffer = new byte[8192];
+        while (!deflater.finished()) compressed.write(buffer, 0, deflater.deflate(buffer));
+        deflater.end();
+        return ByteBuffer.allocate(COLUMN_HEADER + compressed.size()).put((byte) column.id)
+                .putInt(raw.length).putInt(compressed.size()).put(compressed.toByteArray()).array();
+    }
+
+    private static byte[] encodeTimes(List<LogRecord> records) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(records.size() * 2);
+        long previous = 0;
+        for (LogRecord r : records) {
+            long delta = r.getEpochMillis() - previous;
+            writeVarLong(out, (delta << 1) ^ (delta >> 63)); // Zig-zag, records are not strictly ordered
+            previous = r.getEpochMillis();
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] encodeDictionary(List<LogRecord> records, Function<LogRecord, String> field) {
+        Map<String, Integer> ids = new LinkedHashMap<>();
+        int[] values = new int[records.size()];
+        for (int i = 0; i < values.length; i++) values[i] = ids.computeIfAbsent(field.apply(records.get(i)), k -> ids.size());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeVarLong(out, ids.size());
+        for (String entry : ids.keySet()) {
+            byte[] bytes = entry.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(out, bytes.length);
+            out.write(bytes, 0, bytes.length);
+        }
+        for (int value : values) writeVarLong(out, value);
+        return out.toByteArray();
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+    }
+
+    /**
+     * Decodes the requested columns of every block overlapping the time range.
+     * Other blocks, and the other columns of matching blocks, are skipped without being read.
+     * @param columns Columns to decode.
+     * @param sinceMillis Inclusive lower bound of the block time range.
+     * @param untilMillis Exclusive upper bound of the block time range.
+     * @param visitor Receives each decoded block; it still has to check individual timestamps if it needs to.
+     */
+    public void scan(Set<ArchiveColumn> columns, long sinceMillis, long untilMillis, Consumer<ArchiveBlock> visitor) throws IOException {
+        if (!Files.exists(path)) return;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < FILE_MAGIC.length) throw new IOException("Not a result archive: " + path);
+            long position, size;
+            if (version(read(channel, 0, FILE_MAGIC.length).array()) == 1) {
+                position = FILE_MAGIC.length;
+                size = channel.size();
+            } else {
+                position = FILE_HEADER;
+                size = Math.min(channel.size(), readHeader(channel).getLong()); // Uncommitted blocks are ignored
+            }
+            while (position + BLOCK_HEADER <= size) {
+                ByteBuffer header = read(channel, position, BLOCK_HEADER);
+                if (header.getInt() != BLOCK_MAGIC) throw new IOException("Corrupt archive block at offset " + position);
+                ArchiveBlock block = new ArchiveBlock();
+                block.count = header.getInt();
+                block.minEpochMillis = header.getLong();
+                block.maxEpochMillis = header.getLong();
+                int columnCount = header.get();
+                boolean inRange = block.maxEpochMillis >= sinceMillis && block.minEpochMillis < untilMillis;
+                position += BLOCK_HEADER;
+                for (int i = 0; i < columnCount; i++) {
+                    ByteBuffer columnHeader = read(channel, position, COLUMN_HEADER);
+                    ArchiveColumn column = ArchiveColumn.byId(columnHeader.get());
+                    int rawLength = columnHeader.getInt();
+                    int compressedLength = columnHeader.getInt();
+                    position += COLUMN_HEADER;
+                    if (inRange && column != null && columns.contains(column)) {
+                        decode(column, inflate(read(channel, position, compressedLength).array(), rawLength), block);
+                    }
+                    position += compressedLength;
+                }
+                if (inRange) visitor.accept(block);
+            }
+        }
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) throw new EOFException("Truncated archive");
+        }
+        return buffer.flip();
+    }
+
+    private static ByteBuffer inflate(byte[] compressed, int rawLength) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            byte[] raw = new byte[rawLength];
+            int n = 0;
+            while (n < rawLength && !inflater.finished()) n += inflater.inflate(raw, n, rawLength - n);
+            return ByteBuffer.wrap(raw);
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt archive column", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static void decode(ArchiveColumn column, ByteBuffer in, ArchiveBlock block) {
+        int count = block.count;
+        switch (column) {
+            case TIME -> {
+                block.epochMillis = new long[count];
+                long previous = 0;
+                for (int i = 0; i < count; i++) {
+                    long zigzag = readVarLong(in);
+                    previous += (zigzag >>> 1) ^ -(zigzag & 1);
+                    block.epochMillis[i] = previous;
+                }
+            }
+            case PLATFORM -> {
+                block.platformDictionary = readDictionary(in);
+                block.platformIds = readIds(in, count);
+            }
+            case DESCRIPTION -> {
+                block.descriptionDictionary = readDictionary(in);
+                block.descriptionIds = readIds(in, count);
+            }
+            case STATUS -> {
+                block.status = new byte[count];
+                in.get(block.status);
+            }
+            case DURATION -> {
+                block.durationMillis = new long[count];
+                for (int i = 0; i < count; i++) block.durationMillis[i] = readVarLong(in) - 1;
+            }
+        }
+    }
+
+    private static String[] readDictionary(ByteBuffer in) {
+        String[] dictionary = new String[(int) readVarLong(in)];
+        for (int i = 0; i < dictionary.length; i++) {
+            byte[] bytes = new byte[(int) readVarLong(in)];
+            in.get(bytes);
+            dictionary[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return dictionary;
+    }
+
+    private static int[] readIds(ByteBuffer in, int count) {
+        int[] ids = new int[count];
+        for (int i = 0; i < count; i++) ids[i] = (int) readVarLong(in);
+        return ids;
+    }
+}
+
+/**
+ * Aggregate queries over the archive. Each query decodes only the columns it uses.
+ */
+class ArchiveStats {
+    // Runs and passes of one platform in one week.
+    record WeeklyPassRate(String platform, LocalDate weekStart, long runs, long passed) {
+        double passRate() {
+            return runs == 0 ? 0 : (double) passed / runs;
+        }
+    }
+
+    private final ResultArchive archive;
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    ArchiveStats(ResultArchive archive) {
+        this.archive = archive;
+    }
+
+    /**
+     * Counts runs and passes per platform per week (weeks start on Monday).
+     * Reads the time, platform and status columns only.
+     * @return One entry per platform and week, ordered by platform, then week.
+     */
+    public List<WeeklyPassRate> weeklyPassRates() throws IOException {
+        Map<String, TreeMap<LocalDate, long[]>> counts = new TreeMap<>();
+        archive.scan(EnumSet.of(ArchiveColumn.TIME, ArchiveColumn.PLATFORM, ArchiveColumn.STATUS),
+                Long.MIN_VALUE, Long.MAX_VALUE, block -> {
+            for (int i = 0; i < block.count; i++) {
+                LocalDate week = Instant.ofEpochMilli(block.epochMillis[i]).atZone(zone).toLocalDate()
+                        .with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+                long[] runsAndPassed = counts.computeIfAbsent(block.platformDictionary[block.platformIds[i]], p -> new TreeMap<>())
+                        .computeIfAbsent(week, w -> new long[2]);
+                runsAndPassed[0]++;
+                if (block.status[i] == ArchiveBlock.PASSED) runsAndPassed[1]++;
+            }
+        });
+        List<WeeklyPassRate> rates = new ArrayList<>();
+        counts.forEach((platform, weeks) -> weeks.forEach((week, c) -> rates.add(new WeeklyPassRate(platform, week, c[0], c[1]))));
+        return rates;
+    }
+
+    /**
+     * Computes duration percentiles of the archived executions with a known duration.
+     * Reads the duration column, plus the platform column when filtering by platform.
+     * @param platform Platform to restrict to (case-insensitive), or null for all.
+     * @param percentiles Percentiles between 0 and 100.
+     * @return Duration in milliseconds per requested percentile, or an empty array if nothing matched.
+     */
+    public long[] durationPercentiles(String platform, double... percentiles) throws IOException {
+        Set<ArchiveColumn> columns = platform == null ? EnumSet.of(ArchiveColumn.DURATION)
+                : EnumSet.of(ArchiveColumn.DURATION, ArchiveColumn.PLATFORM);
+        OffsetList durations = new OffsetList(); // Growable long array
+        archive.scan(columns, Long.MIN_VALUE, Long.MAX_VALUE, block -> {
+            for (int i = 0; i < block.count; i++) {
+                if (block.durationMillis[i] < 0) continue;
+                if (platform != null && !block.platformDictionary[block.platformIds[i]].equalsIgnoreCase(platform)) continue;
+                durations.add(block.durationMillis[i]);
+            }
+        });
+        if (durations.size() == 0) return new long[0];
+        long[] sorted = durations.toArray();
+        Arrays.sort(sorted);
+        long[] result = new long[percentiles.length];
+        for (int i = 0; i < percentiles.length; i++) {
+            int rank = (int) Math.ceil(sorted.length * percentiles[i] / 100.0);
+            result[i] = sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+        }
+        return result;
+    }
+}
+
+/**
+ * Moves result log records older than a cutoff into the archive.
+ */
+class LogCompactor {
+    private LogCompactor() {}
+
+    /**
+     * Archives every record of the result log older than the given number of days and removes it from the log.
+     * The removed records are streamed into the archive block by block. Records a crashed earlier compaction
+     * already archived are removed from the log without being archived again.
+     * @param days Age in days from which records are archived, at least 1.
+     * @return Number of records removed from the log.
+     * @throws IllegalArgumentException If days is less than 1.
+     */
+    public static int compact(int days) throws IOException {
+        if (days < 1) throw new IllegalArgumentException("Days must be at least 1: " + days);
+        return compact(ResultLogWriter.getInstance(), new ResultArchive(Paths.get(ResultArchive.ARCHIVE_FILE)),
+                System.currentTimeMillis() - days * 86_400_000L);
+    }
+
+    // Moves the records of the log older than the cutoff into the archive.
+    static int compact(ResultLogWriter log, ResultArchive archive, long cutoff) throws IOException {
+        try (ResultArchive.Appender appender = archive.appender()) {
+            long archivedUntil = appender.archivedUntil();
+            return log.rewrite(line -> {
+                LogRecord record = LogRecord.parse(line);
+                return record == null || record.getEpochMillis() >= cutoff;
+            }, new ResultLogWriter.RemovedRecords() {
+                public void accept(String line) throws IOException {
+                    LogRecord record = LogRecord.parse(line);
+                    if (record.getEpochMillis() >= archivedUntil) appender.add(record);
+                }
+
+                public void complete() throws IOException {
+                    appender.commit(cutoff);
+                }
+            });
+        }
+    }
+}
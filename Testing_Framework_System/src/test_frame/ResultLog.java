@@ -0,0 +1,320 @@
+/**
+ *Project: Testing Framework System
+ *
+ *@author Taha Yasir Colak
+ *@author Aykan Berk Ayvazoglu
+ *@author Cankat Caglar Acarer
+ *@author Bartu Nurgun
+ *
+ */
+package test_frame;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+// Controls when group commits are forced to disk.
+enum FsyncPolicy {
+    ALWAYS,   // force after every group commit
+    INTERVAL, // force at most once per configured interval
+    NEVER;    // leave flushing to the operating system
+
+    // Parses a policy name case-insensitively; an unknown name falls back to the default with a warning.
+    static FsyncPolicy parse(String name, FsyncPolicy defaultPolicy) {
+        try {
+            return valueOf(name.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.err.println("[ResultLog] Unknown fsync policy '" + name + "', using " + defaultPolicy.name().toLowerCase());
+            return defaultPolicy;
+        }
+    }
+}
+
+/**
+ * Append-only writer for the execution result log.
+ * Each result is one JSON object per line (NDJSON) appended through a single FileChannel,
+ * so writing a result costs only the size of that record instead of rewriting the whole history.
+ * Callers hand their record to a committer thread, which drains every record queued in the meantime
+ * and writes them as one group commit followed by an fsync according to the configured policy.
+ */
+class ResultLogWriter {
+    static final String LOG_FILE = System.getProperty("tfs.log.file", "test_log.ndjson"); // Relocatable with -Dtfs.log.file
+    static final String LEGACY_FILE = Paths.get(LOG_FILE).resolveSibling("test_log.json").toString(); // JSON-array form
+    private static final int MAX_BATCH = 256;
+
+    private static ResultLogWriter instance;
+
+    private final Path path;
+    private FileChannel channel; // Replaced only by rewrite(), under commitLock
+    private final FsyncPolicy fsyncPolicy;
+    private final long fsyncIntervalMillis;
+    private final BlockingQueue<PendingRecord> queue = new LinkedBlockingQueue<>();
+    private final List<CommitListener> listeners = new CopyOnWriteArrayList<>();
+    private final ReentrantLock commitLock = new ReentrantLock(); // Held while a group commit or a rewrite runs
+    private long position; // End of the log; only touched under commitLock after construction
+    private long lastForce = System.currentTimeMillis();
+    private volatile boolean unforced; // Written data not forced yet under FsyncPolicy.INTERVAL; written under commitLock
+
+    private record PendingRecord(String record, byte[] bytes, CompletableFuture<Long> offset) {}
+
+    // Notified on the committer thread, in log order, after each group commit has been written and its callers completed.
+    interface CommitListener {
+        void committed(long[] offsets, List<String> records);
+
+        // Called after rewrite() replaced the log, so every earlier offset is invalid.
+        default void logReplaced() {}
+    }
+
+    // Receives the records removed by rewrite(), one at a time while the log is read.
+    interface RemovedRecords {
+        void accept(String record) throws IOException;
+
+        // Called after the last removed record and before the log is replaced; must make the records durable.
+        void complete() throws IOException;
+    }
+
+    /**
+     * Opens (or creates) the log and starts the committer thread.
+     * @param path Location of the NDJSON log.
+     * @param fsyncPolicy When group commits are forced to disk.
+     * @param fsyncIntervalMillis Minimum time between forces under FsyncPolicy.INTERVAL.
+     */
+    ResultLogWriter(Path path, FsyncPolicy fsyncPolicy, long fsyncIntervalMillis) throws IOException {
+        this.path = path;
+        this.fsyncPolicy = fsyncPolicy;
+        this.fsyncIntervalMillis = fsyncIntervalMillis;
+        boolean migrate = !Files.exists(path);
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        this.position = channel.size();
+        if (migrate) importLegacyLog(Paths.get(LEGACY_FILE));
+
+        Thread committer = new Thread(this::commitLoop, "result-log-committer");
+        committer.setDaemon(true);
+        committer.start();
+    }
+
+    // Returns the shared writer; the fsync policy can be chosen with -Dtfs.log.fsync=always|interval|never.
+    public static synchronized ResultLogWriter getInstance() throws IOException {
+        if (instance == null) {
+            FsyncPolicy policy = FsyncPolicy.parse(System.getProperty("tfs.log.fsync", "interval"), FsyncPolicy.INTERVAL);
+            long interval = Long.getLong("tfs.log.fsyncIntervalMillis", 1000);
+            instance = new ResultLogWriter(Paths.get(LOG_FILE), policy, interval);
+            // No record can be appended before getInstance returns, so the index sees every commit.
+            instance.addListener(ResultLogIndex.getInstance());
+        }
+        return instance;
+    }
+
+    public void addListener(CommitListener listener) {
+        listeners.add(listener);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Queues a single-line JSON record for the next group commit.
+     * @param record A JSON object without line breaks.
+     * @return Future completed with the record's byte offset once it has been written.
+     */
+    public CompletableFuture<Long> append(String record) {
+        CompletableFuture<Long> offset = new CompletableFuture<>();
+        queue.add(new PendingRecord(record, (record + "\n").getBytes(StandardCharsets.UTF_8), offset));
+        return offset;
+    }
+
+    // An idle log still gets its last batch forced once the fsync interval has passed.
+    private void commitLoop() {
+        List<PendingRecord> batch = new ArrayList<>(MAX_BATCH);
+        while (true) {
+            try {
+                PendingRecord first = unforced
+                        ? queue.poll(Math.max(1, lastForce + fsyncIntervalMillis - System.currentTimeMillis()), TimeUnit.MILLISECONDS)
+                        : queue.take();
+                commitLock.lock();
+                try {
+                    if (first == null) {
+                        forceIdle();
+                        continue;
+                    }
+                    batch.add(first);
+                    queue.drainTo(batch, MAX_BATCH - 1);
+                    commit(batch);
+                } finally {
+                    commitLock.unlock();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // Nothing must stop the committer; callers whose records were not written see the failure.
+                for (PendingRecord r : batch) r.offset().completeExceptionally(e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    // Writes a batch with a single channel write, completes each caller's future, then notifies the listeners.
+    private void commit(List<PendingRecord> batch) {
+        int size = 0;
+        for (PendingRecord r : batch) size += r.bytes().length;
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        long[] offsets = new long[batch.size()];
+        for (int i = 0; i < batch.size(); i++) {
+            offsets[i] = position + buffer.position();
+            buffer.put(batch.get(i).bytes());
+        }
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) position += channel.write(buffer, position);
+            force();
+        } catch (IOException e) {
+            for (PendingRecord r : batch) r.offset().completeExceptionally(e);
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) batch.get(i).offset().complete(offsets[i]);
+        if (listeners.isEmpty()) return;
+        List<String> records = new ArrayList<>(batch.size());
+        for (PendingRecord r : batch) records.add(r.record());
+        for (CommitListener listener : listeners) {
+            try {
+                listener.committed(offsets, records);
+            } catch (RuntimeException e) {
+                // The records are written either way; a listener that missed them catches up from the log.
+                System.err.println("[ResultLog] Commit listener failed: " + e);
+            }
+        }
+    }
+
+    private void force() throws IOException {
+        long now = System.currentTimeMillis();
+        if (fsyncPolicy == FsyncPolicy.ALWAYS
+                || (fsyncPolicy == FsyncPolicy.INTERVAL && now - lastForce >= fsyncIntervalMillis)) {
+            channel.force(false);
+            lastForce = now;
+            unforced = false;
+        } else if (fsyncPolicy == FsyncPolicy.INTERVAL) {
+            unforced = true;
+        }
+    }
+
+    // Forces the batches the interval skipped once no further commit came to do it.
+    private void forceIdle() {
+        try {
+            channel.force(false);
+        } catch (IOException e) {
+            System.err.println("[ResultLog] Could not force the log: " + e.getMessage());
+        }
+        lastForce = System.currentTimeMillis();
+        unforced = false;
+    }
+
+    // Moves the entries of an existing JSON-array log into the new NDJSON log the first time it is created.
+    private void importLegacyLog(Path legacy) throws IOException {
+        if (!Files.exists(legacy)) return;
+        StringBuilder records = new StringBuilder();
+        try (BufferedReader reader = Files.newBufferedReader(legacy)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.endsWith(",")) line = line.substring(0, line.length() - 1);
+                if (line.startsWith("{")) records.append(line).append('\n');
+            }
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(records.toString().getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) position += channel.write(buffer, position);
+        channel.force(false);
+    }
+
+    /**
+     * Replaces the log with the records the filter keeps, streaming the others to the consumer.
+     * No group commit runs meanwhile; records appended in the meantime wait and go into the new log.
+     * The removed records are made durable before the log is replaced, so a crash in between
+     * leaves them in both places rather than losing them.
+     * @param keep Returns true for each record that stays in the log.
+     * @param removed Receives the removed records in log order and must make them durable.
+     * @return Number of removed records.
+     */
+    public int rewrite(Predicate<String> keep, RemovedRecords removed) throws IOException {
+        commitLock.lock();
+        try {
+            int removedCount = 0;
+            Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+            try (BufferedReader reader = Files.newBufferedReader(path);
+                 BufferedWriter writer = Files.newBufferedWriter(tmp)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isBlank()) continue;
+                    if (keep.test(line)) {
+                        writer.write(line);
+                        writer.write('\n');
+                    } else {
+                        removed.accept(line);
+                        removedCount++;
+                    }
+                }
+            }
+            if (removedCount == 0) {
+                Files.delete(tmp);
+                return 0;
+            }
+            try (FileChannel written = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                written.force(true);
+            }
+            removed.complete();
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            channel.close();
+            channel = FileChannel.open(path, StandardOpenOption.WRITE);
+            position = channel.size();
+            unforced = false; // The new log was forced before it replaced the old one
+            for (CommitListener listener : listeners) listener.logReplaced();
+            return removedCount;
+        } finally {
+            commitLock.unlock();
+        }
+    }
+
+    /**
+     * Exports the NDJSON log into the JSON-array layout used by test_log.json.
+     * The export streams line by line and replaces the target atomically. Like rewrite(), it holds off
+     * group commits meanwhile, so it never copies a half-written last line.
+     * @param target File to write the JSON array to.
+     */
+    public void exportJsonArray(Path target) throws IOException {
+        commitLock.lock();
+        try {
+            Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+            try (BufferedReader reader = Files.newBufferedReader(path);
+                 BufferedWriter writer = Files.newBufferedWriter(tmp)) {
+                writer.write("[");
+                String line;
+                boolean first = true;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isBlank()) continue;
+                    writer.write(first ? "\n  " : ",\n  ");
+                    writer.write(line);
+                    first = false;
+                }
+                writer.write("\n]\n");
+            }
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            commitLock.unlock();
+        }
+    }
+}
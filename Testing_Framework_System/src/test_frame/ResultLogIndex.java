@@ -0,0 +1,259 @@
+/**
+ *Project: Testing Framework System
+ *
+ *@author Taha Yasir Colak
+ *@author Aykan Berk Ayvazoglu
+ *@author Cankat Caglar Acarer
+ *@author Bartu Nurgun
+ *
+ */
+package test_frame;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+// Growable array of log offsets, kept in ascending order because the log is only appended to.
+class OffsetList {
+    private long[] offsets = new long[4];
+    private int size;
+
+    public void add(long offset) {
+        if (size == offsets.length) offsets = Arrays.copyOf(offsets, size * 2);
+        offsets[size++] = offset;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long get(int i) {
+        return offsets[i];
+    }
+
+    public long[] toArray() {
+        return Arrays.copyOf(offsets, size);
+    }
+}
+
+/**
+ * Secondary index over the NDJSON result log, persisted in a sidecar file next to it.
+ * It keeps a sorted timestamp index plus inverted indexes on platform and description tokens,
+ * all pointing at byte offsets in the log, so queries can seek straight to the matching records.
+ * The index is updated by the log writer on every group commit and caught up from the log
+ * whenever it is opened, so a missing or partial sidecar is rebuilt incrementally.
+ */
+class ResultLogIndex implements ResultLogWriter.CommitListener {
+    static final String INDEX_SUFFIX = ".idx";
+
+    private static ResultLogIndex instance;
+
+    private final Path logPath;
+    private final Path indexPath;
+    private final TreeMap<Long, OffsetList> byTime = new TreeMap<>();
+    private final Map<String, OffsetList> byPlatform = new HashMap<>();
+    private final TreeMap<String, OffsetList> byToken = new TreeMap<>();
+    private long indexedEnd; // Log offset up to which every record is indexed
+    private long lastOffset = -1; // Offset of the last indexed record, used to detect a replaced log
+    private long lastEpochMillis;
+    private BufferedWriter sidecar;
+
+    private ResultLogIndex(Path logPath) {
+        this.logPath = logPath;
+        this.indexPath = logPath.resolveSibling(logPath.getFileName() + INDEX_SUFFIX);
+    }
+
+    public static synchronized ResultLogIndex getInstance() throws IOException {
+        if (instance == null) {
+            instance = new ResultLogIndex(Paths.get(ResultLogWriter.LOG_FILE));
+            instance.load();
+        }
+        instance.catchUp();
+        return instance;
+    }
+
+    // Splits a description into lower-case alphanumeric tokens.
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        for (String token : text.toLowerCase().split("[^\\p{Alnum}]+")) if (!token.isEmpty()) tokens.add(token);
+        return tokens;
+    }
+
+    // Reads the sidecar, keeping the valid prefix; falls back to a full rebuild if it does not match the log any more.
+    private synchronized void load() throws IOException {
+        long validLength = 0;
+        if (Files.exists(indexPath)) {
+            try (BufferedReader reader = Files.newBufferedReader(indexPath)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] fields = line.split("\t", -1);
+                    if (fields.length != 4) break; // Torn write at the end of the sidecar
+                    long offset = Long.parseLong(fields[0]);
+                    put(offset, Long.parseLong(fields[1]), fields[2], fields[3].isEmpty() ? List.of() : List.of(fields[3].split(" ")));
+                    validLength += line.getBytes(StandardCharsets.UTF_8).length + 1;
+                }
+            } catch (NumberFormatException e) {
+                // Keep what was read before the corrupt line
+            }
+            // An unterminated last line or a log that changed underneath means the sidecar is stale.
+            if (validLength > Files.size(indexPath) || (lastOffset >= 0 && !matchesLog())) {
+                clear();
+                validLength = 0;
+            }
+        }
+        try (FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            channel.truncate(validLength);
+        }
+        sidecar = Files.newBufferedWriter(indexPath, StandardOpenOption.APPEND);
+    }
+
+    // Checks that the last indexed record is still at the same place in the log and sets indexedEnd past it.
+    private boolean matchesLog() throws IOException {
+        String line = ResultLogReader.readLine(logPath, lastOffset);
+        LogRecord record = line == null ? null : LogRecord.parse(line);
+        if (record == null || record.getEpochMillis() != lastEpochMillis) return false;
+        indexedEnd = lastOffset + line.getBytes(StandardCharsets.UTF_8).length + 1;
+        return true;
+    }
+
+    /**
+     * Indexes every record appended to the log since the last indexed offset.
+     * If the log is shorter than the index, it was replaced, and the index is rebuilt from scratch.
+     */
+    public synchronized void catchUp() throws IOException {
+        long size = Files.exists(logPath) ? Files.size(logPath) : 0;
+        if (size < indexedEnd) {
+            clear();
+            sidecar.close();
+            sidecar = Files.newBufferedWriter(indexPath);
+        }
+        if (size == indexedEnd) return;
+        try {
+            long end = new ResultLogReader(logPath).scan(indexedEnd, (offset, record) -> {
+                index(offset, record);
+                return true;
+            });
+            indexedEnd = Math.max(indexedEnd, end);
+            sidecar.flush();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // The log was rewritten, so every offset changed: index it again from the start.
+    public synchronized void logReplaced() {
+        clear();
+        try {
+            sidecar.close();
+            sidecar = Files.newBufferedWriter(indexPath);
+            catchUp();
+        } catch (IOException e) {
+            System.err.println("⚠ Error rebuilding log index: " + e.getMessage());
+        }
+    }
+
+    // Called by the log writer on its committer thread, in log order, after every group commit.
+    public synchronized void committed(long[] offsets, List<String> records) {
+        try {
+            for (int i = 0; i < offsets.length; i++) {
+                if (offsets[i] < indexedEnd) continue; // Already picked up by catchUp()
+                LogRecord record = LogRecord.parse(records.get(i));
+                if (record != null) index(offsets[i], record);
+                indexedEnd = offsets[i] + records.get(i).getBytes(StandardCharsets.UTF_8).length + 1;
+            }
+            sidecar.flush();
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("⚠ Error updating log index: " + e.getMessage());
+        }
+    }
+
+    private void index(long offset, LogRecord record) {
+        String platform = record.getPlatform().toLowerCase();
+        List<String> tokens = tokenize(record.getDescription());
+        put(offset, record.getEpochMillis(), platform, tokens);
+        try {
+            sidecar.write(offset + "\t" + record.getEpochMillis() + "\t" + platform + "\t" + String.join(" ", tokens));
+            sidecar.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void put(long offset, long epochMillis, String platform, List<String> tokens) {
+        byTime.computeIfAbsent(epochMillis, k -> new OffsetList()).add(offset);
+        byPlatform.computeIfAbsent(platform, k -> new OffsetList()).add(offset);
+        for (String token : new HashSet<>(tokens)) byToken.computeIfAbsent(token, k -> new OffsetList()).add(offset);
+        lastOffset = offset;
+        lastEpochMillis = epochMillis;
+    }
+
+    private void clear() {
+        byTime.clear();
+        byPlatform.clear();
+        byToken.clear();
+        indexedEnd = 0;
+        lastOffset = -1;
+    }
+
+    /**
+     * Resolves the indexed filters of a query to the offsets of candidate records.
+     * Candidates still have to be checked with LogQuery.matches, since description
+     * filters are substrings and the token index only narrows them down.
+     * @param query The query to resolve.
+     * @return Ascending offsets of candidate records, or null if the query has no indexed filter.
+     */
+    public synchronized long[] lookup(LogQuery query) {
+        List<long[]> sets = new ArrayList<>();
+        if (query.platform != null) {
+            OffsetList list = byPlatform.get(query.platform.toLowerCase());
+            sets.add(list == null ? new long[0] : list.toArray());
+        }
+        if (query.sinceMillis != Long.MIN_VALUE || query.untilMillis != Long.MAX_VALUE) {
+            OffsetList range = new OffsetList();
+            for (OffsetList list : byTime.subMap(query.sinceMillis, true, query.untilMillis, false).values())
+                for (int i = 0; i < list.size(); i++) range.add(list.get(i));
+            long[] offsets = range.toArray();
+            Arrays.sort(offsets); // Timestamps are not strictly monotonic in the log
+            sets.add(offsets);
+        }
+        if (query.descriptionContains != null) {
+            // A query token may be any part of a record token, so take the union over the matching vocabulary.
+            for (String queryToken : tokenize(query.descriptionContains)) {
+                TreeSet<Long> union = new TreeSet<>();
+                for (Map.Entry<String, OffsetList> e : byToken.entrySet()) {
+                    if (!e.getKey().contains(queryToken)) continue;
+                    for (int i = 0; i < e.getValue().size(); i++) union.add(e.getValue().get(i));
+                }
+                sets.add(union.stream().mapToLong(Long::longValue).toArray());
+            }
+        }
+        if (sets.isEmpty()) return null;
+        long[] result = sets.get(0);
+        for (int i = 1; i < sets.size(); i++) result = intersect(result, sets.get(i));
+        return result;
+    }
+
+    public synchronized long getIndexedEnd() {
+        return indexedEnd;
+    }
+
+    private static long[] intersect(long[] a, long[] b) {
+        long[] out = new long[Math.min(a.length, b.length)];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) i++;
+            else if (a[i] > b[j]) j++;
+            else {
+                out[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+}
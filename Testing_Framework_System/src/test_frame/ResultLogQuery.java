@@ -0,0 +1,372 @@
+/**
+ *Project: Testing Framework System
+ *
+ *@author Taha Yasir Colak
+ *@author Aykan Berk Ayvazoglu
+ *@author Cankat Caglar Acarer
+ *@author Bartu Nurgun
+ *
+ */
+package test_frame;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.BooleanSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// One parsed line of the result log.
+class LogRecord {
+    private final String json;
+    private final String description;
+    private final String platform;
+    private final long epochMillis;
+    private final String status;
+    private final long durationMillis;
+
+    private LogRecord(String json, String description, String platform, long epochMillis, String status, long durationMillis) {
+        this.json = json;
+        this.description = description;
+        this.platform = platform;
+        this.epochMillis = epochMillis;
+        this.status = status;
+        this.durationMillis = durationMillis;
+    }
+
+    /**
+     * Parses a single-line JSON record written by TestManager.
+     * Records imported from the old JSON-array log have no epochMillis, so their timestamp string is parsed instead.
+     * Records written before status and duration were logged only exist for completed cycles, so they count as passed.
+     * @param json The raw record.
+     * @return The parsed record, or null if the line is not a record.
+     */
+    public static LogRecord parse(String json) {
+        if (!json.startsWith("{")) return null;
+        String description = stringField(json, "description");
+        String platform = stringField(json, "platform");
+        long epochMillis = longField(json, "epochMillis", Long.MIN_VALUE);
+        if (epochMillis == Long.MIN_VALUE) epochMillis = parseDate(stringField(json, "timestamp"));
+        String status = stringField(json, "status");
+        return new LogRecord(json, description == null ? "" : description, platform == null ? "" : platform, epochMillis,
+                status == null ? "PASSED" : status, longField(json, "durationMillis", -1));
+    }
+
+    // Reads a string value, undoing the escaping done by TestManager.escapeJson.
+    static String stringField(String json, String key) {
+        int start = valueStart(json, key);
+        if (start < 0 || start >= json.length() || json.charAt(start) != '"') return null;
+        StringBuilder value = new StringBuilder();
+        for (int i = start + 1; i < json.length(); i++) {
+            char c = json.charAt(i);
+            if (c == '"') return value.toString();
+            if (c == '\\' && i + 1 < json.length()) {
+                char next = json.charAt(++i);
+                value.append(next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+            } else {
+                value.append(c);
+            }
+        }
+        return null;
+    }
+
+    static long longField(String json, String key, long fallback) {
+        int start = valueStart(json, key);
+        if (start < 0) return fallback;
+        int end = start;
+        while (end < json.length() && (Character.isDigit(json.charAt(end)) || json.charAt(end) == '-')) end++;
+        try {
+            return Long.parseLong(json.substring(start, end));
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    private static int valueStart(String json, String key) {
+        int keyAt = json.indexOf("\"" + key + "\"");
+        if (keyAt < 0) return -1;
+        int colon = json.indexOf(':', keyAt + key.length() + 2);
+        if (colon < 0) return -1;
+        int start = colon + 1;
+        while (start < json.length() && json.charAt(start) == ' ') start++;
+        return start;
+    }
+
+    private static long parseDate(String timestamp) {
+        if (timestamp == null) return 0;
+        try {
+            return new SimpleDateFormat("EEE MMM dd HH:mm:ss zzz yyyy", Locale.US).parse(timestamp).getTime();
+        } catch (ParseException e) {
+            return 0;
+        }
+    }
+
+    public String getJson() {
+        return json;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public String getPlatform() {
+        return platform;
+    }
+
+    public long getEpochMillis() {
+        return epochMillis;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public boolean isPassed() {
+        return status.equals("PASSED");
+    }
+
+    // Duration of the execution in milliseconds, or -1 if the record predates it.
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+}
+
+/**
+ * Filters and paging options for reading the result log.
+ * Options use the command-line form, e.g. "--platform AIX --desc login --since 2024-05-01 --from 20 --limit 10 --follow".
+ * Without --from or --limit only the newest matching records are printed, see --last.
+ */
+class LogQuery {
+    String platform; // Exact platform match, case-insensitive
+    String descriptionContains; // Case-insensitive substring of the description
+    long sinceMillis = Long.MIN_VALUE; // Inclusive lower timestamp bound
+    long untilMillis = Long.MAX_VALUE; // Exclusive upper timestamp bound
+    long from = 0; // Number of matching records to skip
+    long limit = -1; // Maximum number of records to print; negative means no limit
+    long last = 20; // Print only the newest N matching records; negative means all. --from and --limit page from the oldest instead
+    boolean follow = false; // Keep printing records appended after the end of the log
+
+    private static final Pattern TOKEN = Pattern.compile("\"([^\"]*)\"|(\\S+)");
+
+    /**
+     * Parses the option string typed in the CLI.
+     * @param args Whitespace separated options, values containing spaces may be double-quoted; blank returns the default query.
+     * @return The parsed query.
+     * @throws IllegalArgumentException If an option or value is invalid.
+     */
+    public static LogQuery parse(String args) {
+        LogQuery query = new LogQuery();
+        List<String> list = new ArrayList<>();
+        Matcher matcher = TOKEN.matcher(args);
+        while (matcher.find()) list.add(matcher.group(1) != null ? matcher.group(1) : matcher.group(2));
+        String[] tokens = list.toArray(new String[0]);
+        for (int i = 0; i < tokens.length; i++) {
+            String option = tokens[i];
+            if (option.equals("--follow")) {
+                query.follow = true;
+                continue;
+            }
+            if (i + 1 >= tokens.length) throw new IllegalArgumentException("Missing value for " + option);
+            String value = tokens[++i];
+            switch (option) {
+                case "--platform" -> query.platform = value;
+                case "--desc" -> query.descriptionContains = value.toLowerCase();
+                case "--since" -> query.sinceMillis = parseTime(value);
+                case "--until" -> query.untilMillis = parseTime(value);
+                case "--from" -> {
+                    query.from = Long.parseLong(value);
+                    query.last = -1;
+                }
+                case "--limit" -> {
+                    query.limit = Long.parseLong(value);
+                    query.last = -1;
+                }
+                case "--last" -> query.last = Long.parseLong(value);
+                default -> throw new IllegalArgumentException("Unknown option " + option);
+            }
+        }
+        return query;
+    }
+
+    // Accepts 2024-05-01 or 2024-05-01T09:00 in the local time zone.
+    private static long parseTime(String value) {
+        try {
+            LocalDateTime time = value.contains("T") ? LocalDateTime.parse(value) : LocalDate.parse(value).atStartOfDay();
+            return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid date " + value);
+        }
+    }
+
+    public boolean matches(LogRecord record) {
+        if (platform != null && !record.getPlatform().equalsIgnoreCase(platform)) return false;
+        if (descriptionContains != null && !record.getDescription().toLowerCase().contains(descriptionContains)) return false;
+        return record.getEpochMillis() >= sinceMillis && record.getEpochMillis() < untilMillis;
+    }
+}
+
+/**
+ * Streams the NDJSON result log through memory-mapped windows of fixed size,
+ * so memory use does not depend on the size of the log.
+ */
+class ResultLogReader {
+    private static final int WINDOW_SIZE = 4 * 1024 * 1024;
+    private static final long FOLLOW_POLL_MILLIS = 500;
+
+    // Receives each record with its byte offset; returns false to stop the scan.
+    interface RecordVisitor {
+        boolean visit(long offset, LogRecord record);
+    }
+
+    private final Path path;
+
+    public ResultLogReader(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Visits every complete record from the given offset to the current end of the log.
+     * @param startOffset Byte offset of the first line to read.
+     * @param visitor Callback for each record.
+     * @return Offset just past the last complete line read, or -1 if the visitor stopped the scan.
+     */
+    public long scan(long startOffset, RecordVisitor visitor) throws IOException {
+        if (!Files.exists(path)) return startOffset;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long windowStart = startOffset;
+            int windowSize = WINDOW_SIZE;
+            while (windowStart < size) {
+                int length = (int) Math.min(windowSize, size - windowStart);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, length);
+                int lineStart = 0;
+                for (int i = 0; i < length; i++) {
+                    if (window.get(i) != '\n') continue;
+                    if (i > lineStart) {
+                        byte[] bytes = new byte[i - lineStart];
+                        window.get(lineStart, bytes);
+                        LogRecord record = LogRecord.parse(new String(bytes, StandardCharsets.UTF_8).trim());
+                        if (record != null && !visitor.visit(windowStart + lineStart, record)) return -1;
+                    }
+                    lineStart = i + 1;
+                }
+                if (lineStart == 0 && length == windowSize) {
+                    windowSize *= 2; // A single line is longer than the window
+                    continue;
+                }
+                if (lineStart == 0) break; // Trailing partial line still being written
+                windowStart += lineStart;
+                windowSize = WINDOW_SIZE;
+            }
+            return windowStart;
+        }
+    }
+
+    /**
+     * Reads the single line starting at the given offset with positional reads.
+     * @param path The log file.
+     * @param offset Byte offset of the start of the line.
+     * @return The line without its terminator, or null if there is no complete line at that offset.
+     */
+    static String readLine(Path path, long offset) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return readLine(channel, offset);
+        }
+    }
+
+    private static String readLine(FileChannel channel, long offset) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        long position = offset;
+        while (channel.read(buffer.clear(), position) > 0) {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                byte b = buffer.get();
+                if (b == '\n') return line.toString(StandardCharsets.UTF_8).trim();
+                line.write(b);
+            }
+            position += buffer.limit();
+        }
+        return null;
+    }
+
+    /**
+     * Visits the records at the given offsets, e.g. the candidates returned by ResultLogIndex.
+     * @param offsets Ascending record offsets.
+     * @param visitor Callback for each record.
+     * @return False if the visitor stopped early.
+     */
+    public boolean visitAt(long[] offsets, RecordVisitor visitor) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            for (long offset : offsets) {
+                String line = readLine(channel, offset);
+                LogRecord record = line == null ? null : LogRecord.parse(line);
+                if (record != null && !visitor.visit(offset, record)) return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Prints the records matching the query, honouring paging, and optionally follows the log like tail -f.
+     * When an index is given and the query has indexed filters, only the candidate records are read.
+     * @param query Filters and paging options.
+     * @param logIndex Secondary index over the log, or null to scan.
+     * @param stop Checked while following; returning true ends the follow loop.
+     * @return Number of records printed.
+     */
+    public long print(LogQuery query, ResultLogIndex logIndex, BooleanSupplier stop) throws IOException, InterruptedException {
+        long[] matched = {0};
+        long[] printed = {0};
+        boolean[] following = {false};
+        ArrayDeque<String> newest = query.last >= 0 ? new ArrayDeque<>() : null; // Of the first pass, printed once it ends
+        RecordVisitor visitor = (offset, record) -> {
+            if (!query.matches(record)) return true;
+            long index = matched[0]++;
+            if (index < query.from) return true;
+            if (!following[0] && newest != null) {
+                newest.addLast("#" + index + " " + record.getJson());
+                if (newest.size() > query.last) newest.removeFirst();
+                return true;
+            }
+            // The limit only bounds the first page; in follow mode the scan still runs on to the end of the log.
+            if (!following[0] && query.limit >= 0 && printed[0] >= query.limit) return query.follow;
+            System.out.println("#" + index + " " + record.getJson());
+            printed[0]++;
+            return true;
+        };
+        long[] candidates = logIndex == null ? null : logIndex.lookup(query);
+        long offset;
+        if (candidates == null) {
+            offset = scan(0, visitor);
+        } else {
+            offset = visitAt(candidates, visitor) || query.follow ? logIndex.getIndexedEnd() : -1;
+        }
+        if (newest != null) {
+            for (String line : newest) System.out.println(line);
+            printed[0] += newest.size();
+        }
+        following[0] = true;
+        while (query.follow && offset >= 0 && !stop.getAsBoolean()) {
+            Thread.sleep(FOLLOW_POLL_MILLIS);
+            offset = scan(offset, visitor);
+        }
+        return printed[0];
+    }
+}
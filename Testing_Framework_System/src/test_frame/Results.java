@@ -0,0 +1,221 @@
+/**
+ *Project: Testing Framework System
+ *
+ *@author Taha Yasir Colak
+ *@author Aykan Berk Ayvazoglu
+ *@author Cankat Caglar Acarer
+ *@author Bartu Nurgun
+ *
+ */
+package test_frame;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+// Outcome of a test case, or of a suite rolled up from its cases.
+enum TestStatus {
+    PASSED, FAILED, TIMED_OUT, SKIPPED
+}
+
+/**
+ * Result of running one test case or suite.
+ * @param name Name of the case or description of the suite.
+ * @param status The outcome; a suite failed if any of its cases failed, else timed out if any did.
+ * @param durationNanos How long it ran; 0 for skipped cases.
+ * @param cause Why it failed, timed out or was skipped; null if it passed.
+ */
+record TestResult(String name, TestStatus status, long durationNanos, String cause) {
+    static TestResult passed(String name, long durationNanos) {
+        return new TestResult(name, TestStatus.PASSED, durationNanos, null);
+    }
+}
+
+/**
+ * Tally of the case results below one suite of a running execution.
+ * A case result is added to its suite's node and to every enclosing one with LongAdders, so suites
+ * running in parallel record without locking and every node always holds the roll-up of its subtree.
+ * The node of the suite running on a thread is bound to it, like the CancellationToken.
+ */
+class ResultNode {
+    private static final ThreadLocal<ResultNode> current = new ThreadLocal<>();
+
+    private final String name;
+    private final ResultNode parent;
+    private final ExecutionResults execution; // Null for nodes of a suite run outside an execution
+    private final LongAdder[] counts = new LongAdder[TestStatus.values().length];
+    private final LongAdder caseNanos = new LongAdder();
+    private final Queue<ResultNode> children = new ConcurrentLinkedQueue<>();
+
+    private ResultNode(String name, ResultNode parent, ExecutionResults execution) {
+        this.name = name;
+        this.parent = parent;
+        this.execution = execution;
+        for (int i = 0; i < counts.length; i++) counts[i] = new LongAdder();
+    }
+
+    static ResultNode root(String name, ExecutionResults execution) {
+        return new ResultNode(name, null, execution);
+    }
+
+    // Node of the suite running on this thread, or null outside of a suite or execution.
+    static ResultNode current() {
+        return current.get();
+    }
+
+    // Binds the node to this thread; returns the previous one, to be bound again afterwards.
+    static ResultNode bind(ResultNode node) {
+        ResultNode previous = current.get();
+        current.set(node);
+        return previous;
+    }
+
+    // Node of a suite nested in the current one; without a current node the suite gets a root of its own.
+    static ResultNode enter(String suite) {
+        ResultNode parent = current();
+        return parent == null ? root(suite, null) : parent.child(suite);
+    }
+
+    ResultNode child(String suite) {
+        ResultNode child = new ResultNode(suite, this, execution);
+        children.add(child);
+        return child;
+    }
+
+    // Node of this tree at the suite path of a node of another tree, created if missing.
+    ResultNode pathOf(ResultNode other) {
+        if (other.parent == null) return this;
+        ResultNode parent = pathOf(other.parent);
+        synchronized (parent.children) {
+            for (ResultNode child : parent.children) if (child.name.equals(other.name)) return child;
+            return parent.child(other.name);
+        }
+    }
+
+    // Adds a case result to this node and every enclosing one.
+    void record(TestResult result) {
+        for (ResultNode node = this; node != null; node = node.parent) {
+            node.counts[result.status().ordinal()].increment();
+            node.caseNanos.add(result.durationNanos());
+        }
+        if (execution != null) execution.recorded(this, result);
+    }
+
+    public long count(TestStatus status) {
+        return counts[status.ordinal()].sum();
+    }
+
+    // Rolled-up result of the suite, given how long the suite took.
+    TestResult result(long durationNanos) {
+        TestStatus status = count(TestStatus.FAILED) > 0 ? TestStatus.FAILED
+                : count(TestStatus.TIMED_OUT) > 0 ? TestStatus.TIMED_OUT
+                : count(TestStatus.PASSED) == 0 && count(TestStatus.SKIPPED) > 0 ? TestStatus.SKIPPED : TestStatus.PASSED;
+        String cause = status == TestStatus.PASSED ? null : summary();
+        return new TestResult(name, status, durationNanos, cause);
+    }
+
+    String summary() {
+        return count(TestStatus.PASSED) + " passed, " + count(TestStatus.FAILED) + " failed, "
+                + count(TestStatus.TIMED_OUT) + " timed out, " + count(TestStatus.SKIPPED) + " skipped";
+    }
+
+    String getName() {
+        return name;
+    }
+
+    Collection<ResultNode> getChildren() {
+        return children;
+    }
+}
+
+/**
+ * Results of one run of an execution: the roll-up tree of its suites and the cases that failed or timed
+ * out. While the run is going, partial reports are streamed to the listeners every
+ * -Dtfs.report.intervalMillis (1000 ms, 0 for none); once it has finished, report() prints the result.
+ * The results of a coalesced run fan out to a view per member, holding the results of the member's cases.
+ */
+class ExecutionResults {
+    private static final int MAX_PROBLEMS = 100; // Failures and timeouts kept with their cause; the counts stay exact
+    private static final long INTERVAL_MILLIS = Long.getLong("tfs.report.intervalMillis", 1_000);
+    private static final ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(CronSchedulingEngine.daemonThreads("test-report"));
+
+    private final String description;
+    private final ResultNode root;
+    private final Queue<TestResult> problems = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger problemCount = new AtomicInteger();
+    private final long start = System.nanoTime();
+    private final Map<ExecutionResults, Set<String>> views = new LinkedHashMap<>(); // Of the members of a coalesced run, with their cases
+    private volatile long end; // nanoTime when finished, 0 while running
+    private ScheduledFuture<?> streaming;
+
+    ExecutionResults(String description) {
+        this.description = description;
+        this.root = ResultNode.root(description, this);
+    }
+
+    public ResultNode root() {
+        return root;
+    }
+
+    // Must be added before the run starts; the view gets the results of the named cases, under the same suites.
+    void addView(ExecutionResults view, Set<String> caseNames) {
+        views.put(view, caseNames);
+    }
+
+    // A case result was added to a node of this run.
+    void recorded(ResultNode node, TestResult result) {
+        if (result.cause() != null && result.status() != TestStatus.SKIPPED && problemCount.incrementAndGet() <= MAX_PROBLEMS) problems.add(result);
+        for (Map.Entry<ExecutionResults, Set<String>> view : views.entrySet()) {
+            if (view.getValue().contains(result.name())) view.getKey().root.pathOf(node).record(result);
+        }
+    }
+
+    // Starts streaming partial reports to the listeners until finish().
+    void stream(List<Consumer<ExecutionResults>> listeners) {
+        if (INTERVAL_MILLIS <= 0 || listeners.isEmpty()) return;
+        streaming = reporter.scheduleAtFixedRate(() -> {
+            for (Consumer<ExecutionResults> listener : listeners) listener.accept(this);
+        }, INTERVAL_MILLIS, INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    void finish() {
+        end = System.nanoTime();
+        if (streaming != null) streaming.cancel(false);
+        for (ExecutionResults view : views.keySet()) view.finish();
+    }
+
+    public boolean isFinished() {
+        return end != 0;
+    }
+
+    public long elapsedNanos() {
+        long finished = end;
+        return (finished == 0 ? System.nanoTime() : finished) - start;
+    }
+
+    // One line with the counts so far.
+    public void reportPartial(OutputSink out) {
+        if (isFinished() || !out.enabled()) return; // The final report follows
+        out.emit("Report", "{}, running for {} ms: {} so far", description, elapsedNanos() / 1_000_000, root.summary());
+    }
+
+    // The counts, the roll-up of the top suites and the failed and timed-out cases with their cause.
+    public void report(OutputSink out) {
+        if (!out.enabled()) return; // The summaries are built only for output that is written
+        out.emit("Report", "{} in {} ms: {}", description, elapsedNanos() / 1_000_000, root.summary());
+        for (ResultNode suite : root.getChildren()) reportSuite(suite, 1, out);
+        for (TestResult problem : problems) {
+            out.emit("Report", "  {} {} after {} ms", problem.status() == TestStatus.FAILED ? "Failed" : "Timed out",
+                    problem.name(), problem.durationNanos() / 1_000_000, problem.cause());
+        }
+        int more = problemCount.get() - MAX_PROBLEMS;
+        if (more > 0) out.emit("Report", "  ... and {} more", more);
+    }
+
+    private static void reportSuite(ResultNode suite, int depth, OutputSink out) {
+        out.emit("Report", depth == 1 ? "  {}: {}" : "    {}: {}", suite.getName(), suite.summary());
+        if (depth < 2) for (ResultNode child : suite.getChildren()) reportSuite(child, depth + 1, out);
+    }
+}
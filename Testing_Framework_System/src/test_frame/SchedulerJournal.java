@@ -0,0 +1,409 @@
+/**
+ *Project: Testing Framework System
+ *
+ *@author Taha Yasir Colak
+ *@author Aykan Berk Ayvazoglu
+ *@author Cankat Caglar Acarer
+ *@author Bartu Nurgun
+ *
+ */
+package test_frame;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.zip.CRC32C;
+
+/**
+ * What it takes to plan an execution again in another process: the test type of the platform suite
+ * factory it was planned from, and its settings. Executions of other suites have no spec. When it was
+ * planned is kept apart, so the many executions of a recurring plan share one encoded spec.
+ */
+record ExecutionSpec(String platform, String type, String tagFilter, int parallelism, int workerJvms,
+                     String cron, Priority priority, long timeoutMillis) {
+
+    // Spec of an execution planned through the ExecutionPlanner, or null for any other execution.
+    static ExecutionSpec of(TestExecution execution) {
+        if (execution.getPlannedType() == null) return null;
+        return new ExecutionSpec(execution.platform, execution.getPlannedType(), execution.getTagFilter(),
+                execution.getParallelism(), execution.getWorkerJvms(), execution.getCron().toString(),
+                execution.getPriority(), execution.getTimeoutMillis());
+    }
+
+    /**
+     * Plans the execution again.
+     * @param crons Parsed cron expressions by text, shared by the executions of one recovery.
+     * @throws IllegalArgumentException If the spec names an unknown platform, type or a malformed expression.
+     */
+    TestExecution create(Map<String, CronExpression> crons) {
+        TestExecution execution = ExecutionPlanner.create(platform, type);
+        execution.setTagFilter(tagFilter);
+        execution.setParallelism(parallelism);
+        execution.setWorkerJvms(workerJvms);
+        execution.setCron(crons.computeIfAbsent(cron, CronExpression::parse));
+        execution.setPriority(priority);
+        execution.setTimeoutMillis(timeoutMillis);
+        return execution;
+    }
+
+    byte[] encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(platform);
+            out.writeUTF(type);
+            out.writeBoolean(tagFilter != null);
+            if (tagFilter != null) out.writeUTF(tagFilter);
+            out.writeInt(parallelism);
+            out.writeInt(workerJvms);
+            out.writeUTF(cron);
+            out.writeByte(priority.ordinal());
+            out.writeLong(timeoutMillis);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // Not thrown by an in-memory stream
+        }
+        return bytes.toByteArray();
+    }
+
+    static ExecutionSpec decode(byte[] encoded) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(encoded));
+        String platform = in.readUTF();
+        String type = in.readUTF();
+        String tagFilter = in.readBoolean() ? in.readUTF() : null;
+        int parallelism = in.readInt();
+        int workerJvms = in.readInt();
+        String cron = in.readUTF();
+        int priority = in.readByte();
+        if (priority < 0 || priority >= Priority.values().length) throw new IOException("Unknown priority " + priority);
+        return new ExecutionSpec(platform, type, tagFilter, parallelism, workerJvms, cron,
+                Priority.values()[priority], in.readLong());
+    }
+}
+
+/**
+ * Write-ahead log of the TestScheduler queue, so the plan survives a restart.
+ * Every schedule, take (a drain, or the scheduling engine picking an execution up), clear and completion
+ * is appended as one binary record before the queue changes:
+ *   int length, int CRC32C of type and payload, byte type, payload
+ * after the header "TFSJ" version. A schedule record holds the execution's sequence number, planning time
+ * and ExecutionSpec; the others hold the sequence numbers they apply to. Replay stops at the first record
+ * that is cut off or fails its checksum, which is where a crash interrupted the last append.
+ *
+ * Executions taken but never completed were held for a check-in, queued or running when the process
+ * ended, so they are planned again. The log is replaced by a snapshot of the executions still pending or
+ * running every -Dtfs.scheduler.journal.snapshotEvery records (10000) and on recovery if it holds more than
+ * that, and truncated once none is left. Identical specs are decoded once on recovery and kept once in memory. Appends are forced to disk per -Dtfs.scheduler.journal.fsync=always|interval|never.
+ */
+class SchedulerJournal {
+    static final String JOURNAL_FILE = System.getProperty("tfs.scheduler.journal",
+            Paths.get(ResultLogWriter.LOG_FILE).resolveSibling("scheduler.wal").toString());
+    private static final byte[] FILE_MAGIC = {'T', 'F', 'S', 'J', 1};
+    private static final int RECORD_HEADER = 4 + 4 + 1;
+    private static final byte SCHEDULE = 1, TAKE = 2, CLEAR = 3, COMPLETE = 4;
+    private static final long FSYNC_INTERVAL_MILLIS = 1000;
+
+    private final Path path;
+    private final FsyncPolicy fsyncPolicy;
+    private final int snapshotEvery;
+    private FileChannel channel; // Replaced by snapshot()
+    private long position;
+    private long lastForce = System.currentTimeMillis();
+    private long nextSequence;
+    private int sinceSnapshot; // Records appended since the last snapshot
+    private record Planned(long plannedAt, byte[] spec) {}
+
+    private final Map<Long, Planned> live = new LinkedHashMap<>(); // Sequence -> each pending or taken execution
+    private final Map<ByteBuffer, byte[]> specs = new HashMap<>(); // Each distinct encoded spec, shared by its executions
+    private final Set<Long> taken = new HashSet<>();
+    private final Map<TestExecution, Long> sequences = new HashMap<>(); // Of the live executions of this process
+
+    /**
+     * Opens (or creates) a journal; nothing is replayed until recover().
+     * @param path Location of the journal.
+     * @param fsyncPolicy When appends are forced to disk.
+     * @param snapshotEvery Records after which the log is replaced by a snapshot.
+     */
+    SchedulerJournal(Path path, FsyncPolicy fsyncPolicy, int snapshotEvery) throws IOException {
+        this.path = path;
+        this.fsyncPolicy = fsyncPolicy;
+        this.snapshotEvery = Math.max(1, snapshotEvery);
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.position = channel.size();
+    }
+
+    // The journal at -Dtfs.scheduler.journal (scheduler.wal next to the result log).
+    static SchedulerJournal open() throws IOException {
+        return new SchedulerJournal(Paths.get(JOURNAL_FILE),
+                FsyncPolicy.valueOf(System.getProperty("tfs.scheduler.journal.fsync", "always").toUpperCase()),
+                Integer.getInteger("tfs.scheduler.journal.snapshotEvery", 10_000));
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Replays the journal and, unless it holds nothing else, replaces it with a snapshot of its live executions.
+     * @return The executions pending or running when the journal was last written, in planning order;
+     *         this journal tracks them from now on as pending.
+     */
+    public synchronized List<TestExecution> recover() throws IOException {
+        long start = System.nanoTime();
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(path));
+        if (in.remaining() > 0) {
+            byte[] magic = new byte[Math.min(FILE_MAGIC.length, in.remaining())];
+            in.get(magic);
+            if (!Arrays.equals(magic, 0, magic.length, FILE_MAGIC, 0, magic.length)) throw new IOException(path + " is not a scheduler journal");
+        }
+        int records = 0;
+        int valid = in.position(); // End of the last intact record
+        CRC32C crc = new CRC32C();
+        while (in.remaining() >= RECORD_HEADER) {
+            int length = in.getInt();
+            int checksum = in.getInt();
+            if (length < 0 || in.remaining() < 1 + length) break; // Cut off by a crash
+            crc.reset();
+            crc.update(in.array(), in.position(), 1 + length);
+            if ((int) crc.getValue() != checksum) break;
+            byte type = in.get();
+            try {
+                replay(type, in.slice(in.position(), length));
+            } catch (BufferUnderflowException e) {
+                in.position(in.position() - 1);
+                break; // Intact but malformed; nothing after it can be trusted
+            }
+            in.position(in.position() + length);
+            valid = in.position();
+            records++;
+        }
+        int dropped = in.limit() - valid;
+        if (dropped > 0) System.err.println("[Journal] Dropped " + dropped + " byte(s) of an incomplete or corrupt record at the end of " + path);
+
+        List<TestExecution> recovered = new ArrayList<>();
+        Map<byte[], ExecutionSpec> decoded = new IdentityHashMap<>(); // Specs are shared, see canonical()
+        Map<String, CronExpression> crons = new HashMap<>();
+        int interrupted = 0;
+        for (Iterator<Map.Entry<Long, Planned>> it = live.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Long, Planned> entry = it.next();
+            try {
+                ExecutionSpec spec = decoded.get(entry.getValue().spec());
+                if (spec == null) {
+                    spec = ExecutionSpec.decode(entry.getValue().spec());
+                    decoded.put(entry.getValue().spec(), spec);
+                }
+                TestExecution execution = spec.create(crons);
+                execution.setPlannedAt(entry.getValue().plannedAt());
+                sequences.put(execution, entry.getKey());
+                recovered.add(execution);
+                if (taken.contains(entry.getKey())) interrupted++;
+            } catch (IOException | IllegalArgumentException e) {
+                System.err.println("[Journal] Cannot plan execution " + entry.getKey() + " again: " + e.getMessage());
+                it.remove();
+            }
+        }
+        // A log of just the live executions as pending is already what a snapshot would write.
+        boolean compact = dropped > 0 || !taken.isEmpty() || records != recovered.size();
+        taken.clear(); // Interrupted executions are pending again
+        if (compact) snapshot();
+        else sinceSnapshot = records;
+        if (records > 0) {
+            AsyncOutputWriter.getInstance().emit("Journal", "Recovered {} planned execution(s) from {} record(s), {} interrupted while running, in {} ms",
+                    recovered.size(), records, interrupted, (System.nanoTime() - start) / 1_000_000, path);
+        }
+        return recovered;
+    }
+
+    private void replay(byte type, ByteBuffer payload) {
+        if (type == SCHEDULE) {
+            long sequence = payload.getLong();
+            long plannedAt = payload.getLong();
+            byte[] spec = new byte[payload.remaining()];
+            payload.get(spec);
+            live.put(sequence, new Planned(plannedAt, canonical(spec)));
+            nextSequence = Math.max(nextSequence, sequence + 1);
+            return;
+        }
+        int count = payload.getInt();
+        for (int i = 0; i < count; i++) {
+            long sequence = payload.getLong();
+            if (type == TAKE) {
+                if (live.containsKey(sequence)) taken.add(sequence);
+            } else if (type == CLEAR || type == COMPLETE) {
+                live.remove(sequence);
+                taken.remove(sequence);
+            }
+            // Other types come from a newer version and are skipped
+        }
+    }
+
+    // Logs a newly planned execution; executions without a spec cannot be planned again and are not logged.
+    public synchronized void scheduled(TestExecution execution) {
+        ExecutionSpec spec = ExecutionSpec.of(execution);
+        if (spec == null || sequences.containsKey(execution)) return;
+        long sequence = nextSequence++;
+        Planned planned = new Planned(execution.getPlannedAt(), canonical(spec.encode()));
+        if (!append(SCHEDULE, schedulePayload(sequence, planned))) return;
+        live.put(sequence, planned);
+        sequences.put(execution, sequence);
+        snapshotIfDue();
+    }
+
+    // The shared copy of an encoded spec.
+    private byte[] canonical(byte[] spec) {
+        byte[] shared = specs.putIfAbsent(ByteBuffer.wrap(spec), spec);
+        return shared == null ? spec : shared;
+    }
+
+    private static byte[] schedulePayload(long sequence, Planned planned) {
+        return ByteBuffer.allocate(8 + 8 + planned.spec().length).putLong(sequence).putLong(planned.plannedAt()).put(planned.spec()).array();
+    }
+
+    // Logs executions leaving the queue to run; they stay in the journal until completed().
+    public synchronized void taken(Collection<TestExecution> executions) {
+        List<Long> applied = sequencesOf(executions);
+        applied.removeAll(taken);
+        if (applied.isEmpty() || !append(TAKE, encode(applied))) return;
+        taken.addAll(applied);
+        snapshotIfDue();
+    }
+
+    // Logs executions removed from the queue without running.
+    public synchronized void cleared(Collection<TestExecution> executions) {
+        remove(CLEAR, executions);
+    }
+
+    // Logs executions whose run is over, whatever its outcome.
+    public synchronized void completed(Collection<TestExecution> executions) {
+        remove(COMPLETE, executions);
+    }
+
+    private void remove(byte type, Collection<TestExecution> executions) {
+        List<Long> applied = sequencesOf(executions);
+        if (applied.isEmpty() || !append(type, encode(applied))) return;
+        for (TestExecution execution : executions) sequences.remove(execution);
+        for (Long sequence : applied) {
+            live.remove(sequence);
+            taken.remove(sequence);
+        }
+        if (live.isEmpty()) truncate();
+        else snapshotIfDue();
+    }
+
+    // Number of executions pending or running.
+    public synchronized int size() {
+        return live.size();
+    }
+
+    private List<Long> sequencesOf(Collection<TestExecution> executions) {
+        List<Long> result = new ArrayList<>();
+        for (TestExecution execution : executions) {
+            Long sequence = sequences.get(execution);
+            if (sequence != null) result.add(sequence);
+        }
+        return result;
+    }
+
+    private static byte[] encode(List<Long> sequences) {
+        ByteBuffer payload = ByteBuffer.allocate(4 + 8 * sequences.size()).putInt(sequences.size());
+        for (long sequence : sequences) payload.putLong(sequence);
+        return payload.array();
+    }
+
+    private static ByteBuffer record(byte type, byte[] payload) {
+        CRC32C crc = new CRC32C();
+        crc.update(type);
+        crc.update(payload);
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER + payload.length);
+        record.putInt(payload.length).putInt((int) crc.getValue()).put(type).put(payload).flip();
+        return record;
+    }
+
+    // Appends a record; false if it could not be written, in which case the operation is not journaled.
+    private boolean append(byte type, byte[] payload) {
+        try {
+            if (position == 0) position += write(channel, ByteBuffer.wrap(FILE_MAGIC), 0);
+            position += write(channel, record(type, payload), position);
+            force();
+        } catch (IOException e) {
+            System.err.println("[Journal] Cannot write to " + path + ": " + e.getMessage());
+            return false;
+        }
+        sinceSnapshot++;
+        return true;
+    }
+
+    // Called once an operation has been applied, so the snapshot includes it.
+    private void snapshotIfDue() {
+        if (sinceSnapshot >= snapshotEvery) snapshot();
+    }
+
+    /**
+     * Replaces the log with the live executions: a schedule record per execution and one take record
+     * for those running. The snapshot is written aside and moved over the log, so a crash leaves either.
+     */
+    private void snapshot() {
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            try (FileChannel written = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                long end = 0;
+                if (!live.isEmpty()) {
+                    ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+                    buffer.put(FILE_MAGIC);
+                    for (Map.Entry<Long, Planned> entry : live.entrySet()) {
+                        ByteBuffer record = record(SCHEDULE, schedulePayload(entry.getKey(), entry.getValue()));
+                        if (buffer.remaining() < record.remaining()) end += flush(written, buffer, end);
+                        if (buffer.remaining() < record.remaining()) end += write(written, record, end);
+                        else buffer.put(record);
+                    }
+                    end += flush(written, buffer, end);
+                    if (!taken.isEmpty()) end += write(written, record(TAKE, encode(new ArrayList<>(taken))), end);
+                }
+                written.force(true);
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            channel.close();
+            channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            position = channel.size();
+            sinceSnapshot = 0;
+        } catch (IOException e) {
+            System.err.println("[Journal] Cannot write a snapshot of " + path + ": " + e.getMessage());
+        }
+    }
+
+    // Nothing is pending or running: the whole log is obsolete.
+    private void truncate() {
+        try {
+            channel.truncate(0);
+            channel.force(false);
+            position = 0;
+            sinceSnapshot = 0;
+            specs.clear();
+        } catch (IOException e) {
+            System.err.println("[Journal] Cannot truncate " + path + ": " + e.getMessage());
+        }
+    }
+
+    private void force() throws IOException {
+        long now = System.currentTimeMillis();
+        if (fsyncPolicy == FsyncPolicy.ALWAYS
+                || (fsyncPolicy == FsyncPolicy.INTERVAL && now - lastForce >= FSYNC_INTERVAL_MILLIS)) {
+            channel.force(false);
+            lastForce = now;
+        }
+    }
+
+    private static int flush(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        buffer.flip();
+        int written = write(channel, buffer, position);
+        buffer.clear();
+        return written;
+    }
+
+    private static int write(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int written = 0;
+        while (buffer.hasRemaining()) written += channel.write(buffer, position + written);
+        return written;
+    }
+}
@@ -0,0 +1,318 @@
+/**
+ *Project: Testing Framework System
+ *
+ *@author Taha Yasir Colak
+ *@author Aykan Berk Ayvazoglu
+ *@author Cankat Caglar Acarer
+ *@author Bartu Nurgun
+ *
+ */
+package test_frame;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.*;
+
+/*
+ * Coordinator/worker protocol, one tab separated line per message (tabs, newlines and backslashes escaped):
+ *   coordinator -> worker stdin:   CASE  index  name  timeoutMillis  input...
+ *   worker stdout -> coordinator:  LINE  index  source  message  subject     (one per output line of the case)
+ *                                  RESULT  index  PASSED|FAILED|TIMED_OUT  nanos  error
+ *                                  DONE
+ */
+
+/**
+ * Worker JVM of a sharded execution. Reads its shard of test cases from stdin, runs them one by one
+ * and streams each case's output lines and result back over stdout; a case that throws is reported as failed.
+ */
+class ShardWorker {
+    private ShardWorker() {}
+
+    public static void main(String[] args) throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        PrintStream out = new PrintStream(new FileOutputStream(FileDescriptor.out), false, StandardCharsets.UTF_8);
+        String line;
+        while ((line = in.readLine()) != null) {
+            String[] fields = ShardProtocol.split(line);
+            if (fields.length < 4 || !fields[0].equals("CASE")) continue;
+            String index = fields[1];
+            TestCase testCase = new TestCase(fields[2], Arrays.copyOfRange(fields, 4, fields.length));
+            long timeoutMillis = Long.parseLong(fields[3]);
+            OutputBatch batch = new OutputBatch(true);
+            String status = "PASSED";
+            String error = "";
+            long start = System.nanoTime();
+            try {
+                if (!Watchdog.getInstance().run(testCase.getName(), timeoutMillis, () -> testCase.execute(batch))) {
+                    status = "TIMED_OUT";
+                    error = "timed out after " + timeoutMillis + " ms";
+                }
+            } catch (RuntimeException e) {
+                status = "FAILED";
+                error = e.toString();
+            }
+            long nanos = System.nanoTime() - start;
+            batch.replay((source, message, subject) -> out.println(ShardProtocol.join("LINE", index, source, message,
+                    subject == null ? "" : subject.toString())));
+            out.println(ShardProtocol.join("RESULT", index, status, Long.toString(nanos), error));
+            out.flush(); // Results stream back case by case, so a crash only loses unfinished cases
+        }
+        out.println("DONE");
+        out.flush();
+    }
+}
+
+// Encoding of protocol lines shared by coordinator and worker.
+class ShardProtocol {
+    private ShardProtocol() {}
+
+    static String join(String... fields) {
+        StringBuilder line = new StringBuilder();
+        for (String field : fields) {
+            if (!line.isEmpty()) line.append('\t');
+            for (int i = 0; i < field.length(); i++) {
+                char c = field.charAt(i);
+                switch (c) {
+                    case '\\' -> line.append("\\\\");
+                    case '\t' -> line.append("\\t");
+                    case '\n' -> line.append("\\n");
+                    case '\r' -> line.append("\\r");
+                    default -> line.append(c);
+                }
+            }
+        }
+        return line.toString();
+    }
+
+    static String[] split(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '\t') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\\' && i + 1 < line.length()) {
+                char next = line.charAt(++i);
+                field.append(switch (next) {
+                    case 't' -> '\t';
+                    case 'n' -> '\n';
+                    case 'r' -> '\r';
+                    default -> next;
+                });
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields.toArray(new String[0]);
+    }
+}
+
+/**
+ * Runs the test cases of a suite tree across locally spawned worker JVMs.
+ * The leaves are balanced over the shards with the longest-processing-time-first rule, using the
+ * mean duration recorded for each case in the MetricsRegistry. Each worker streams its results back
+ * over its stdout pipe; if a worker dies, only the cases of its shard without a result are run again
+ * on a fresh worker. Once every case has finished, the output is emitted grouped by suite, in the
+ * order of the original tree, exactly as an in-process run would print it.
+ * Case deadlines are enforced inside the workers; when the execution is cancelled, every worker is killed.
+ * Workers rebuild each case from its name and inputs only, so a suite with cases that carry code of their
+ * own, e.g. the CaseBody of a CompactTestSuite, is not sharded: it runs on as many threads of this JVM.
+ */
+class ShardCoordinator {
+    private static final int MAX_ATTEMPTS = 3; // Runs of a shard before its remaining cases count as failed
+
+    private record Leaf(int index, TestCase testCase) {}
+
+    private record CaseResult(String status, long nanos, String error, OutputBatch output) {}
+
+    private ShardCoordinator() {}
+
+    /**
+     * Runs the suite across worker JVMs and emits the merged output.
+     * @param suite The root suite to execute.
+     * @param workers Number of worker JVMs.
+     * @param out Sink the grouped output is appended to.
+     * @throws IllegalStateException If any test case failed or could not be run.
+     */
+    public static void run(TestSuite suite, int workers, OutputSink out) {
+        List<Leaf> leaves = new ArrayList<>();
+        collectLeaves(suite, leaves);
+        for (Leaf leaf : leaves) {
+            if (!leaf.testCase().hasBody()) continue;
+            out.emit("Coordinator", "Test case {} carries code a worker JVM cannot rebuild, running the suite on {} thread(s) instead",
+                    leaf.testCase().getName(), workers, suite.getDescription());
+            ParallelTestRunner.run(suite, workers, out);
+            return;
+        }
+        Map<Integer, CaseResult> results = Collections.synchronizedMap(new HashMap<>());
+        MetricsRegistry.getInstance().caseStarted(); // Counted from the dispatch, the worker JVMs start as part of the run
+        CancellationToken token = CancellationToken.current();
+
+        List<Thread> shardThreads = new ArrayList<>();
+        for (List<Leaf> shard : balance(leaves, Math.max(1, workers))) {
+            if (shard.isEmpty()) continue;
+            Thread thread = new Thread(() -> runShard(shard, results, out.enabled(), token), "shard-coordinator");
+            thread.start();
+            shardThreads.add(thread);
+        }
+        for (Thread thread : shardThreads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                token.throwIfCancelled();
+                throw new IllegalStateException("Interrupted while waiting for worker JVMs", e);
+            }
+        }
+        token.throwIfCancelled();
+
+        OutputBatch output = new OutputBatch(out.enabled());
+        Iterator<Leaf> order = leaves.iterator();
+        int failed = merge(suite, order, results, output, ResultNode.enter(suite.getDescription()));
+        out.append(output);
+        if (failed > 0) throw new IllegalStateException(failed + " test case(s) failed in worker JVMs");
+    }
+
+    private static void collectLeaves(TestSuite suite, List<Leaf> leaves) {
+        for (TestComponent child : suite) {
+            if (child instanceof TestSuite childSuite) collectLeaves(childSuite, leaves);
+            else if (child instanceof TestCase testCase) leaves.add(new Leaf(leaves.size(), testCase));
+        }
+    }
+
+    // Longest processing time first: the slowest remaining case goes to the least loaded shard.
+    private static List<List<Leaf>> balance(List<Leaf> leaves, int workers) {
+        List<Leaf> bySize = new ArrayList<>(leaves);
+        Map<Leaf, Long> estimates = new HashMap<>();
+        for (Leaf leaf : leaves) estimates.put(leaf, DurationModel.getInstance().estimateNanos(leaf.testCase()));
+        bySize.sort(Comparator.comparingLong((Leaf leaf) -> estimates.get(leaf)).reversed());
+
+        List<List<Leaf>> shards = new ArrayList<>();
+        long[] load = new long[Math.min(workers, Math.max(1, leaves.size()))];
+        for (int i = 0; i < load.length; i++) shards.add(new ArrayList<>());
+        for (Leaf leaf : bySize) {
+            int lightest = 0;
+            for (int i = 1; i < load.length; i++) if (load[i] < load[lightest]) lightest = i;
+            shards.get(lightest).add(leaf);
+            load[lightest] += estimates.get(leaf);
+        }
+        return shards;
+    }
+
+    // Runs a shard, starting a new worker for whatever is left each time a worker dies.
+    private static void runShard(List<Leaf> shard, Map<Integer, CaseResult> results, boolean outputEnabled, CancellationToken token) {
+        List<Leaf> remaining = shard;
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS && !remaining.isEmpty() && !token.isCancelled(); attempt++) {
+            String failure;
+            try {
+                failure = runWorker(remaining, results, outputEnabled, token);
+            } catch (IOException e) {
+                failure = e.toString();
+            }
+            List<Leaf> unfinished = new ArrayList<>();
+            for (Leaf leaf : remaining) if (!results.containsKey(leaf.index())) unfinished.add(leaf);
+            remaining = unfinished;
+            if (!remaining.isEmpty() && !token.isCancelled()) {
+                System.err.println("[Coordinator] Worker JVM lost (" + failure + "), rescheduling "
+                        + remaining.size() + " test case(s)" + (attempt < MAX_ATTEMPTS ? "" : " failed for good"));
+            }
+        }
+        for (Leaf leaf : remaining) {
+            results.put(leaf.index(), new CaseResult("FAILED", 0, "worker JVM died " + MAX_ATTEMPTS + " times",
+                    new OutputBatch(outputEnabled)));
+        }
+    }
+
+    // Starts one worker for the given cases and records each result as it streams back.
+    private static String runWorker(List<Leaf> cases, Map<Integer, CaseResult> results, boolean outputEnabled,
+                                    CancellationToken token) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        String jvmOptions = System.getProperty("tfs.shard.jvmOptions", "").trim(); // e.g. -Xmx256m
+        if (!jvmOptions.isEmpty()) command.addAll(Arrays.asList(jvmOptions.split("\\s+")));
+        command.addAll(List.of("-cp", System.getProperty("java.class.path"), ShardWorker.class.getName()));
+        Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        Runnable kill = process::destroyForcibly;
+        token.onCancel(kill);
+        try {
+            return talkToWorker(process, cases, results, outputEnabled);
+        } finally {
+            token.removeOnCancel(kill);
+        }
+    }
+
+    private static String talkToWorker(Process process, List<Leaf> cases, Map<Integer, CaseResult> results,
+                                       boolean outputEnabled) throws IOException {
+        Watchdog watchdog = Watchdog.getInstance();
+        try (Writer stdin = new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8)) {
+            for (Leaf leaf : cases) {
+                List<String> fields = new ArrayList<>(List.of("CASE", Integer.toString(leaf.index()), leaf.testCase().getName(),
+                        Long.toString(watchdog.timeoutFor(leaf.testCase()))));
+                fields.addAll(leaf.testCase().getInputs());
+                stdin.write(ShardProtocol.join(fields.toArray(new String[0])) + "\n");
+            }
+        } catch (IOException e) {
+            // The worker died before reading its shard; reading its output below tells what finished.
+        }
+
+        Map<Integer, OutputBatch> output = new HashMap<>();
+        boolean done = false;
+        try (BufferedReader stdout = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = stdout.readLine()) != null) {
+                String[] fields = ShardProtocol.split(line);
+                switch (fields[0]) {
+                    case "LINE" -> output.computeIfAbsent(Integer.parseInt(fields[1]), i -> new OutputBatch(outputEnabled))
+                            .emit(fields[2], fields[3], fields[4].isEmpty() ? null : fields[4]);
+                    case "RESULT" -> {
+                        int index = Integer.parseInt(fields[1]);
+                        OutputBatch lines = output.remove(index);
+                        results.put(index, new CaseResult(fields[2], Long.parseLong(fields[3]), fields[4],
+                                lines == null ? new OutputBatch(outputEnabled) : lines));
+                    }
+                    case "DONE" -> done = true;
+                    default -> { } // Not part of the protocol, e.g. a stray print from a test
+                }
+            }
+        }
+        try {
+            int exit = process.waitFor();
+            return done && exit == 0 ? null : "exit code " + exit;
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+            return "interrupted";
+        }
+    }
+
+    // Emits the results in tree order, records case durations and results, and returns the number of failed cases.
+    private static int merge(TestSuite suite, Iterator<Leaf> order, Map<Integer, CaseResult> results, OutputBatch output, ResultNode node) {
+        int failed = 0;
+        output.emit("TestSuite", "Executing", suite.getDescription());
+        for (TestComponent child : suite) {
+            if (child instanceof TestSuite childSuite) {
+                failed += merge(childSuite, order, results, output, node.child(childSuite.getDescription()));
+            } else if (child instanceof TestCase testCase) {
+                CaseResult result = results.get(order.next().index());
+                output.append(result.output());
+                String name = testCase.getName();
+                if (result.status().equals("PASSED")) {
+                    MetricsRegistry.getInstance().caseHistogram(testCase.histogramName()).record(result.nanos());
+                    node.record(TestResult.passed(name, result.nanos()));
+                } else if (result.status().equals("TIMED_OUT")) {
+                    output.emit("Watchdog", "Timed out after {} ms", Watchdog.getInstance().timeoutFor(testCase), name);
+                    CancellationToken.current().recordTimeout(name);
+                    node.record(new TestResult(name, TestStatus.TIMED_OUT, result.nanos(), result.error()));
+                } else {
+                    output.emit("Coordinator", "Test case {} failed", name, result.error());
+                    node.record(new TestResult(name, TestStatus.FAILED, result.nanos(), result.error()));
+                    failed++;
+                }
+            }
+        }
+        return failed;
+    }
+}
@@ -10,16 +10,29 @@
 package test_frame;
 import java.util.*;
 import java.io.*;
-import java.nio.file.*;
+import java.nio.file.Paths;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Singleton class responsible for managing the test lifecycle.
- * It ensures source code is checked in before execution and schedules automatic weekly test runs.
+ * It ensures source code is checked in before execution and runs planned executions on their cron schedules.
  */
 class TestManager {
     private static TestManager instance;
-    private final Timer timer = new Timer(); // Timer to schedule test executions every Monday
-    private static boolean isCheckedIn = false; // Flag indicating whether the source code has been checked in
+    private static boolean headless = false; // Batch mode: no cron ticker, metrics snapshots or observers
+    private CronSchedulingEngine scheduler; // Runs each planned execution when its cron expression fires
+    // Runs executions whose platform permit was granted later; the bulkheads bound how many run at once.
+    private final ExecutorService dispatcher = Executors.newCachedThreadPool(CronSchedulingEngine.daemonThreads("test-dispatch"));
+    private static volatile boolean isCheckedIn = false; // Flag indicating whether the source code has been checked in
+    private static final List<HeldExecution> held = new ArrayList<>(); // Waiting for a check-in, guarded by itself
     private static TestExecutionState testExecutionState; // Subject for observer pattern (state updates)
 
     /**
@@ -27,97 +40,248 @@ class TestManager {
      * Initializes observer pattern and sets up scheduled testing.
      */
     private TestManager() {
-        scheduleMondayTests();
         testExecutionState = new TestExecutionState();
+        if (headless) return; // Nothing fires on a schedule and nobody observes
+        recoverPlannedExecutions(); // Before the scheduling engine looks at the queue
+        startScheduler();
+        startMetricsSnapshots();
         testExecutionState.attach(new TestObserver("Project Manager"));
         testExecutionState.attach(new TestObserver("Test Lead"));
         testExecutionState.attach(new TestObserver("QA Team"));
     }
 
-    public static TestManager getInstance() {
+    public static synchronized TestManager getInstance() {
         if (instance == null) instance = new TestManager();
         return instance;
     }
 
+    /**
+     * Makes the manager run without the cron scheduling engine's ticker, the metrics snapshot thread and
+     * the observers, for batch runs that execute their operations and exit.
+     * @throws IllegalStateException If the manager was already created.
+     */
+    public static synchronized void configureHeadless() {
+        if (instance != null) throw new IllegalStateException("TestManager already started");
+        headless = true;
+    }
+
+    // An execution submitted before the source code was checked in, and the future of its cycle.
+    private record HeldExecution(TestExecution execution, CompletableFuture<Void> cycle) {}
+
+    public static boolean isCheckedIn() {
+        return isCheckedIn;
+    }
+
+    /**
+     * Sets the check-in flag. Setting it releases every held execution: each starts its testing cycle
+     * on a thread of its own as soon as its platform has a free permit, without waiting for the caller.
+     */
     public static void setIsCheckedIn(boolean isCheckedIn) {
-        TestManager.isCheckedIn = isCheckedIn;
+        List<HeldExecution> released;
+        synchronized (held) {
+            TestManager.isCheckedIn = isCheckedIn;
+            if (!isCheckedIn || held.isEmpty()) return;
+            released = new ArrayList<>(held);
+            held.clear();
+        }
+        AsyncOutputWriter.getInstance().emit("Manager", "Check-in completed, releasing held executions", released.size());
+        TestManager manager = getInstance();
+        for (HeldExecution execution : released) {
+            manager.dispatch(execution.execution(), false).whenComplete((ignored, failure) -> {
+                if (failure == null) execution.cycle().complete(null);
+                else execution.cycle().completeExceptionally(failure);
+            });
+        }
     }
 
+    /**
+     * Runs the testing cycle now, or holds the execution until the source code is checked in.
+     * An execution whose platform is at its concurrency limit is queued and runs later on a thread of its own.
+     * @throws RuntimeException If the cycle ran on the calling thread and failed.
+     */
     public void startTestingCycle(TestExecution execution) {
-        // Check if the source code is checked in. No testing can be done without the code being checked in.
-        if (!isCheckedIn) {
-            System.out.println("[Manager] Source code not checked in. Cannot start testing cycle.");
-            return;
-        }
-        System.out.println("[Manager] Starting testing cycle...");
-        execution.executeTests();
-        saveResultToJson(execution);
-        System.out.println("[Manager] Testing cycle completed.");
-        testExecutionState.setState("Test cycle completed.");
-    }
-    /** Schedule the tests to run every Monday at 09:00.
-     *  Has a (patched) side effect where the code will consider itself late
-     *  when starting the program and execute all test simultaneously with the first time the run
-     *  all tests command is given, resulting in the first test run happening twice.
-     */
-    // Uses Java's built-in Timer and TimerTask; like serializable Calendar instance methods
-    private void scheduleMondayTests() {
-        Calendar calendar = Calendar.getInstance();
-        calendar.set(Calendar.DAY_OF_WEEK, Calendar.MONDAY);
-        calendar.set(Calendar.HOUR_OF_DAY, 9);
-        calendar.set(Calendar.MINUTE, 0);
-        calendar.set(Calendar.SECOND, 0);
-        Date firstTime = calendar.getTime();
-        if (firstTime.before(new Date())) {
-            calendar.add(Calendar.DATE, 7);
-            // This reassignment is a workaround to fix the issue mentioned in the description.
-            firstTime = calendar.getTime();
+        CompletableFuture<Void> cycle = submitTestingCycle(execution);
+        if (!cycle.isCompletedExceptionally()) return;
+        try {
+            cycle.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw e;
         }
+    }
 
-        timer.scheduleAtFixedRate(new TimerTask() {
-            public void run() {
-                System.out.println("[Scheduler] Monday test run triggered.");
-                List<TestExecution> copy = new ArrayList<>(TestScheduler.getInstance().getPendingExecutions());
-                for (TestExecution e : copy) {
-                    startTestingCycle(e);
-                }
-                TestScheduler.getInstance().clearExecutions();
+    /**
+     * Runs the testing cycle of an execution. No testing can be done without the code being checked in:
+     * before the check-in, the execution is held and runs the moment the check-in completes.
+     * @param execution The execution to run.
+     * @return Future completed when the cycle finished; it runs on the calling thread unless held or queued.
+     */
+    public CompletableFuture<Void> submitTestingCycle(TestExecution execution) {
+        CompletableFuture<Void> cycle = holdUntilCheckIn(execution);
+        return cycle != null ? cycle : dispatch(execution, true);
+    }
+
+    /**
+     * Runs the cycle once the execution's platform bulkhead grants a permit. Waiting for the permit holds no thread.
+     * @param inline Run on the calling thread if a permit is free right away; otherwise always on the dispatcher.
+     */
+    private CompletableFuture<Void> dispatch(TestExecution execution, boolean inline) {
+        execution.released();
+        PlatformBulkhead bulkhead = Bulkheads.getInstance().forPlatform(execution.platform);
+        CompletableFuture<PlatformBulkhead.Permit> permit = bulkhead.acquire();
+        if (inline && permit.isDone()) {
+            try {
+                runTestingCycle(execution, permit.join());
+                return CompletableFuture.completedFuture(null);
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        if (!permit.isDone()) {
+            AsyncOutputWriter.getInstance().emit("Bulkhead", "{} is at its concurrency limit, queued", execution.platform, execution.getDescription());
+        }
+        CompletableFuture<Void> cycle = new CompletableFuture<>();
+        permit.thenAcceptAsync(granted -> {
+            try {
+                runTestingCycle(execution, granted);
+                cycle.complete(null);
+            } catch (RuntimeException e) {
+                cycle.completeExceptionally(e);
             }
-        }, firstTime, 7 * 24 * 60 * 60 * 1000);// Repeat weekly
+        }, dispatcher);
+        return cycle;
     }
 
-    // Saves execution results as JSON entries in a local file.
+    // Holds the execution if the source code is not checked in yet; returns the future of its cycle, or null if not held.
+    private CompletableFuture<Void> holdUntilCheckIn(TestExecution execution) {
+        synchronized (held) {
+            if (isCheckedIn) return null;
+            CompletableFuture<Void> cycle = new CompletableFuture<>();
+            held.add(new HeldExecution(execution, cycle));
+            AsyncOutputWriter.getInstance().emit("Manager", "Source code not checked in. Holding testing cycle until check-in", execution.getDescription());
+            testExecutionState.setState(event(TestEventType.CYCLE_HELD, execution, "WAITING_FOR_CHECK_IN"));
+            return cycle;
+        }
+    }
+
+    // Runs the cycle holding a permit of the platform; once it is over, whatever the outcome, the journal forgets it.
+    private void runTestingCycle(TestExecution execution, PlatformBulkhead.Permit permit) {
+        try {
+            runCycle(execution, permit);
+        } finally {
+            TestScheduler.getInstance().completed(execution.members());
+        }
+    }
+
+    // The outcome feeds the platform's adaptive limit.
+    private void runCycle(TestExecution execution, PlatformBulkhead.Permit permit) {
+        AsyncOutputWriter.getInstance().emit("Manager", "Starting testing cycle...");
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        metrics.executionStarted();
+        LatencyHistogram history = metrics.executionHistogram(execution.getDescription());
+        long usual = history.totalCount() < 3 ? 0 : history.sumNanos() / history.totalCount(); // Too few runs to judge
+        long start = System.nanoTime();
+        try {
+            execution.executeTests();
+        } catch (TestTimeoutException e) {
+            permit.release(System.nanoTime() - start, usual, false);
+            metrics.executionTimedOut();
+            saveResults(execution, "TIMED_OUT", (System.nanoTime() - start) / 1_000_000, e.getTimedOut());
+            throw e;
+        } catch (RuntimeException e) {
+            permit.release(System.nanoTime() - start, usual, false);
+            metrics.executionFailed();
+            saveResults(execution, "FAILED", (System.nanoTime() - start) / 1_000_000, List.of());
+            throw e;
+        }
+        long elapsed = System.nanoTime() - start;
+        permit.release(elapsed, usual, true);
+        history.record(elapsed);
+        DurationModel.getInstance().record(execution.getDescription(), elapsed); // A coalesced run under its own description
+        metrics.platformHistogram(execution.platform).record(elapsed);
+        metrics.executionCompleted();
+        saveResults(execution, "PASSED", elapsed / 1_000_000, List.of());
+        AsyncOutputWriter.getInstance().emit("Manager", "Testing cycle completed.");
+    }
+
+    // Logs and publishes the outcome for every execution the run stands for; a member none of whose cases failed or timed out passed.
+    private void saveResults(TestExecution execution, String status, long durationMillis, List<String> timedOut) {
+        for (TestExecution member : execution.members()) {
+            List<String> own = execution.timedOutOf(member, timedOut);
+            String outcome = execution.statusOf(member, status, own);
+            saveResultToJson(member, outcome, durationMillis, own);
+            testExecutionState.setState(event(TestEventType.ofStatus(outcome), member, outcome));
+        }
+    }
 
-    private void saveResultToJson(TestExecution execution) {// The execution whose result should be logged.
+    private static TestEvent event(TestEventType type, TestExecution execution, String outcome) {
+        return new TestEvent(type, execution.getId(), execution.getDescription(),
+                execution.getSuite().getDescription(), outcome, System.currentTimeMillis());
+    }
+    // Plans the executions of the previous session again from the scheduler journal, see -Dtfs.scheduler.journal.
+    private void recoverPlannedExecutions() {
+        try {
+            TestScheduler.getInstance().recover(SchedulerJournal.open());
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("[Journal] Planned executions are not kept across restarts: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Starts the cron scheduling engine. Every execution fires on its own cron expression
+     * (every Monday at 09:00 unless planned otherwise) and due executions run concurrently on a bounded pool.
+     * Pool size and catch-up policy come from -Dtfs.scheduler.workers and -Dtfs.scheduler.catchUp=run_once|skip.
+     */
+    private void startScheduler() {
+        int workers = Integer.getInteger("tfs.scheduler.workers", Runtime.getRuntime().availableProcessors());
+        CatchUpPolicy catchUp = CatchUpPolicy.valueOf(System.getProperty("tfs.scheduler.catchUp", "run_once").toUpperCase());
+        scheduler = new CronSchedulingEngine(this, workers, catchUp);
+        scheduler.start();
+    }
+
+    // Writes a Prometheus snapshot of the metrics periodically, see -Dtfs.metrics.file and -Dtfs.metrics.intervalSeconds.
+    private void startMetricsSnapshots() {
+        long interval = Long.getLong("tfs.metrics.intervalSeconds", 15);
+        if (interval > 0) MetricsRegistry.getInstance().startSnapshots(
+                Paths.get(System.getProperty("tfs.metrics.file", "metrics.prom")), interval);
+    }
+
+    void saveResultToJson(TestExecution execution, String status, long durationMillis) {
+        saveResultToJson(execution, status, durationMillis, List.of());
+    }
+
+    /**
+     * Saves an execution result as a JSON entry in the append-only result log.
+     * @param execution The execution whose result should be logged.
+     * @param status PASSED, FAILED or TIMED_OUT.
+     * @param durationMillis How long the execution ran.
+     * @param timedOut Names of the cases and suites that ran past their deadline, logged when there are any.
+     */
+    void saveResultToJson(TestExecution execution, String status, long durationMillis, List<String> timedOut) {
         try {
             Date date=new Date();
-            String filename = "test_log.json";
+            StringBuilder timedOutField = new StringBuilder();
+            if (!timedOut.isEmpty()) {
+                timedOutField.append(", \"timedOut\": [");
+                for (int i = 0; i < timedOut.size(); i++) {
+                    if (i > 0) timedOutField.append(", ");
+                    timedOutField.append('"').append(escapeJson(timedOut.get(i))).append('"');
+                }
+                timedOutField.append(']');
+            }
             String logEntry = String.format(
-                    "{ \"description\": \"%s\", \"platform\": \"%s\", \"timestamp\": \"%s\" }",
+                    "{ \"description\": \"%s\", \"platform\": \"%s\", \"timestamp\": \"%s\", \"epochMillis\": %d, \"status\": \"%s\", \"durationMillis\": %d%s }",
                     escapeJson(execution.getDescription()),
                     escapeJson(execution.platform),
-                    date
+                    date,
+                    date.getTime(),
+                    status,
+                    durationMillis,
+                    timedOutField
             );
-
-            List<String> lines = new ArrayList<>();
-            if (Files.exists(Paths.get(filename))) {
-                lines = Files.readAllLines(Paths.get(filename));
-            }
-
-            if (lines.isEmpty()) {
-                lines.add("[");
-            } else if (lines.size() > 1) {
-                String last = lines.get(lines.size() - 1).trim();
-                if (last.equals("]")) lines.remove(lines.size() - 1);
-                else if (last.endsWith("]")) lines.set(lines.size() - 1, last.substring(0, last.length() - 1));
-                lines.set(lines.size() - 1, lines.get(lines.size() - 1) + ",");
-            }
-
-            lines.add("  " + logEntry);
-            lines.add("]");
-
-            Files.write(Paths.get(filename), lines);
-        } catch (IOException e) {
+            // Concurrent callers are batched into one group commit by the writer.
+            ResultLogWriter.getInstance().append(logEntry).join();
+        } catch (IOException | CompletionException e) {
             System.err.println("⚠ Error writing log: " + e.getMessage());
         }
     }
@@ -128,92 +292,224 @@ class TestManager {
      * @return Escaped string for JSON.
      */
     private String escapeJson(String input) {
-        return input.replace("\"", "\\\"");
+        // Backslashes and line breaks are escaped too, since the log relies on one record per line.
+        return input.replace("\\", "\\\\").replace("\"", "\\\"")
+                .replace("\n", "\\n").replace("\r", "\\r");
     }
 }
 
-interface Observer { // Called when the subject's state changes.
-    void update();
+interface Observer { // Called with the event when the subject's state changes.
+    void update(TestEvent event);
 }
 
 class TestObserver implements Observer {
     // Implementing observers with only a name for the sake of simplicity. This could be extended to have more functionality.
     private final String name;
+    private final String notified; // Message built once, not per event
 
     public TestObserver(String name) {
         this.name = name;
+        this.notified = name + " has been notified";
     }
 
-    public void update() {
-        System.out.println("[Observer] " + name + " has been notified.");
+    public void update(TestEvent event) {
+        AsyncOutputWriter.getInstance().emit("Observer", notified, event);
+    }
+
+    public String toString() {
+        return name;
     }
 }
 
+/**
+ * Subject side of the observer pattern, backed by an asynchronous event bus.
+ * Each observer gets a bounded buffer and its own delivery thread, so notifying returns
+ * as soon as the event is buffered instead of waiting for every observer to finish.
+ */
 abstract class StateSubject {
-    private final List<Observer> observers = new ArrayList<>();
+    static final int DEFAULT_CAPACITY = 1024;
+
+    private final List<ObserverSubscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    // Overflow policy for observers attached without one, from -Dtfs.events.overflow=block|drop_oldest|coalesce.
+    private final OverflowPolicy defaultPolicy =
+            OverflowPolicy.valueOf(System.getProperty("tfs.events.overflow", "block").toUpperCase());
 
     public void attach(Observer observer) {
-        observers.add(observer);
+        attach(observer, DEFAULT_CAPACITY, defaultPolicy);
     }// Attaches a new observer to the subject.
 
+    /**
+     * Attaches an observer with its own buffer size and overflow policy.
+     * @param observer The observer to notify.
+     * @param capacity Maximum number of undelivered events.
+     * @param policy What to do when the buffer is full.
+     */
+    public void attach(Observer observer, int capacity, OverflowPolicy policy) {
+        subscriptions.add(new ObserverSubscription(observer, capacity, policy));
+    }
+
     // detach(), despite not being used in the project context, should be implemented for completeness.
     public void detach(Observer observer) {
-        observers.remove(observer);
+        for (ObserverSubscription subscription : subscriptions) {
+            if (subscription.getObserver() != observer) continue;
+            subscriptions.remove(subscription);
+            subscription.close();
+        }
     }
 
-    // Notifies all observers of a state change.
-    public void notifyObservers() {
-        for (Observer observer : observers) {
-            observer.update();
+    // Hands the event to every observer's buffer; delivery happens on the observers' own threads.
+    public void notifyObservers(TestEvent event) {
+        try {
+            for (ObserverSubscription subscription : subscriptions) subscription.publish(event);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
 }
 // Concrete subject class representing the state of a test execution cycle.
 class TestExecutionState extends StateSubject {
-    private String state;
+    private volatile TestEvent state;
 
-    public void setState(String state) {
+    public void setState(TestEvent state) {
         this.state = state;
-        notifyObservers(); // Notifies observers when state is changed.
+        notifyObservers(state); // Notifies observers when state is changed.
     }
 
     // A getter for the state, in case we need to check the state later.
-    public String getState() {
+    public TestEvent getState() {
         return state;
     }
 }
 
 
+/**
+ * Singleton queue of planned executions, shared by the CLI thread and the scheduling engine.
+ * Executions are ordered by priority, then by planning order, in a lock-free skip list so
+ * many threads can plan executions at once. Draining claims each execution atomically:
+ * every execution is handed to exactly one caller and can be neither lost nor run twice.
+ * Once TestManager has recovered the queue, every operation is logged to the SchedulerJournal first,
+ * so the plan survives a restart.
+ */
 class TestScheduler {
-    private static TestScheduler instance;
-    private final List<TestExecution> pendingExecutions = new ArrayList<>();
+    private record Entry(TestExecution execution, int priority, long sequence) {}
+
+    private static final Comparator<Entry> ORDER = Comparator.comparingInt(Entry::priority).thenComparingLong(Entry::sequence);
+    private static final TestScheduler instance = new TestScheduler(); // Created eagerly, so no lazy-init race
+
+    private final ConcurrentSkipListSet<Entry> pendingExecutions = new ConcurrentSkipListSet<>(ORDER);
+    private final ConcurrentHashMap<TestExecution, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicInteger size = new AtomicInteger();
+    private volatile SchedulerJournal journal; // Null until the queue is recovered; batch runs keep none
 
     private TestScheduler() {}
 
     //return the Singleton instance of TestScheduler.
     public static TestScheduler getInstance() {
-        if (instance == null) instance = new TestScheduler();
         return instance;
     }
 
     /**
-     * Schedules a new test execution to be run on the next cycle.
+     * Schedules a new test execution to be run on the next cycle, queued by its priority.
+     * Scheduling an execution that is already pending has no effect.
      * @param execution The test to be scheduled.
      */
     public void scheduleExecution(TestExecution execution) {
-        pendingExecutions.add(execution);
+        Entry entry = new Entry(execution, execution.getPriority().ordinal(), sequence.getAndIncrement());
+        if (entries.putIfAbsent(execution, entry) != null) return;
+        SchedulerJournal log = journal;
+        if (log != null) log.scheduled(execution); // Logged before anyone can take it
+        pendingExecutions.add(entry);
+        size.incrementAndGet();
     }
 
     /**
-     * Gets the list of all currently scheduled test executions.
+     * Plans the executions of the journal again, then logs every later operation to it.
+     * @param journal The journal of the previous session.
+     */
+    void recover(SchedulerJournal journal) throws IOException {
+        for (TestExecution execution : journal.recover()) {
+            Entry entry = new Entry(execution, execution.getPriority().ordinal(), sequence.getAndIncrement());
+            if (entries.putIfAbsent(execution, entry) != null) continue;
+            pendingExecutions.add(entry);
+            size.incrementAndGet();
+        }
+        this.journal = journal;
+    }
+
+    /**
+     * Gets a snapshot of all currently scheduled test executions, most urgent first.
      * @return A list of TestExecution objects.
      */
     public List<TestExecution> getPendingExecutions() {
-        return pendingExecutions;
+        List<TestExecution> snapshot = new ArrayList<>();
+        for (Entry entry : pendingExecutions) snapshot.add(entry.execution());
+        return snapshot;
+    }
+
+    /**
+     * Removes a single execution once the scheduling engine has picked it up.
+     * @param execution The execution to remove.
+     * @return true if it was still pending, so the caller is the one that runs it.
+     */
+    public boolean removeExecution(TestExecution execution) {
+        Entry entry = entries.get(execution);
+        if (entry == null || !pendingExecutions.remove(entry)) return false;
+        entries.remove(execution, entry);
+        size.decrementAndGet();
+        SchedulerJournal log = journal;
+        if (log != null) log.taken(List.of(execution));
+        return true;
+    }
+
+    /**
+     * Atomically takes every pending execution out of the queue, most urgent first.
+     * Concurrent drains and removals never return the same execution twice.
+     * @return The executions now owned by the caller.
+     */
+    public List<TestExecution> drainExecutions() {
+        List<TestExecution> drained = claimAll();
+        SchedulerJournal log = journal;
+        if (log != null && !drained.isEmpty()) log.taken(drained);
+        return drained;
+    }
+
+    private List<TestExecution> claimAll() {
+        List<TestExecution> drained = new ArrayList<>();
+        Entry entry;
+        while ((entry = pendingExecutions.pollFirst()) != null) {
+            entries.remove(entry.execution(), entry);
+            size.decrementAndGet();
+            drained.add(entry.execution());
+        }
+        return drained;
+    }
+
+    /**
+     * Drains the queue like drainExecutions(), merging executions that would run the same test cases
+     * into one run each, see ExecutionCoalescer.
+     * @return The runs now owned by the caller, most urgent first.
+     */
+    public List<TestExecution> drainCoalesced() {
+        return ExecutionCoalescer.coalesce(drainExecutions());
     }
 
     //Clears all scheduled test executions.
     public void clearExecutions() {
-        pendingExecutions.clear();
+        List<TestExecution> cleared = claimAll();
+        SchedulerJournal log = journal;
+        if (log != null && !cleared.isEmpty()) log.cleared(cleared);
+    }
+
+    // Logs that the runs of executions taken from the queue are over, so a restart does not plan them again.
+    void completed(List<TestExecution> executions) {
+        SchedulerJournal log = journal;
+        if (log != null) log.completed(executions);
     }
-}
\ No newline at end of file
+
+    // Number of pending executions, without copying the queue.
+    public int size() {
+        return size.get();
+    }
+}
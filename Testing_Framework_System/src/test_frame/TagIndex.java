@@ -0,0 +1,248 @@
+/**
+ *Project: Testing Framework System
+ *
+ *@author Taha Yasir Colak
+ *@author Aykan Berk Ayvazoglu
+ *@author Cankat Caglar Acarer
+ *@author Bartu Nurgun
+ *
+ */
+package test_frame;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Boolean expression over test tags, e.g. "gui & !slow" or "(aix | macos) & network".
+ * Supports & (and), | (or), ! (not) and parentheses; tags are matched case-insensitively.
+ */
+abstract class TagExpression {
+    // Set of leaves, as bits of the index, matching this expression.
+    abstract BitSet evaluate(TagIndex index);
+
+    /**
+     * Parses a tag expression.
+     * @param expression The expression text.
+     * @return The parsed expression.
+     * @throws IllegalArgumentException If the expression is malformed.
+     */
+    public static TagExpression parse(String expression) {
+        Parser parser = new Parser(expression);
+        TagExpression result = parser.or();
+        parser.skipSpaces();
+        if (parser.pos < expression.length()) throw new IllegalArgumentException("Unexpected '" + expression.charAt(parser.pos) + "' in tag expression: " + expression);
+        return result;
+    }
+
+    // Recursive descent: or := and ('|' and)*, and := not ('&' not)*, not := '!' not | '(' or ')' | tag
+    private static class Parser {
+        private final String text;
+        private int pos;
+
+        Parser(String text) {
+            this.text = text;
+        }
+
+        void skipSpaces() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) pos++;
+        }
+
+        boolean accept(char c) {
+            skipSpaces();
+            if (pos < text.length() && text.charAt(pos) == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        TagExpression or() {
+            TagExpression left = and();
+            while (accept('|')) left = new Or(left, and());
+            return left;
+        }
+
+        TagExpression and() {
+            TagExpression left = not();
+            while (accept('&')) left = new And(left, not());
+            return left;
+        }
+
+        TagExpression not() {
+            if (accept('!')) return new Not(not());
+            if (accept('(')) {
+                TagExpression inner = or();
+                if (!accept(')')) throw new IllegalArgumentException("Missing ')' in tag expression: " + text);
+                return inner;
+            }
+            skipSpaces();
+            int start = pos;
+            while (pos < text.length() && (Character.isLetterOrDigit(text.charAt(pos)) || "-_.:".indexOf(text.charAt(pos)) >= 0)) pos++;
+            if (start == pos) throw new IllegalArgumentException("Expected a tag at position " + pos + " in tag expression: " + text);
+            return new Tag(text.substring(start, pos));
+        }
+    }
+
+    private static final class Tag extends TagExpression {
+        private final String tag;
+
+        Tag(String tag) {
+            this.tag = TestComponent.normalizeTag(tag);
+        }
+
+        BitSet evaluate(TagIndex index) {
+            return index.leavesTagged(tag);
+        }
+    }
+
+    private static final class Not extends TagExpression {
+        private final TagExpression operand;
+
+        Not(TagExpression operand) {
+            this.operand = operand;
+        }
+
+        BitSet evaluate(TagIndex index) {
+            BitSet result = operand.evaluate(index);
+            result.flip(0, index.size());
+            return result;
+        }
+    }
+
+    private static final class And extends TagExpression {
+        private final TagExpression left, right;
+
+        And(TagExpression left, TagExpression right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        BitSet evaluate(TagIndex index) {
+            BitSet result = left.evaluate(index);
+            result.and(right.evaluate(index));
+            return result;
+        }
+    }
+
+    private static final class Or extends TagExpression {
+        private final TagExpression left, right;
+
+        Or(TagExpression left, TagExpression right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        BitSet evaluate(TagIndex index) {
+            BitSet result = left.evaluate(index);
+            result.or(right.evaluate(index));
+            return result;
+        }
+    }
+}
+
+/**
+ * Bitmap index over the test cases of a suite tree, built once per suite.
+ * The cases are numbered in execution order and every tag maps to a BitSet of the cases carrying it,
+ * directly or through an enclosing suite, so a tag expression resolves with a few bitwise operations
+ * instead of a walk over the tree. Results are cached per expression. A case is kept as its position in
+ * its suite rather than as an object, so the cases of a CompactTestSuite are only materialized when used.
+ */
+class TagIndex {
+    private final TestSuite root;
+    private int[] positions = new int[16]; // Per leaf, its position in its enclosing suite
+    private int size;
+    private final int[][] suitePaths;   // Per leaf, the ids of its enclosing suites from the root down
+    private final List<TestSuite> suites = new ArrayList<>(); // Indexed by suite id
+    private final Map<String, BitSet> byTag = new HashMap<>();
+    private final Map<String, BitSet> selections = new ConcurrentHashMap<>();
+
+    /**
+     * Builds the index of a suite tree.
+     * @param root The root suite; it must not change while the index is in use.
+     */
+    TagIndex(TestSuite root) {
+        this.root = root;
+        List<int[]> paths = new ArrayList<>();
+        collect(root, new int[0], Set.of(), paths);
+        this.positions = Arrays.copyOf(positions, size);
+        this.suitePaths = paths.toArray(new int[0][]);
+    }
+
+    private void collect(TestSuite suite, int[] parentPath, Set<String> inherited, List<int[]> paths) {
+        int[] path = Arrays.copyOf(parentPath, parentPath.length + 1);
+        path[parentPath.length] = suites.size();
+        suites.add(suite);
+        Set<String> tags = new HashSet<>(inherited);
+        tags.addAll(suite.getTags());
+        List<BitSet> inheritedBits = new ArrayList<>();
+        for (String tag : tags) inheritedBits.add(byTag.computeIfAbsent(tag, t -> new BitSet()));
+        suite.forEachChild((child, position) -> {
+            if (child instanceof TestSuite childSuite) {
+                collect(childSuite, path, tags, paths);
+            } else if (child instanceof TestCase testCase) {
+                int leaf = size;
+                if (size == positions.length) positions = Arrays.copyOf(positions, size * 2);
+                positions[size++] = position;
+                paths.add(path); // Shared by every case of the suite
+                for (BitSet bits : inheritedBits) bits.set(leaf);
+                for (String tag : testCase.getTags()) byTag.computeIfAbsent(tag, t -> new BitSet()).set(leaf);
+            }
+        });
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // The case numbered i, in execution order; materialized again on every call for generated cases.
+    TestCase leaf(int i) {
+        int[] path = suitePaths[i];
+        return (TestCase) suites.get(path[path.length - 1]).child(positions[i]);
+    }
+
+    // Copy of the bitmap of a tag; empty if no case carries it.
+    BitSet leavesTagged(String tag) {
+        BitSet leavesWithTag = byTag.get(tag);
+        return leavesWithTag == null ? new BitSet() : (BitSet) leavesWithTag.clone();
+    }
+
+    /**
+     * Resolves a tag expression to the cases it matches.
+     * @param expression The tag expression.
+     * @return Bits of the matching cases, in execution order; the caller may modify it.
+     * @throws IllegalArgumentException If the expression is malformed.
+     */
+    public BitSet select(String expression) {
+        BitSet cached = selections.computeIfAbsent(expression.trim(), e -> TagExpression.parse(e).evaluate(this));
+        return (BitSet) cached.clone();
+    }
+
+    /**
+     * Builds the suite tree to run for a selection: the root itself if every case is selected, otherwise
+     * a tree of copy-on-write suites holding only the selected cases, built from the precomputed suite
+     * paths without walking the unselected part of the tree.
+     * @param selection Bits of the cases to run.
+     * @return The suite to run, or null if nothing is selected.
+     */
+    public TestSuite materialize(BitSet selection) {
+        if (selection.isEmpty()) return null;
+        if (selection.cardinality() == size) return root;
+        Map<Integer, TestSuite> copies = new HashMap<>();
+        TestSuite rootCopy = root.selectionCopy();
+        copies.put(0, rootCopy);
+        for (int leaf = selection.nextSetBit(0); leaf >= 0; leaf = selection.nextSetBit(leaf + 1)) {
+            int[] path = suitePaths[leaf];
+            TestSuite parent = rootCopy;
+            for (int depth = 1; depth < path.length; depth++) {
+                TestSuite current = parent;
+                parent = copies.computeIfAbsent(path[depth], id -> {
+                    TestSuite copy = suites.get(id).selectionCopy();
+                    current.add(copy);
+                    return copy;
+                });
+            }
+            parent.keep(suites.get(path[path.length - 1]), positions[leaf]);
+        }
+        return rootCopy;
+    }
+}
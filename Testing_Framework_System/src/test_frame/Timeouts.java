@@ -0,0 +1,362 @@
+/**
+ *Project: Testing Framework System
+ *
+ *@author Taha Yasir Colak
+ *@author Aykan Berk Ayvazoglu
+ *@author Cankat Caglar Acarer
+ *@author Bartu Nurgun
+ *
+ */
+package test_frame;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+// Thrown when a test case, suite or execution ran past its deadline or was cancelled by an enclosing one.
+class TestTimeoutException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final List<String> timedOut;
+
+    TestTimeoutException(String message) {
+        this(message, List.of());
+    }
+
+    /**
+     * @param message What timed out.
+     * @param timedOut Names of the cases and suites that ran past their own deadline.
+     */
+    TestTimeoutException(String message, List<String> timedOut) {
+        super(message);
+        this.timedOut = List.copyOf(timedOut);
+    }
+
+    public List<String> getTimedOut() {
+        return timedOut;
+    }
+}
+
+/**
+ * Cooperative cancellation signal of a running execution, suite or test case.
+ * Tokens form a tree along the composite: cancelling a token cancels every token below it, so the
+ * deadline of an execution stops its suites and cases too. Code under test checks isCancelled() or
+ * throwIfCancelled() between steps; blocking waits end through the interrupt the Watchdog registers.
+ * The token of the running component is bound to its thread, see current().
+ */
+class CancellationToken {
+    static final CancellationToken NONE = new CancellationToken(null); // Outside any execution; never cancelled
+
+    private static final ThreadLocal<CancellationToken> current = ThreadLocal.withInitial(() -> NONE);
+
+    private final CancellationToken parent;
+    private final Queue<String> timedOut; // Shared by the whole tree, owned by its root
+    private final List<Runnable> callbacks = new ArrayList<>(); // Guarded by this
+    private final Runnable cancelFromParent = () -> cancel(parentReason());
+    private volatile String reason; // Null until cancelled
+    private volatile boolean expired; // Cancelled by its own deadline rather than by its parent
+
+    private CancellationToken(CancellationToken parent) {
+        this.parent = parent;
+        this.timedOut = parent == null || parent == NONE ? new ConcurrentLinkedQueue<>() : parent.timedOut;
+    }
+
+    // Token of a new execution.
+    static CancellationToken newRoot() {
+        return new CancellationToken(null);
+    }
+
+    // Token cancelled whenever this one is; detach() it once the component has finished.
+    CancellationToken child() {
+        CancellationToken child = new CancellationToken(this);
+        if (this != NONE) onCancel(child.cancelFromParent);
+        return child;
+    }
+
+    void detach() {
+        if (parent != null && parent != NONE) parent.removeOnCancel(cancelFromParent);
+    }
+
+    private String parentReason() {
+        return parent.reason;
+    }
+
+    // Token of the component running on this thread, NONE outside of executions.
+    static CancellationToken current() {
+        return current.get();
+    }
+
+    // Binds the token to this thread; returns the previous one, to be bound again afterwards.
+    static CancellationToken bind(CancellationToken token) {
+        CancellationToken previous = current.get();
+        current.set(token);
+        return previous;
+    }
+
+    public boolean isCancelled() {
+        return reason != null;
+    }
+
+    public void throwIfCancelled() {
+        String cancelled = reason;
+        if (cancelled != null) throw new TestTimeoutException(cancelled, List.copyOf(timedOut));
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    /**
+     * Cancels this token and every token below it; only the first reason is kept.
+     * @param reason Why, e.g. "AIX GUI Test Suite timed out after 500 ms".
+     */
+    public void cancel(String reason) {
+        if (this == NONE) return;
+        Runnable[] toRun;
+        synchronized (this) {
+            if (this.reason != null) return;
+            this.reason = reason;
+            toRun = callbacks.toArray(new Runnable[0]);
+        }
+        for (Runnable callback : toRun) callback.run();
+    }
+
+    // Cancels the token because its own deadline passed.
+    void expire(String reason) {
+        expired = true;
+        cancel(reason);
+    }
+
+    boolean isExpired() {
+        return expired;
+    }
+
+    // Runs the callback on cancellation, or right away if already cancelled.
+    void onCancel(Runnable callback) {
+        synchronized (this) {
+            if (reason == null) {
+                callbacks.add(callback);
+                return;
+            }
+        }
+        callback.run();
+    }
+
+    synchronized void removeOnCancel(Runnable callback) {
+        callbacks.remove(callback);
+    }
+
+    // Remembers a case or suite that ran past its own deadline, for the result log.
+    void recordTimeout(String name) {
+        if (this != NONE) timedOut.add(name);
+    }
+
+    List<String> timedOut() {
+        return List.copyOf(timedOut);
+    }
+}
+
+/**
+ * Enforces the deadlines of test cases, suites and executions.
+ * A single timer thread cancels the token of whatever ran past its deadline and interrupts the thread
+ * running it. Cases and suites are cancelled cooperatively: a case that times out or fails is recorded and
+ * the suite goes on with its next case, while a suite that times out skips its remaining cases. Executions
+ * run on their own thread, so even a case that ignores cancellation cannot hold up the testing cycle
+ * longer than the execution deadline plus a grace period; after that the execution is abandoned.
+ *
+ * Deadlines in milliseconds come from -Dtfs.timeout.caseMillis (60 s), -Dtfs.timeout.suiteMillis (none)
+ * and -Dtfs.timeout.executionMillis (15 min), 0 meaning no deadline; TestComponent#timeout and
+ * TestExecution#setTimeoutMillis override them.
+ */
+class Watchdog {
+    private static final Watchdog instance = new Watchdog();
+
+    private final long caseTimeoutMillis = Long.getLong("tfs.timeout.caseMillis", 60_000);
+    private final long suiteTimeoutMillis = Long.getLong("tfs.timeout.suiteMillis", 0);
+    private final long executionTimeoutMillis = Long.getLong("tfs.timeout.executionMillis", 15 * 60_000);
+    private final long graceMillis = Long.getLong("tfs.timeout.graceMillis", 1_000); // Time a cancelled execution gets to stop
+    private final ScheduledThreadPoolExecutor alarms = new ScheduledThreadPoolExecutor(1, CronSchedulingEngine.daemonThreads("test-watchdog"));
+    private final ExecutorService executions = Executors.newCachedThreadPool(CronSchedulingEngine.daemonThreads("test-execution"));
+
+    private Watchdog() {
+        alarms.setRemoveOnCancelPolicy(true); // Most deadlines never fire; do not keep them queued
+    }
+
+    public static Watchdog getInstance() {
+        return instance;
+    }
+
+    // The component's own deadline, or the configured default for its kind.
+    long timeoutFor(TestComponent component) {
+        long own = component.getTimeoutMillis();
+        if (own >= 0) return own;
+        return component instanceof TestSuite ? suiteTimeoutMillis : caseTimeoutMillis;
+    }
+
+    long getCaseTimeoutMillis() {
+        return caseTimeoutMillis;
+    }
+
+    long timeoutFor(TestExecution execution) {
+        long own = execution.getTimeoutMillis();
+        return own >= 0 ? own : executionTimeoutMillis;
+    }
+
+    /**
+     * Executes a component under its deadline; if it times out or a case fails, that is emitted and recorded.
+     * The result of a case is added to the ResultNode of the suite running it, also when the case fails
+     * or is cancelled; a suite gets a node of its own for its cases while it runs. A failing case does not
+     * stop its suite, so every case of the suite gets a result.
+     * @param component The case or suite.
+     * @param out Sink of the component's output.
+     * @return The result of the case, or the roll-up of the suite.
+     * @throws TestTimeoutException If an enclosing suite or execution was cancelled.
+     */
+    public TestResult execute(TestComponent component, OutputSink out) {
+        long timeout = timeoutFor(component);
+        String name = nameOf(component);
+        if (component instanceof TestSuite) return executeSuite(name, timeout, component, out);
+
+        ResultNode suite = ResultNode.current();
+        long start = System.nanoTime();
+        TestResult result;
+        try {
+            if (run(name, timeout, () -> component.execute(out))) {
+                result = TestResult.passed(name, System.nanoTime() - start);
+            } else {
+                out.emit("Watchdog", "Timed out after {} ms", timeout, name);
+                result = new TestResult(name, TestStatus.TIMED_OUT, System.nanoTime() - start, "timed out after " + timeout + " ms");
+            }
+        } catch (TestTimeoutException e) {
+            if (suite != null) suite.record(new TestResult(name, TestStatus.TIMED_OUT, System.nanoTime() - start, e.getMessage()));
+            throw e;
+        } catch (RuntimeException e) {
+            out.emit("TestCase", "Test case {} failed", name, e);
+            result = new TestResult(name, TestStatus.FAILED, System.nanoTime() - start, e.toString());
+        }
+        if (suite != null) suite.record(result);
+        return result;
+    }
+
+    private TestResult executeSuite(String name, long timeout, TestComponent suite, OutputSink out) {
+        ResultNode node = ResultNode.enter(name);
+        ResultNode previous = ResultNode.bind(node);
+        long start = System.nanoTime();
+        boolean inTime;
+        try {
+            inTime = run(name, timeout, () -> suite.execute(out));
+        } finally {
+            ResultNode.bind(previous);
+        }
+        if (inTime) return node.result(System.nanoTime() - start);
+        out.emit("Watchdog", "Timed out after {} ms", timeout, name);
+        return new TestResult(name, TestStatus.TIMED_OUT, System.nanoTime() - start, "timed out after " + timeout + " ms");
+    }
+
+    /**
+     * Runs a body on the calling thread under a deadline. The body gets its own token, bound to the thread,
+     * which is cancelled when the deadline passes or the enclosing token is cancelled.
+     * @param name Name of the case or suite.
+     * @param timeoutMillis Deadline; 0 or less for none.
+     * @param body The work.
+     * @return false if the body ran past its own deadline, true otherwise.
+     * @throws TestTimeoutException If the enclosing token was cancelled.
+     */
+    boolean run(String name, long timeoutMillis, Runnable body) {
+        CancellationToken parent = CancellationToken.current();
+        parent.throwIfCancelled();
+        if (timeoutMillis <= 0 && parent == CancellationToken.NONE) {
+            body.run(); // Nothing can cancel it
+            return true;
+        }
+        CancellationToken token = timeoutMillis > 0 ? parent.child() : parent;
+        Runnable interrupt = Thread.currentThread()::interrupt;
+        token.onCancel(interrupt);
+        ScheduledFuture<?> alarm = timeoutMillis <= 0 ? null : alarms.schedule(
+                () -> token.expire(name + " timed out after " + timeoutMillis + " ms"), timeoutMillis, TimeUnit.MILLISECONDS);
+        CancellationToken previous = CancellationToken.bind(token);
+        try {
+            body.run();
+        } catch (RuntimeException e) {
+            if (token == parent || !token.isExpired()) throw e;
+            // Whatever the body threw once its deadline passed counts as the timeout.
+        } finally {
+            CancellationToken.bind(previous);
+            if (alarm != null) alarm.cancel(false);
+            if (token != parent) token.detach(); // First stop the parent from cancelling it...
+            token.removeOnCancel(interrupt);     // ...then nothing can interrupt this thread any more
+            if (token.isCancelled()) Thread.interrupted(); // Clear the interrupt the cancellation raised
+        }
+        if (token != parent && token.isExpired()) {
+            token.recordTimeout(name);
+            return false;
+        }
+        token.throwIfCancelled(); // Cancelled from above: the enclosing suite stops too
+        return true;
+    }
+
+    /**
+     * Runs an execution on a thread of its own under the execution deadline. Once the deadline passes,
+     * the execution is cancelled and gets the grace period to stop, after which it is abandoned.
+     * @param execution The execution, for its name and deadline.
+     * @param body The work.
+     * @return Names of the cases and suites that timed out, empty if none did.
+     * @throws TestTimeoutException If the execution itself timed out.
+     */
+    List<String> runExecution(TestExecution execution, Runnable body) {
+        String name = execution.getDescription();
+        long timeoutMillis = timeoutFor(execution);
+        CancellationToken token = CancellationToken.newRoot();
+        if (timeoutMillis <= 0) {
+            CancellationToken previous = CancellationToken.bind(token);
+            try {
+                body.run();
+            } finally {
+                CancellationToken.bind(previous);
+            }
+            return token.timedOut();
+        }
+
+        CompletableFuture<Void> run = CompletableFuture.runAsync(() -> {
+            Runnable interrupt = Thread.currentThread()::interrupt;
+            token.onCancel(interrupt);
+            CancellationToken.bind(token);
+            try {
+                body.run();
+            } finally {
+                CancellationToken.bind(CancellationToken.NONE);
+                token.removeOnCancel(interrupt);
+                if (token.isCancelled()) Thread.interrupted();
+            }
+        }, executions);
+        String reason = name + " timed out after " + timeoutMillis + " ms";
+        ScheduledFuture<?> alarm = alarms.schedule(() -> token.expire(reason), timeoutMillis, TimeUnit.MILLISECONDS);
+        try {
+            run.get(timeoutMillis + graceMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            token.expire(reason);
+            token.recordTimeout(name);
+            throw new TestTimeoutException(name + " did not stop within " + graceMillis + " ms of its deadline and was abandoned",
+                    token.timedOut());
+        } catch (ExecutionException e) {
+            if (!token.isExpired()) {
+                if (e.getCause() instanceof RuntimeException cause) throw cause;
+                throw new IllegalStateException(e.getCause());
+            }
+        } catch (InterruptedException e) {
+            token.cancel(name + " was interrupted");
+            Thread.currentThread().interrupt();
+            throw new TestTimeoutException(name + " was interrupted", token.timedOut());
+        } finally {
+            alarm.cancel(false);
+        }
+        if (!token.isExpired()) return token.timedOut();
+        token.recordTimeout(name);
+        throw new TestTimeoutException(reason, token.timedOut());
+    }
+
+    private static String nameOf(TestComponent component) {
+        if (component instanceof TestCase testCase) return testCase.getName();
+        if (component instanceof TestSuite suite) return suite.getDescription();
+        return component.toString();
+    }
+}
@@ -0,0 +1,50 @@
+package test_frame;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CoalescedExecutionTest {
+    private static TestExecution execution(String description, List<String> cases, CaseBody body) {
+        return new TestExecution(description, "AIX", new CompactTestSuite(description + " Suite").addCases(cases, body));
+    }
+
+    @Test
+    void membersGetTheResultsOfTheirOwnCases() {
+        TestExecution passing = execution("Coalesced passing", List.of("Coalesced case a", "Coalesced case shared"), (index, out) -> {});
+        TestExecution failing = execution("Coalesced failing", List.of("Coalesced case shared", "Coalesced case b"), (index, out) -> {
+            if (index == 1) throw new IllegalStateException("case b is broken");
+        });
+        List<TestExecution> runs = ExecutionCoalescer.coalesce(List.of(passing, failing));
+        assertEquals(1, runs.size());
+        TestExecution run = runs.get(0);
+
+        assertThrows(IllegalStateException.class, run::executeTests);
+
+        assertEquals(3, run.getResults().root().count(TestStatus.PASSED) + run.getResults().root().count(TestStatus.FAILED));
+        assertEquals(2, passing.getResults().root().count(TestStatus.PASSED));
+        assertEquals(0, passing.getResults().root().count(TestStatus.FAILED));
+        assertEquals(1, failing.getResults().root().count(TestStatus.PASSED));
+        assertEquals(1, failing.getResults().root().count(TestStatus.FAILED));
+        assertTrue(passing.getResults().isFinished());
+        assertTrue(failing.getResults().isFinished());
+
+        assertEquals("PASSED", run.statusOf(passing, "FAILED", List.of()));
+        assertEquals("FAILED", run.statusOf(failing, "FAILED", List.of()));
+    }
+
+    @Test
+    void runFailingOutsideItsCasesFailsEveryMember() {
+        TestExecution first = execution("Coalesced first", List.of("Coalesced case c", "Coalesced case d"), (index, out) -> {});
+        TestExecution second = execution("Coalesced second", List.of("Coalesced case d"), (index, out) -> {});
+        TestExecution run = ExecutionCoalescer.coalesce(List.of(first, second)).get(0);
+
+        run.executeTests();
+
+        assertEquals("FAILED", run.statusOf(first, "FAILED", List.of()));
+        assertEquals("FAILED", run.statusOf(second, "FAILED", List.of()));
+        assertEquals("PASSED", run.statusOf(second, "TIMED_OUT", List.of()));
+    }
+}
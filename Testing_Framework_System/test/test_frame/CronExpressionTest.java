@@ -0,0 +1,87 @@
+package test_frame;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CronExpressionTest {
+    private static final ZoneId UTC = ZoneId.of("UTC");
+
+    private static ZonedDateTime at(int year, int month, int day, int hour, int minute) {
+        return ZonedDateTime.of(year, month, day, hour, minute, 0, 0, UTC);
+    }
+
+    @Test
+    void weeklyDefaultFiresOnMondayMorning() {
+        // 2026-10-16 is a Friday.
+        assertEquals(at(2026, 10, 19, 9, 0), CronExpression.WEEKLY.next(at(2026, 10, 16, 12, 0)));
+        assertEquals(at(2026, 10, 26, 9, 0), CronExpression.WEEKLY.next(at(2026, 10, 19, 9, 0)));
+    }
+
+    @Test
+    void nextIsStrictlyAfterTheReferenceTime() {
+        CronExpression everyMinute = CronExpression.parse("* * * * *");
+        assertEquals(at(2026, 10, 16, 12, 1), everyMinute.next(at(2026, 10, 16, 12, 0)));
+        assertEquals(at(2026, 10, 16, 12, 1), everyMinute.next(at(2026, 10, 16, 12, 0).plusSeconds(30)));
+    }
+
+    @Test
+    void supportsListsRangesAndSteps() {
+        CronExpression cron = CronExpression.parse("0-30/15,45 8-9 * * *");
+        ZonedDateTime time = at(2026, 10, 16, 7, 59);
+        int[][] expected = {{8, 0}, {8, 15}, {8, 30}, {8, 45}, {9, 0}, {9, 15}, {9, 30}, {9, 45}};
+        for (int[] fire : expected) {
+            time = cron.next(time);
+            assertEquals(at(2026, 10, 16, fire[0], fire[1]), time);
+        }
+        assertEquals(at(2026, 10, 17, 8, 0), cron.next(time));
+    }
+
+    @Test
+    void singleValueWithStepRunsToTheEndOfTheField() {
+        CronExpression cron = CronExpression.parse("50/5 * * * *");
+        assertEquals(at(2026, 10, 16, 12, 55), cron.next(at(2026, 10, 16, 12, 50)));
+        assertEquals(at(2026, 10, 16, 13, 50), cron.next(at(2026, 10, 16, 12, 55)));
+    }
+
+    @Test
+    void sevenMeansSunday() {
+        // 2026-10-18 is a Sunday.
+        assertEquals(at(2026, 10, 18, 0, 0), CronExpression.parse("0 0 * * 7").next(at(2026, 10, 16, 0, 0)));
+        assertEquals(at(2026, 10, 18, 0, 0), CronExpression.parse("0 0 * * 0").next(at(2026, 10, 16, 0, 0)));
+    }
+
+    @Test
+    void restrictedDayOfMonthAndDayOfWeekMatchEither() {
+        // The 20th, or any Monday: Monday 19 comes first.
+        CronExpression cron = CronExpression.parse("0 0 20 * 1");
+        assertEquals(at(2026, 10, 19, 0, 0), cron.next(at(2026, 10, 16, 0, 0)));
+        assertEquals(at(2026, 10, 20, 0, 0), cron.next(at(2026, 10, 19, 0, 0)));
+    }
+
+    @Test
+    void impossibleDateNeverFires() {
+        assertNull(CronExpression.parse("0 0 30 2 *").next(at(2026, 10, 16, 0, 0)));
+    }
+
+    @Test
+    void keepsItsTextTrimmed() {
+        assertEquals("0 9 * * 1", CronExpression.parse("  0 9 * * 1 ").toString());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "", "* * * *", "* * * * * *",
+            "60 * * * *", "* 24 * * *", "* * 0 * *", "* * * 13 *", "* * * * 8",
+            "5- * * * *", "-5 * * * *", "1-2-3 * * * *", "5-1 * * * *",
+            "*/0 * * * *", "*/ * * * *", "1,,2 * * * *", "a * * * *"
+    })
+    void rejectsMalformedExpressions(String expression) {
+        assertThrows(IllegalArgumentException.class, () -> CronExpression.parse(expression));
+    }
+}
@@ -0,0 +1,126 @@
+package test_frame;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ObserverSubscriptionTest {
+    // Observer that holds its delivery thread in the first update until released, so the buffer fills up.
+    private static class GatedObserver implements Observer {
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<String> delivered = Collections.synchronizedList(new ArrayList<>());
+        private final CountDownLatch expected;
+
+        GatedObserver(int expectedEvents) {
+            expected = new CountDownLatch(expectedEvents);
+        }
+
+        public void update(TestEvent event) {
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            delivered.add(event.outcome());
+            expected.countDown();
+        }
+
+        List<String> awaitDelivered() throws InterruptedException {
+            assertTrue(expected.await(5, TimeUnit.SECONDS));
+            return new ArrayList<>(delivered);
+        }
+    }
+
+    private ObserverSubscription subscription;
+
+    @AfterEach
+    void close() {
+        if (subscription != null) subscription.close();
+    }
+
+    private static TestEvent event(long executionId, String outcome) {
+        return new TestEvent(TestEventType.CYCLE_COMPLETED, executionId, "Execution " + executionId, "Suite", outcome, 0);
+    }
+
+    // Publishes the first event and waits until the delivery thread is stuck in it.
+    private ObserverSubscription subscribed(GatedObserver observer, int capacity, OverflowPolicy policy) throws InterruptedException {
+        subscription = new ObserverSubscription(observer, capacity, policy);
+        subscription.publish(event(1, "first"));
+        assertTrue(observer.entered.await(5, TimeUnit.SECONDS));
+        return subscription;
+    }
+
+    @Test
+    void dropOldestDiscardsTheOldestUndeliveredEvent() throws Exception {
+        GatedObserver observer = new GatedObserver(3);
+        ObserverSubscription subscription = subscribed(observer, 2, OverflowPolicy.DROP_OLDEST);
+        subscription.publish(event(2, "second"));
+        subscription.publish(event(3, "third"));
+        subscription.publish(event(4, "fourth"));
+
+        observer.release.countDown();
+
+        assertEquals(List.of("first", "third", "fourth"), observer.awaitDelivered());
+        assertEquals(1, subscription.getDropped());
+    }
+
+    @Test
+    void coalesceReplacesThePendingEventOfTheSameExecutionInPlace() throws Exception {
+        GatedObserver observer = new GatedObserver(3);
+        ObserverSubscription subscription = subscribed(observer, 2, OverflowPolicy.COALESCE);
+        subscription.publish(event(2, "second"));
+        subscription.publish(event(3, "third"));
+        subscription.publish(event(2, "second again"));
+
+        observer.release.countDown();
+
+        assertEquals(List.of("first", "second again", "third"), observer.awaitDelivered());
+        assertEquals(0, subscription.getDropped());
+    }
+
+    @Test
+    void coalesceDropsTheOldestWhenNoPendingEventMatches() throws Exception {
+        GatedObserver observer = new GatedObserver(3);
+        ObserverSubscription subscription = subscribed(observer, 2, OverflowPolicy.COALESCE);
+        subscription.publish(event(2, "second"));
+        subscription.publish(event(3, "third"));
+        subscription.publish(event(4, "fourth"));
+
+        observer.release.countDown();
+
+        assertEquals(List.of("first", "third", "fourth"), observer.awaitDelivered());
+        assertEquals(1, subscription.getDropped());
+    }
+
+    @Test
+    void blockWaitsForTheObserverInsteadOfDropping() throws Exception {
+        GatedObserver observer = new GatedObserver(3);
+        ObserverSubscription subscription = subscribed(observer, 1, OverflowPolicy.BLOCK);
+        subscription.publish(event(2, "second"));
+        CompletableFuture<Void> third = CompletableFuture.runAsync(() -> {
+            try {
+                subscription.publish(event(3, "third"));
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        Thread.sleep(200);
+        assertFalse(third.isDone()); // The buffer is full and the observer has not caught up
+        observer.release.countDown();
+        third.get(5, TimeUnit.SECONDS);
+
+        assertEquals(List.of("first", "second", "third"), observer.awaitDelivered());
+        assertEquals(0, subscription.getDropped());
+    }
+}
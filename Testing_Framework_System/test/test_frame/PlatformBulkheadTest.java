@@ -0,0 +1,95 @@
+package test_frame;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlatformBulkheadTest {
+    private static final long SECOND = 1_000_000_000L;
+
+    private static PlatformBulkhead.Permit granted(CompletableFuture<PlatformBulkhead.Permit> permit) {
+        assertTrue(permit.isDone());
+        return permit.join();
+    }
+
+    @Test
+    void passingRunsIncreaseTheLimitByOneOverTheLimit() {
+        PlatformBulkhead bulkhead = new PlatformBulkhead("AIX", 2, 32, 2.0);
+
+        granted(bulkhead.acquire()).release(SECOND, SECOND, true);
+        assertEquals(2.5, bulkhead.getLimit(), 1e-9);
+        granted(bulkhead.acquire()).release(SECOND, SECOND, true);
+        assertEquals(2.9, bulkhead.getLimit(), 1e-9);
+        assertEquals(0, bulkhead.getInFlight());
+    }
+
+    @Test
+    void limitNeverExceedsTheMaximum() {
+        PlatformBulkhead bulkhead = new PlatformBulkhead("AIX", 2, 2, 2.0);
+
+        for (int i = 0; i < 10; i++) granted(bulkhead.acquire()).release(SECOND, SECOND, true);
+
+        assertEquals(2.0, bulkhead.getLimit(), 1e-9);
+    }
+
+    @Test
+    void congestionHalvesTheLimitOncePerRound() throws InterruptedException {
+        PlatformBulkhead bulkhead = new PlatformBulkhead("AIX", 8, 32, 2.0);
+        List<PlatformBulkhead.Permit> round = new ArrayList<>();
+        for (int i = 0; i < 4; i++) round.add(granted(bulkhead.acquire()));
+
+        round.get(0).release(SECOND, SECOND, false);
+        assertEquals(4.0, bulkhead.getLimit(), 1e-9);
+        round.get(1).release(3 * SECOND, SECOND, true); // Slow, but acquired before the decrease
+        round.get(2).release(SECOND, SECOND, false);
+        assertEquals(4.0, bulkhead.getLimit(), 1e-9);
+
+        Thread.sleep(1); // The next permit is acquired strictly after the decrease
+        granted(bulkhead.acquire()).release(3 * SECOND, SECOND, true);
+        assertEquals(2.0, bulkhead.getLimit(), 1e-9);
+        round.get(3).release(SECOND, SECOND, false);
+        assertEquals(2.0, bulkhead.getLimit(), 1e-9);
+    }
+
+    @Test
+    void limitNeverDropsBelowOne() throws InterruptedException {
+        PlatformBulkhead bulkhead = new PlatformBulkhead("AIX", 1, 32, 2.0);
+        for (int i = 0; i < 3; i++) {
+            Thread.sleep(1);
+            granted(bulkhead.acquire()).release(SECOND, SECOND, false);
+        }
+
+        assertEquals(1.0, bulkhead.getLimit(), 1e-9);
+        assertTrue(bulkhead.acquire().isDone());
+    }
+
+    @Test
+    void waitersAreGrantedInArrivalOrder() {
+        PlatformBulkhead bulkhead = new PlatformBulkhead("AIX", 1, 1, 2.0);
+        List<Integer> grants = new ArrayList<>();
+        PlatformBulkhead.Permit running = granted(bulkhead.acquire());
+        List<CompletableFuture<PlatformBulkhead.Permit>> waiters = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            int waiter = i;
+            CompletableFuture<PlatformBulkhead.Permit> permit = bulkhead.acquire();
+            permit.thenRun(() -> grants.add(waiter));
+            waiters.add(permit);
+        }
+        assertEquals(3, bulkhead.getQueued());
+
+        running.release(SECOND, SECOND, true);
+        running.release(SECOND, SECOND, true); // Released once only
+        assertEquals(List.of(1), grants);
+        assertEquals(1, bulkhead.getInFlight());
+
+        for (CompletableFuture<PlatformBulkhead.Permit> waiter : waiters) granted(waiter).release(SECOND, SECOND, true);
+
+        assertEquals(List.of(1, 2, 3), grants);
+        assertEquals(0, bulkhead.getInFlight());
+        assertEquals(0, bulkhead.getQueued());
+    }
+}
@@ -0,0 +1,224 @@
+package test_frame;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResultArchiveTest {
+    private static final long MONDAY = 1_760_918_400_000L; // 2025-10-20T00:00:00Z
+
+    @TempDir
+    Path dir;
+
+    private static LogRecord record(String description, String platform, long epochMillis, String status, long durationMillis) {
+        return LogRecord.parse(String.format(
+                "{ \"description\": \"%s\", \"platform\": \"%s\", \"epochMillis\": %d, \"status\": \"%s\", \"durationMillis\": %d }",
+                description, platform, epochMillis, status, durationMillis));
+    }
+
+    // Every record of the archive, rebuilt from all of its columns.
+    private static List<String> readAll(ResultArchive archive) throws IOException {
+        List<String> rows = new ArrayList<>();
+        archive.scan(EnumSet.allOf(ArchiveColumn.class), Long.MIN_VALUE, Long.MAX_VALUE, block -> {
+            for (int i = 0; i < block.count; i++) {
+                rows.add(block.descriptionDictionary[block.descriptionIds[i]] + "|" + block.platformDictionary[block.platformIds[i]]
+                        + "|" + block.epochMillis[i] + "|" + block.status[i] + "|" + block.durationMillis[i]);
+            }
+        });
+        return rows;
+    }
+
+    private static String row(LogRecord r) {
+        int status = switch (r.getStatus()) {
+            case "PASSED" -> 0;
+            case "TIMED_OUT" -> 2;
+            default -> 1;
+        };
+        return r.getDescription() + "|" + r.getPlatform() + "|" + r.getEpochMillis() + "|" + status + "|" + r.getDurationMillis();
+    }
+
+    @Test
+    void roundTripsEveryColumn() throws IOException {
+        ResultArchive archive = new ResultArchive(dir.resolve("test_log.archive"));
+        List<LogRecord> records = List.of(
+                record("AIX - gui Test Execution", "AIX", MONDAY + 5_000, "PASSED", 120),
+                record("MacOS - all Test Execution", "MacOS", MONDAY + 1_000, "FAILED", 0), // Out of order
+                record("AIX - gui Test Execution", "AIX", MONDAY + 9_000, "TIMED_OUT", 30_000),
+                record("Ünicode ✓", "AIX", MONDAY - 86_400_000L * 400, "PASSED", -1)); // Far in the past, unknown duration
+        archive.append(records);
+
+        assertEquals(records.stream().map(ResultArchiveTest::row).toList(), readAll(archive));
+    }
+
+    @Test
+    void appendsSpanSeveralBlocks() throws IOException {
+        ResultArchive archive = new ResultArchive(dir.resolve("test_log.archive"));
+        List<LogRecord> first = new ArrayList<>();
+        for (int i = 0; i < ResultArchive.BLOCK_SIZE + 10; i++) {
+            first.add(record("Execution " + (i % 7), i % 2 == 0 ? "AIX" : "MacOS", MONDAY + i * 1000L, i % 5 == 0 ? "FAILED" : "PASSED", i));
+        }
+        List<LogRecord> second = List.of(record("Later", "AIX", MONDAY + 86_400_000L * 7, "PASSED", 1));
+        archive.append(first);
+        archive.append(second);
+
+        List<String> expected = new ArrayList<>();
+        for (LogRecord r : first) expected.add(row(r));
+        expected.add(row(second.get(0)));
+        assertEquals(expected, readAll(archive));
+
+        int[] blocks = {0};
+        archive.scan(EnumSet.noneOf(ArchiveColumn.class), Long.MIN_VALUE, Long.MAX_VALUE, block -> blocks[0]++);
+        assertEquals(3, blocks[0]);
+    }
+
+    @Test
+    void scanSkipsBlocksOutsideTheRangeAndUnrequestedColumns() throws IOException {
+        ResultArchive archive = new ResultArchive(dir.resolve("test_log.archive"));
+        archive.append(List.of(record("Old", "AIX", MONDAY, "PASSED", 1)));
+        archive.append(List.of(record("New", "AIX", MONDAY + 86_400_000L, "PASSED", 2)));
+
+        List<ArchiveBlock> visited = new ArrayList<>();
+        archive.scan(EnumSet.of(ArchiveColumn.DURATION), MONDAY + 1, Long.MAX_VALUE, visited::add);
+
+        assertEquals(1, visited.size());
+        assertArrayEquals(new long[] {2}, visited.get(0).durationMillis);
+        assertNull(visited.get(0).epochMillis);
+        assertNull(visited.get(0).descriptionDictionary);
+    }
+
+    @Test
+    void aggregatesPassRatesAndDurations() throws IOException {
+        ResultArchive archive = new ResultArchive(dir.resolve("test_log.archive"));
+        archive.append(List.of(
+                record("A", "AIX", MONDAY + 3_600_000L * 12, "PASSED", 10),
+                record("A", "AIX", MONDAY + 3_600_000L * 36, "FAILED", 20),
+                record("A", "AIX", MONDAY + 86_400_000L * 7 + 3_600_000L * 12, "PASSED", 30),
+                record("B", "MacOS", MONDAY + 3_600_000L * 12, "PASSED", 40)));
+        ArchiveStats stats = new ArchiveStats(archive);
+
+        List<ArchiveStats.WeeklyPassRate> rates = stats.weeklyPassRates();
+        assertEquals(3, rates.size());
+        assertEquals("AIX", rates.get(0).platform());
+        assertEquals(2, rates.get(0).runs());
+        assertEquals(1, rates.get(0).passed());
+        assertEquals(1, rates.get(1).runs());
+        assertEquals("MacOS", rates.get(2).platform());
+
+        assertArrayEquals(new long[] {20, 40}, stats.durationPercentiles(null, 50, 100));
+        assertArrayEquals(new long[] {30}, stats.durationPercentiles("aix", 100));
+        assertArrayEquals(new long[0], stats.durationPercentiles("linux", 50));
+    }
+
+    @Test
+    void missingArchiveScansNothing() throws IOException {
+        ResultArchive archive = new ResultArchive(dir.resolve("missing.archive"));
+        assertTrue(readAll(archive).isEmpty());
+    }
+
+    @Test
+    void rejectsAFileThatIsNotAnArchive() throws IOException {
+        Path path = dir.resolve("test_log.archive");
+        Files.writeString(path, "not an archive at all");
+        assertThrows(IOException.class, () -> readAll(new ResultArchive(path)));
+    }
+
+    @Test
+    void uncommittedBlocksAreIgnoredAndDiscarded() throws IOException {
+        Path path = dir.resolve("test_log.archive");
+        ResultArchive archive = new ResultArchive(path);
+        archive.append(List.of(record("Committed", "AIX", MONDAY, "PASSED", 1)));
+        try (ResultArchive.Appender appender = archive.appender()) {
+            for (int i = 0; i < ResultArchive.BLOCK_SIZE; i++) appender.add(record("Lost", "AIX", MONDAY + i, "PASSED", 1));
+            // A crash before commit: the full block is on disk, the header does not cover it.
+        }
+        long torn = Files.size(path);
+        assertEquals(List.of(row(record("Committed", "AIX", MONDAY, "PASSED", 1))), readAll(archive));
+
+        archive.append(List.of(record("Next", "MacOS", MONDAY + 1, "FAILED", 2)));
+        assertTrue(Files.size(path) < torn);
+        assertEquals(List.of(row(record("Committed", "AIX", MONDAY, "PASSED", 1)), row(record("Next", "MacOS", MONDAY + 1, "FAILED", 2))),
+                readAll(archive));
+    }
+
+    @Test
+    void keepsTheArchivedUntilMark() throws IOException {
+        ResultArchive archive = new ResultArchive(dir.resolve("test_log.archive"));
+        try (ResultArchive.Appender appender = archive.appender()) {
+            assertEquals(Long.MIN_VALUE, appender.archivedUntil());
+            appender.commit(MONDAY);
+        }
+        archive.append(List.of(record("A", "AIX", MONDAY, "PASSED", 1))); // Leaves the mark unchanged
+        try (ResultArchive.Appender appender = archive.appender()) {
+            assertEquals(MONDAY, appender.archivedUntil());
+            appender.commit(MONDAY - 1); // Never moves back
+        }
+        try (ResultArchive.Appender appender = archive.appender()) {
+            assertEquals(MONDAY, appender.archivedUntil());
+        }
+    }
+
+    @Test
+    void readsAndUpgradesVersion1Archives() throws IOException {
+        Path path = dir.resolve("test_log.archive");
+        ResultArchive archive = new ResultArchive(path);
+        LogRecord old = record("Old", "AIX", MONDAY, "PASSED", 1);
+        archive.append(List.of(old));
+        // Version 1 had just the magic before the blocks.
+        byte[] v2 = Files.readAllBytes(path);
+        byte[] v1 = new byte[v2.length - 16];
+        System.arraycopy(v2, 0, v1, 0, 5);
+        System.arraycopy(v2, 21, v1, 5, v2.length - 21);
+        v1[4] = 1;
+        Files.write(path, v1);
+        assertEquals(List.of(row(old)), readAll(archive));
+
+        LogRecord added = record("New", "AIX", MONDAY + 1, "FAILED", 2);
+        archive.append(List.of(added));
+        assertEquals(2, Files.readAllBytes(path)[4]);
+        assertEquals(List.of(row(old), row(added)), readAll(archive));
+    }
+
+    @Test
+    void compactionMovesOldRecordsOnce() throws Exception {
+        Path logPath = dir.resolve("test_log.ndjson");
+        ResultLogWriter log = new ResultLogWriter(logPath, FsyncPolicy.NEVER, 1000);
+        ResultArchive archive = new ResultArchive(dir.resolve("test_log.archive"));
+        List<LogRecord> records = List.of(
+                record("Old 1", "AIX", MONDAY, "PASSED", 1),
+                record("Old 2", "MacOS", MONDAY + 1, "FAILED", 2),
+                record("Recent", "AIX", MONDAY + 86_400_000L * 30, "PASSED", 3));
+        for (LogRecord r : records) log.append(r.getJson()).join();
+        long cutoff = MONDAY + 86_400_000L;
+
+        // A crashed compaction archived the old records but never replaced the log.
+        try (ResultArchive.Appender appender = archive.appender()) {
+            appender.add(records.get(0));
+            appender.add(records.get(1));
+            appender.commit(cutoff);
+        }
+
+        assertEquals(2, LogCompactor.compact(log, archive, cutoff));
+        assertEquals(List.of(row(records.get(0)), row(records.get(1))), readAll(archive));
+        assertEquals(List.of(records.get(2).getJson()), Files.readAllLines(logPath));
+
+        // New results keep going into the replaced log.
+        LogRecord later = record("Later", "AIX", MONDAY + 86_400_000L * 31, "PASSED", 4);
+        log.append(later.getJson()).join();
+        assertEquals(List.of(records.get(2).getJson(), later.getJson()), Files.readAllLines(logPath));
+        assertEquals(0, LogCompactor.compact(log, archive, cutoff));
+    }
+
+    @Test
+    void compactionRejectsDaysBelowOne() {
+        assertThrows(IllegalArgumentException.class, () -> LogCompactor.compact(0));
+        assertThrows(IllegalArgumentException.class, () -> LogCompactor.compact(-5));
+    }
+}
@@ -0,0 +1,46 @@
+package test_frame;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResultLogWriterTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void failingListenerDoesNotFailWrittenRecords() throws Exception {
+        ResultLogWriter log = new ResultLogWriter(dir.resolve("log.ndjson"), FsyncPolicy.ALWAYS, 0);
+        CountDownLatch seen = new CountDownLatch(2);
+        log.addListener((offsets, records) -> {
+            throw new IllegalStateException("broken listener");
+        });
+        log.addListener((offsets, records) -> records.forEach(record -> seen.countDown()));
+
+        long first = log.append("{ \"n\": 1 }").get();
+        long second = log.append("{ \"n\": 2 }").get();
+
+        assertEquals(0, first);
+        assertTrue(second > first);
+        assertEquals(List.of("{ \"n\": 1 }", "{ \"n\": 2 }"), Files.readAllLines(dir.resolve("log.ndjson")));
+        assertTrue(seen.await(5, TimeUnit.SECONDS)); // Later listeners still get every commit
+    }
+
+    @Test
+    void exportWrapsEveryRecordInAnArray() throws Exception {
+        ResultLogWriter log = new ResultLogWriter(dir.resolve("log.ndjson"), FsyncPolicy.NEVER, 0);
+        log.append("{ \"n\": 1 }");
+        log.append("{ \"n\": 2 }").get();
+
+        log.exportJsonArray(dir.resolve("log.json"));
+
+        assertEquals("[\n  { \"n\": 1 },\n  { \"n\": 2 }\n]\n", Files.readString(dir.resolve("log.json")));
+    }
+}
@@ -0,0 +1,172 @@
+package test_frame;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SchedulerJournalTest {
+    @TempDir
+    Path dir;
+
+    private Path journalFile() {
+        return dir.resolve("scheduler.wal");
+    }
+
+    private SchedulerJournal open(int snapshotEvery) throws IOException {
+        return new SchedulerJournal(journalFile(), FsyncPolicy.NEVER, snapshotEvery);
+    }
+
+    // A fresh journal, recovered so it starts tracking.
+    private SchedulerJournal fresh(int snapshotEvery) throws IOException {
+        SchedulerJournal journal = open(snapshotEvery);
+        assertTrue(journal.recover().isEmpty());
+        return journal;
+    }
+
+    private static TestExecution planned(String platform, String type, Priority priority) {
+        TestExecution execution = ExecutionPlanner.create(platform, type);
+        execution.setPriority(priority);
+        execution.setTimeoutMillis(1234);
+        execution.setCron(CronExpression.parse("*/5 * * * *"));
+        return execution;
+    }
+
+    private static List<String> descriptions(List<TestExecution> executions) {
+        return executions.stream().map(TestExecution::getDescription).toList();
+    }
+
+    @Test
+    void recoversPendingExecutionsWithTheirSpecs() throws IOException {
+        SchedulerJournal journal = fresh(10_000);
+        TestExecution gui = planned("aix", "gui", Priority.HIGH);
+        gui.setTagFilter("login");
+        journal.scheduled(gui);
+        journal.scheduled(planned("macos", "network", Priority.LOW));
+
+        List<TestExecution> recovered = open(10_000).recover();
+
+        assertEquals(List.of("AIX - gui Test Execution", "MacOS - network Test Execution"), descriptions(recovered));
+        TestExecution first = recovered.get(0);
+        assertEquals(ExecutionSpec.of(gui), ExecutionSpec.of(first));
+        assertEquals(gui.getPlannedAt(), first.getPlannedAt());
+    }
+
+    @Test
+    void forgetsClearedAndCompletedExecutions() throws IOException {
+        SchedulerJournal journal = fresh(10_000);
+        TestExecution cleared = planned("aix", "gui", Priority.NORMAL);
+        TestExecution completed = planned("aix", "network", Priority.NORMAL);
+        TestExecution pending = planned("macos", "all", Priority.NORMAL);
+        journal.scheduled(cleared);
+        journal.scheduled(completed);
+        journal.scheduled(pending);
+        journal.cleared(List.of(cleared));
+        journal.taken(List.of(completed));
+        journal.completed(List.of(completed));
+
+        assertEquals(List.of("MacOS - all Test Execution"), descriptions(open(10_000).recover()));
+    }
+
+    @Test
+    void plansTakenButUncompletedExecutionsAgain() throws IOException {
+        SchedulerJournal journal = fresh(10_000);
+        TestExecution running = planned("aix", "gui", Priority.NORMAL);
+        journal.scheduled(running);
+        journal.taken(List.of(running)); // The process ends while it runs
+
+        SchedulerJournal restarted = open(10_000);
+        List<TestExecution> recovered = restarted.recover();
+        assertEquals(List.of("AIX - gui Test Execution"), descriptions(recovered));
+
+        // Pending again: completing the recovered execution empties the journal.
+        restarted.taken(recovered);
+        restarted.completed(recovered);
+        assertEquals(0, restarted.size());
+        assertEquals(0, Files.size(journalFile()));
+        assertTrue(open(10_000).recover().isEmpty());
+    }
+
+    @Test
+    void dropsATornTail() throws IOException {
+        SchedulerJournal journal = fresh(10_000);
+        journal.scheduled(planned("aix", "gui", Priority.NORMAL));
+        journal.scheduled(planned("aix", "network", Priority.NORMAL));
+        byte[] bytes = Files.readAllBytes(journalFile());
+        Files.write(journalFile(), Arrays.copyOf(bytes, bytes.length - 3)); // The last append was cut off
+
+        SchedulerJournal restarted = open(10_000);
+        assertEquals(List.of("AIX - gui Test Execution"), descriptions(restarted.recover()));
+        // The torn record is gone from the file, so later appends follow the intact prefix.
+        restarted.scheduled(planned("macos", "gui", Priority.NORMAL));
+        assertEquals(List.of("AIX - gui Test Execution", "MacOS - gui Test Execution"), descriptions(open(10_000).recover()));
+    }
+
+    @Test
+    void stopsAtARecordFailingItsChecksum() throws IOException {
+        SchedulerJournal journal = fresh(10_000);
+        journal.scheduled(planned("aix", "gui", Priority.NORMAL));
+        int intact = (int) Files.size(journalFile());
+        journal.scheduled(planned("aix", "network", Priority.NORMAL));
+        journal.scheduled(planned("macos", "all", Priority.NORMAL));
+        byte[] bytes = Files.readAllBytes(journalFile());
+        bytes[intact + 12] ^= 0x55; // Inside the payload of the second record
+        Files.write(journalFile(), bytes);
+
+        // Nothing after the corrupt record can be trusted, even the intact third one.
+        assertEquals(List.of("AIX - gui Test Execution"), descriptions(open(10_000).recover()));
+    }
+
+    @Test
+    void rejectsAFileThatIsNotAJournal() throws IOException {
+        Files.writeString(journalFile(), "not a journal");
+        assertThrows(IOException.class, () -> open(10_000).recover());
+    }
+
+    @Test
+    void snapshotKeepsOnlyLiveExecutions() throws IOException {
+        SchedulerJournal journal = fresh(4);
+        TestExecution kept = planned("aix", "gui", Priority.NORMAL);
+        TestExecution running = planned("macos", "gui", Priority.NORMAL);
+        journal.scheduled(kept);
+        journal.scheduled(running);
+        journal.taken(List.of(running));
+        for (int i = 0; i < 20; i++) {
+            TestExecution transient_ = planned("aix", "network", Priority.NORMAL);
+            journal.scheduled(transient_);
+            journal.cleared(List.of(transient_));
+        }
+        // 2 schedules, 1 take and 40 transient records were appended; snapshots keep the log small.
+        long size = Files.size(journalFile());
+        journal.scheduled(planned("aix", "all", Priority.NORMAL));
+        assertTrue(size < 400, "journal was not compacted: " + size + " bytes");
+
+        assertEquals(List.of("AIX - gui Test Execution", "MacOS - gui Test Execution", "AIX - all Test Execution"),
+                descriptions(open(4).recover()));
+    }
+
+    @Test
+    void truncatesOnceNothingIsLeft() throws IOException {
+        SchedulerJournal journal = fresh(10_000);
+        TestExecution execution = planned("aix", "gui", Priority.NORMAL);
+        journal.scheduled(execution);
+        assertTrue(Files.size(journalFile()) > 0);
+        journal.taken(List.of(execution));
+        journal.completed(List.of(execution));
+        assertEquals(0, Files.size(journalFile()));
+    }
+
+    @Test
+    void ignoresExecutionsWithoutASpec() throws IOException {
+        SchedulerJournal journal = fresh(10_000);
+        journal.scheduled(new TestExecution("Hand-built", "AIX", new TestSuite("Empty")));
+        assertEquals(0, journal.size());
+        assertEquals(0, Files.size(journalFile()));
+    }
+}
@@ -0,0 +1,50 @@
+package test_frame;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardCoordinatorTest {
+    private static ResultNode run(TestSuite suite, int workers) {
+        return TestRuns.recorded(() -> ShardCoordinator.run(suite, workers, new OutputBatch(false)));
+    }
+
+    @Test
+    void shardedCompactSuiteRunsItsBodies() {
+        Set<Integer> ran = ConcurrentHashMap.newKeySet();
+        CompactTestSuite suite = new CompactTestSuite("Login").addRange("Sharded login user {}", 1, 20, (index, out) -> ran.add(index));
+
+        ResultNode root = run(suite, 3);
+
+        assertEquals(20, ran.size());
+        assertTrue(ran.contains(1) && ran.contains(20));
+        assertEquals(20, root.count(TestStatus.PASSED));
+    }
+
+    @Test
+    void failingBodyOfShardedCompactSuiteIsRecorded() {
+        CompactTestSuite suite = new CompactTestSuite("Login").addRange("Sharded failing user {}", 1, 4, (index, out) -> {
+            if (index == 3) throw new IllegalStateException("locked out");
+        });
+
+        ResultNode root = run(suite, 2);
+
+        assertEquals(3, root.count(TestStatus.PASSED));
+        assertEquals(1, root.count(TestStatus.FAILED));
+    }
+
+    @Test
+    void casesWithoutBodiesRunInWorkerJvms() {
+        TestSuite suite = new TestSuite("Network");
+        suite.add(new TestCase("Sharded ping"));
+        suite.add(new TestCase("Sharded traceroute"));
+        suite.add(new TestCase("Sharded dns lookup"));
+
+        ResultNode root = run(suite, 2);
+
+        assertEquals(3, root.count(TestStatus.PASSED));
+    }
+}
@@ -0,0 +1,115 @@
+package test_frame;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TagIndexTest {
+    // AIX suite with a GUI and a Network suite of two cases each; one smoke and one slow case per suite.
+    private static TestSuite tree() {
+        TestSuite gui = new TestSuite("GUI");
+        gui.tag("gui");
+        gui.add(new TestCase("Login").tag("smoke"));
+        gui.add(new TestCase("Navigation").tag("slow"));
+        TestSuite network = new TestSuite("Network");
+        network.tag("network");
+        network.add(new TestCase("Ping").tag("Smoke"));
+        network.add(new TestCase("Traceroute").tag("slow"));
+        TestSuite root = new TestSuite("All");
+        root.tag("aix");
+        root.add(gui);
+        root.add(network);
+        return root;
+    }
+
+    private static List<String> selected(TagIndex index, String expression) {
+        List<String> names = new ArrayList<>();
+        BitSet bits = index.select(expression);
+        for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) names.add(index.leaf(i).getName());
+        return names;
+    }
+
+    // Path of every case in the tree, in execution order.
+    private static List<String> paths(TestSuite suite) {
+        List<String> paths = new ArrayList<>();
+        collect(suite, suite.getDescription(), paths);
+        return paths;
+    }
+
+    private static void collect(TestSuite suite, String path, List<String> paths) {
+        suite.forEachChild((child, position) -> {
+            if (child instanceof TestSuite childSuite) collect(childSuite, path + "/" + childSuite.getDescription(), paths);
+            else if (child instanceof TestCase testCase) paths.add(path + "/" + testCase.getName());
+        });
+    }
+
+    @Test
+    void andBindsTighterThanOr() {
+        TagIndex index = new TagIndex(tree());
+
+        assertEquals(List.of("Login", "Navigation", "Ping"), selected(index, "gui | network & smoke"));
+        assertEquals(List.of("Login", "Ping"), selected(index, "(gui | network) & smoke"));
+    }
+
+    @Test
+    void notAndParenthesesNest() {
+        TagIndex index = new TagIndex(tree());
+
+        assertEquals(List.of("Login", "Ping"), selected(index, "!slow"));
+        assertEquals(List.of("Navigation", "Traceroute"), selected(index, "!(gui & smoke) & !(network & smoke)"));
+        assertEquals(List.of("Login", "Navigation", "Ping", "Traceroute"), selected(index, "!!aix"));
+    }
+
+    @Test
+    void casesInheritSuiteTagsAndTagsIgnoreCase() {
+        TagIndex index = new TagIndex(tree());
+
+        assertEquals(List.of("Login", "Ping"), selected(index, "AIX & SMOKE"));
+        assertEquals(List.of("Ping", "Traceroute"), selected(index, " Network "));
+        assertTrue(selected(index, "windows").isEmpty());
+    }
+
+    @Test
+    void malformedExpressionsAreRejected() {
+        TagIndex index = new TagIndex(tree());
+
+        for (String malformed : List.of("", "gui &", "(gui | network", "gui )", "gui @ network", "& gui", "!")) {
+            assertThrows(IllegalArgumentException.class, () -> index.select(malformed), malformed);
+        }
+    }
+
+    @Test
+    void materializeKeepsOnlySelectedCasesAndTheirSuites() {
+        TestSuite root = tree();
+        TagIndex index = new TagIndex(root);
+
+        assertEquals(List.of("All/GUI/Login", "All/Network/Ping"), paths(index.materialize(index.select("smoke"))));
+        assertEquals(List.of("All/Network/Traceroute"), paths(index.materialize(index.select("network & slow"))));
+        assertEquals(4, paths(root).size()); // The indexed tree is left as it was
+    }
+
+    @Test
+    void materializeReturnsTheRootForEveryCaseAndNullForNone() {
+        TestSuite root = tree();
+        TagIndex index = new TagIndex(root);
+
+        assertSame(root, index.materialize(index.select("aix")));
+        assertNull(index.materialize(index.select("windows")));
+    }
+
+    @Test
+    void compactSuiteCasesAreIndexedWithoutBeingKeptAsObjects() {
+        TestSuite root = new TestSuite("All");
+        root.add(new CompactTestSuite("Users").addRange("User {}", 1, 4, (index, out) -> {}).tag("users"));
+        root.add(new TestCase("Logout").tag("session"));
+        TagIndex index = new TagIndex(root);
+
+        assertEquals(5, index.size());
+        assertEquals(List.of("User 1", "User 2", "User 3", "User 4"), selected(index, "users"));
+        assertEquals(List.of("All/Logout"), paths(index.materialize(index.select("!users"))));
+    }
+}
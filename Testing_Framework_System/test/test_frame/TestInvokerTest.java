@@ -0,0 +1,121 @@
+package test_frame;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TestInvokerTest {
+    private final List<String> log = Collections.synchronizedList(new ArrayList<>());
+
+    // Command that logs when it starts and ends; its dependencies can be wired after construction.
+    private class Step implements Command {
+        final String name;
+        final List<Command> dependencies = new ArrayList<>();
+        final List<Command> predecessors = new ArrayList<>();
+        Runnable body = () -> {};
+
+        Step(String name) {
+            this.name = name;
+        }
+
+        Step dependsOn(Command... commands) {
+            dependencies.addAll(List.of(commands));
+            return this;
+        }
+
+        Step runsAfter(Command... commands) {
+            predecessors.addAll(List.of(commands));
+            return this;
+        }
+
+        public void execute() {
+            log.add("start " + name);
+            body.run();
+            log.add("end " + name);
+        }
+
+        public List<Command> dependsOn() {
+            return dependencies;
+        }
+
+        public List<Command> runsAfter() {
+            return predecessors;
+        }
+    }
+
+    private void assertBefore(String first, String second) {
+        assertTrue(log.indexOf(first) >= 0 && log.indexOf(first) < log.indexOf(second), first + " before " + second + " in " + log);
+    }
+
+    @Test
+    void dependencyCycleIsRejected() {
+        Step a = new Step("a");
+        Step b = new Step("b").dependsOn(a);
+        a.dependsOn(b);
+
+        assertThrows(IllegalArgumentException.class, () -> new TestInvoker().addCommand(a));
+    }
+
+    @Test
+    void cycleThroughRunsAfterIsRejected() {
+        Step a = new Step("a");
+        Step b = new Step("b").dependsOn(a);
+        Step c = new Step("c").runsAfter(b);
+        a.runsAfter(c);
+
+        assertThrows(IllegalArgumentException.class, () -> new TestInvoker().addCommand(c));
+    }
+
+    @Test
+    void commandsStartOnceTheirDependenciesEndAndIndependentOnesRunTogether() {
+        CyclicBarrier together = new CyclicBarrier(2);
+        Runnable meet = () -> {
+            try {
+                together.await(5, TimeUnit.SECONDS); // Times out unless b and c run at the same time
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        };
+        Step a = new Step("a");
+        Step b = new Step("b").dependsOn(a);
+        Step c = new Step("c").dependsOn(a);
+        b.body = meet;
+        c.body = meet;
+        Step d = new Step("d").dependsOn(b, c);
+        TestInvoker invoker = new TestInvoker();
+        invoker.addCommand(d); // Adds its dependencies too
+
+        assertTrue(invoker.executeAll());
+
+        assertEquals(8, log.size());
+        assertBefore("end a", "start b");
+        assertBefore("end a", "start c");
+        assertBefore("end b", "start d");
+        assertBefore("end c", "start d");
+    }
+
+    @Test
+    void failureSkipsDependentsButNotCommandsThatMerelyRunAfter() {
+        Step failing = new Step("failing");
+        failing.body = () -> {
+            throw new IllegalStateException("broken");
+        };
+        Step dependent = new Step("dependent").dependsOn(failing);
+        Step successor = new Step("successor").runsAfter(failing);
+        TestInvoker invoker = new TestInvoker();
+        invoker.addCommand(dependent);
+        invoker.addCommand(successor);
+
+        assertFalse(invoker.executeAll());
+
+        assertFalse(log.contains("start dependent"));
+        assertBefore("start failing", "start successor");
+        assertTrue(log.contains("end successor"));
+    }
+}
@@ -0,0 +1,18 @@
+package test_frame;
+
+// Helpers for tests that run suites and inspect the results they record.
+class TestRuns {
+    private TestRuns() {}
+
+    // Runs the body with a fresh root result node bound, then restores the previous one.
+    static ResultNode recorded(Runnable body) {
+        ResultNode root = ResultNode.root("Execution", null);
+        ResultNode previous = ResultNode.bind(root);
+        try {
+            body.run();
+        } finally {
+            ResultNode.bind(previous);
+        }
+        return root;
+    }
+}
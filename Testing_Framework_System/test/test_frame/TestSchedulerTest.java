@@ -0,0 +1,144 @@
+package test_frame;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TestSchedulerTest {
+    private final TestScheduler scheduler = TestScheduler.getInstance();
+
+    @BeforeEach
+    @AfterEach
+    void emptyQueue() {
+        scheduler.clearExecutions();
+    }
+
+    private static TestExecution execution(String description, Priority priority) {
+        TestExecution execution = new TestExecution(description, "AIX", new TestSuite(description + " Suite"));
+        execution.setPriority(priority);
+        return execution;
+    }
+
+    // Counts how often each execution was handed out.
+    private static void claimed(Map<TestExecution, AtomicInteger> claims, List<TestExecution> executions) {
+        for (TestExecution execution : executions) claims.computeIfAbsent(execution, e -> new AtomicInteger()).incrementAndGet();
+    }
+
+    @Test
+    void drainReturnsMostUrgentFirstThenPlanningOrder() {
+        TestExecution low = execution("Low", Priority.LOW);
+        TestExecution firstNormal = execution("First normal", Priority.NORMAL);
+        TestExecution urgent = execution("Urgent", Priority.URGENT);
+        TestExecution secondNormal = execution("Second normal", Priority.NORMAL);
+        TestExecution high = execution("High", Priority.HIGH);
+        for (TestExecution execution : List.of(low, firstNormal, urgent, secondNormal, high)) scheduler.scheduleExecution(execution);
+
+        assertEquals(List.of(urgent, high, firstNormal, secondNormal, low), scheduler.getPendingExecutions());
+        assertEquals(List.of(urgent, high, firstNormal, secondNormal, low), scheduler.drainExecutions());
+        assertEquals(0, scheduler.size());
+        assertTrue(scheduler.drainExecutions().isEmpty());
+    }
+
+    @Test
+    void schedulingAPendingExecutionAgainHasNoEffect() {
+        TestExecution execution = execution("Twice", Priority.NORMAL);
+        scheduler.scheduleExecution(execution);
+        scheduler.scheduleExecution(execution);
+
+        assertEquals(1, scheduler.size());
+        assertEquals(List.of(execution), scheduler.drainExecutions());
+    }
+
+    @Test
+    void concurrentPlanningAndDrainingNeitherLosesNorRepeatsAnExecution() throws Exception {
+        int planners = 4, perPlanner = 500;
+        Map<TestExecution, AtomicInteger> claims = new ConcurrentHashMap<>();
+        AtomicBoolean planning = new AtomicBoolean(true);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService threads = Executors.newFixedThreadPool(planners + 3);
+        try {
+            List<Future<?>> plannersDone = new ArrayList<>();
+            for (int p = 0; p < planners; p++) {
+                int planner = p;
+                plannersDone.add(threads.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < perPlanner; i++) {
+                        scheduler.scheduleExecution(execution("Planned " + planner + "-" + i, Priority.values()[i % Priority.values().length]));
+                    }
+                    return null;
+                }));
+            }
+            List<Future<?>> drainers = new ArrayList<>();
+            for (int d = 0; d < 3; d++) {
+                drainers.add(threads.submit(() -> {
+                    start.await();
+                    while (planning.get()) claimed(claims, scheduler.drainExecutions());
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> planner : plannersDone) planner.get(30, TimeUnit.SECONDS);
+            planning.set(false);
+            for (Future<?> drainer : drainers) drainer.get(30, TimeUnit.SECONDS);
+        } finally {
+            threads.shutdownNow();
+        }
+        claimed(claims, scheduler.drainExecutions());
+
+        assertEquals(planners * perPlanner, claims.size()); // None lost
+        assertTrue(claims.values().stream().allMatch(count -> count.get() == 1)); // None handed out twice
+        assertEquals(0, scheduler.size());
+    }
+
+    @Test
+    void removalsRacingDrainsClaimEachExecutionOnce() throws Exception {
+        List<TestExecution> planned = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            TestExecution execution = execution("Raced " + i, Priority.NORMAL);
+            planned.add(execution);
+            scheduler.scheduleExecution(execution);
+        }
+        Map<TestExecution, AtomicInteger> claims = new ConcurrentHashMap<>();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService threads = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> racers = new ArrayList<>();
+            for (int r = 0; r < 2; r++) {
+                racers.add(threads.submit(() -> {
+                    start.await();
+                    for (TestExecution execution : planned) {
+                        if (scheduler.removeExecution(execution)) claimed(claims, List.of(execution));
+                    }
+                    return null;
+                }));
+                racers.add(threads.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < 200; i++) claimed(claims, scheduler.drainExecutions());
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> racer : racers) racer.get(30, TimeUnit.SECONDS);
+        } finally {
+            threads.shutdownNow();
+        }
+        claimed(claims, scheduler.drainExecutions());
+
+        assertEquals(planned.size(), claims.size());
+        assertTrue(claims.values().stream().allMatch(count -> count.get() == 1));
+    }
+}
@@ -0,0 +1,52 @@
+package test_frame;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WatchdogTest {
+    // Five cases, the second of which fails.
+    private static CompactTestSuite suiteWithFailingCase() {
+        return new CompactTestSuite("Login").addRange("Login user {}", 1, 5, (index, out) -> {
+            if (index == 2) throw new IllegalStateException("wrong password");
+        });
+    }
+
+    private static ResultNode run(TestSuite suite, int parallelism) {
+        return TestRuns.recorded(() -> {
+            if (parallelism > 1) ParallelTestRunner.run(suite, parallelism, new OutputBatch(false));
+            else suite.execute(new OutputBatch(false));
+        });
+    }
+
+    @Test
+    void failingCaseDoesNotStopTheSequentialSuite() {
+        ResultNode root = run(suiteWithFailingCase(), 1);
+
+        assertEquals(4, root.count(TestStatus.PASSED));
+        assertEquals(1, root.count(TestStatus.FAILED));
+        assertEquals(TestStatus.FAILED, root.result(0).status());
+    }
+
+    @Test
+    void failingCaseDoesNotStopTheParallelSuite() {
+        ResultNode root = run(suiteWithFailingCase(), 4);
+
+        assertEquals(4, root.count(TestStatus.PASSED));
+        assertEquals(1, root.count(TestStatus.FAILED));
+    }
+
+    @Test
+    void failingCaseIsReturnedAsFailed() {
+        TestCase failing = new GeneratedTestCase("Broken", List.of(), 0, (index, out) -> {
+            throw new IllegalStateException("broken");
+        }, "Broken");
+
+        TestResult result = Watchdog.getInstance().execute(failing, new OutputBatch(false));
+
+        assertEquals(TestStatus.FAILED, result.status());
+        assertTrue(result.cause().contains("broken"));
+    }
+}
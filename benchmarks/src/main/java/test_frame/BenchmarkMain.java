@@ -0,0 +1,34 @@
+/**
+ *Project: Testing Framework System
+ *
+ *@author Taha Yasir Colak
+ *@author Aykan Berk Ayvazoglu
+ *@author Cankat Caglar Acarer
+ *@author Bartu Nurgun
+ *
+ */
+package test_frame;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * Runs the benchmarks and always writes the results as JSON, so runs can be compared over time.
+ * Accepts the usual JMH command-line options; without -rff the file is named jmh-result-&lt;timestamp&gt;.json.
+ */
+public class BenchmarkMain {
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cli = new CommandLineOptions(args);
+        String timestamp = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+        OptionsBuilder options = new OptionsBuilder();
+        options.parent(cli);
+        if (!cli.getResult().hasValue()) options.result("jmh-result-" + timestamp + ".json");
+        if (!cli.getResultFormat().hasValue()) options.resultFormat(ResultFormatType.JSON);
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,76 @@
+/**
+ *Project: Testing Framework System
+ *
+ *@author Taha Yasir Colak
+ *@author Aykan Berk Ayvazoglu
+ *@author Cankat Caglar Acarer
+ *@author Bartu Nurgun
+ *
+ */
+package test_frame;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LogViewer reads: a streaming scan of the whole log against an indexed lookup of the same filter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LogViewerBenchmark {
+    @Param({"10000", "1000000"})
+    public int logSize;
+
+    private Path log;
+    private ResultLogReader reader;
+    private ResultLogIndex index;
+    private LogQuery query;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        log = BenchmarkLogs.createLog(logSize);
+        System.setProperty("tfs.log.file", log.toString());
+        reader = new ResultLogReader(log);
+        index = ResultLogIndex.getInstance();
+        query = LogQuery.parse("--platform AIX --desc network");
+    }
+
+    @Benchmark
+    public long scan(Blackhole blackhole) throws IOException {
+        long[] matches = {0};
+        reader.scan(0, (offset, record) -> {
+            if (query.matches(record)) {
+                matches[0]++;
+                blackhole.consume(record);
+            }
+            return true;
+        });
+        return matches[0];
+    }
+
+    @Benchmark
+    public long indexed(Blackhole blackhole) throws IOException {
+        long[] matches = {0};
+        reader.visitAt(index.lookup(query), (offset, record) -> {
+            if (query.matches(record)) {
+                matches[0]++;
+                blackhole.consume(record);
+            }
+            return true;
+        });
+        return matches[0];
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkLogs.delete(log.getParent());
+    }
+}
@@ -0,0 +1,97 @@
+/**
+ *Project: Testing Framework System
+ *
+ *@author Taha Yasir Colak
+ *@author Aykan Berk Ayvazoglu
+ *@author Cankat Caglar Acarer
+ *@author Bartu Nurgun
+ *
+ */
+package test_frame;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of TestManager.saveResultToJson for logs of different sizes.
+ * Each fork points the result log at a fresh temporary file holding logSize records.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dtfs.log.fsync=never")
+public class ResultLogBenchmark {
+    @Param({"0", "10000", "1000000"})
+    public int logSize;
+
+    private TestManager manager;
+    private TestExecution execution;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Path log = BenchmarkLogs.createLog(logSize);
+        System.setProperty("tfs.log.file", log.toString()); // Read when the log classes are first used
+        TestManager.setIsCheckedIn(true);
+        manager = TestManager.getInstance();
+        execution = new TestExecution("AIX - gui Test Execution", "AIX", new AIXTestSuiteFactory().createGUITestSuite());
+    }
+
+    @Benchmark
+    public void saveResultToJson() {
+        manager.saveResultToJson(execution, "PASSED", 1);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void saveResultToJsonContended() {
+        manager.saveResultToJson(execution, "PASSED", 1); // Concurrent writers share group commits
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        try {
+            BenchmarkLogs.delete(Path.of(ResultLogWriter.LOG_FILE).getParent());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
+
+// Helpers shared by the benchmarks that need a result log of a given size.
+class BenchmarkLogs {
+    private BenchmarkLogs() {}
+
+    /**
+     * Writes a log with the given number of records into a new temporary directory.
+     * Platforms and descriptions vary so filtered reads match only part of the log.
+     */
+    static Path createLog(int records) throws IOException {
+        Path dir = Files.createTempDirectory("tfs-bench");
+        Path log = dir.resolve("test_log.ndjson");
+        long start = System.currentTimeMillis() - records * 60_000L;
+        try (var writer = Files.newBufferedWriter(log)) {
+            for (int i = 0; i < records; i++) {
+                String platform = i % 2 == 0 ? "AIX" : "MacOS";
+                String type = i % 3 == 0 ? "gui" : i % 3 == 1 ? "network" : "all";
+                writer.write("{ \"description\": \"" + platform + " - " + type + " Test Execution\", \"platform\": \""
+                        + platform + "\", \"timestamp\": \"-\", \"epochMillis\": " + (start + i * 60_000L) + " }\n");
+            }
+        }
+        return log;
+    }
+
+    static void delete(Path dir) throws IOException {
+        if (dir == null || !Files.exists(dir)) return;
+        try (var files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) Files.deleteIfExists(file);
+        }
+        Files.deleteIfExists(dir);
+    }
+}
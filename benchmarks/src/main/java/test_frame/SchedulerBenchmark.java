@@ -0,0 +1,49 @@
+/**
+ *Project: Testing Framework System
+ *
+ *@author Taha Yasir Colak
+ *@author Aykan Berk Ayvazoglu
+ *@author Cankat Caglar Acarer
+ *@author Bartu Nurgun
+ *
+ */
+package test_frame;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TestScheduler enqueue and drain under contention: several threads plan executions
+ * while others drain the queue at the same time.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SchedulerBenchmark {
+    private final TestScheduler scheduler = TestScheduler.getInstance();
+    private final TestSuite suite = new AIXTestSuiteFactory().createGUITestSuite();
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(6)
+    public void schedule() {
+        scheduler.scheduleExecution(new TestExecution("AIX - gui Test Execution", "AIX", suite));
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(2)
+    public void drain(Blackhole blackhole) {
+        blackhole.consume(scheduler.drainExecutions());
+    }
+
+    @TearDown(Level.Iteration)
+    public void clear() {
+        scheduler.clearExecutions();
+    }
+}
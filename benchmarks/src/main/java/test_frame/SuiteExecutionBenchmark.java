@@ -0,0 +1,73 @@
+/**
+ *Project: Testing Framework System
+ *
+ *@author Taha Yasir Colak
+ *@author Aykan Berk Ayvazoglu
+ *@author Cankat Caglar Acarer
+ *@author Bartu Nurgun
+ *
+ */
+package test_frame;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TestSuite.execute on wide and deep composite trees, sequentially and on the fork-join runner.
+ * Output goes to a discarding stream so console speed does not dominate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SuiteExecutionBenchmark {
+    @Param({"wide", "deep"})
+    public String shape;
+
+    @Param({"1", "4"})
+    public int parallelism;
+
+    private TestSuite suite;
+    // Text output through the asynchronous writer, formatted but discarded.
+    private final AsyncOutputWriter sink = new AsyncOutputWriter(
+            new PrintStream(OutputStream.nullOutputStream()), OutputMode.TEXT, AsyncOutputWriter.DEFAULT_CAPACITY);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        suite = shape.equals("wide") ? wide(10_000) : deep(12, 2);
+    }
+
+    // One suite holding many cases.
+    static TestSuite wide(int cases) {
+        TestSuite suite = new TestSuite("Wide Suite");
+        for (int i = 0; i < cases; i++) suite.add(new TestCase("Case " + i));
+        return suite;
+    }
+
+    // A full tree of nested suites, each with fanOut children, with two cases per leaf suite.
+    static TestSuite deep(int depth, int fanOut) {
+        TestSuite suite = new TestSuite("Suite depth " + depth);
+        if (depth == 0) {
+            suite.add(new TestCase("Leaf Case A"));
+            suite.add(new TestCase("Leaf Case B"));
+        } else {
+            for (int i = 0; i < fanOut; i++) suite.add(deep(depth - 1, fanOut));
+        }
+        return suite;
+    }
+
+    @Benchmark
+    public void execute() {
+        if (parallelism > 1) ParallelTestRunner.run(suite, parallelism, sink);
+        else {
+            OutputBatch batch = sink.batch();
+            suite.execute(batch);
+            sink.append(batch);
+        }
+    }
+}